@@ -19,20 +19,49 @@
 package org.wso2.healthcare.codegen.tool.framework.fhir.core;
 
 import ca.uhn.fhir.context.FhirContext;
-import ca.uhn.fhir.parser.IParser;
-import com.google.gson.Gson;
-import com.google.gson.JsonElement;
+import ca.uhn.fhir.parser.DataFormatException;
+import ca.uhn.fhir.util.BundleBuilder;
 import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.wso2.healthcare.codegen.tool.framework.commons.config.ToolConfig;
 import org.wso2.healthcare.codegen.tool.framework.commons.core.AbstractSpecParser;
 import org.wso2.healthcare.codegen.tool.framework.commons.exception.CodeGenException;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRDefinitionCache;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRDefinitionHeader;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRDefinitionManifest;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRDefinitionParser;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRDefinitionSniffer;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRPackageIndex;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRPackageReader;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRPrecompiledSpec;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRSearchParameterIndex;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRSpecificationData;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.LazyDefinition;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.config.DefinitionRetention;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.config.FHIRToolConfig;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.config.ParserConfig;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.model.FHIRImplementationGuide;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.model.FHIRResourceDef;
 
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
 
 /**
  * This interface is responsible delegating the parsing of FHIR specification files between versions.
@@ -40,6 +69,54 @@ import java.io.FileNotFoundException;
 
 public abstract class AbstractFHIRSpecParser extends AbstractSpecParser {
 
+    private static final Log LOG = LogFactory.getLog(AbstractFHIRSpecParser.class);
+
+    /**
+     * Resource types consumed from implementation guide directories. Other resources such as examples and
+     * questionnaires are skipped before they are parsed.
+     */
+    protected static final Set<String> IG_RESOURCE_TYPES = Set.of("StructureDefinition", "SearchParameter", "Bundle",
+            "OperationDefinition", "CodeSystem", "ValueSet", "ImplementationGuide");
+
+    /**
+     * Structure definition kinds consumed from implementation guide directories, as resource profiles or data types.
+     */
+    protected static final Set<String> IG_STRUCTURE_DEFINITION_KINDS = Set.of("resource", "primitive-type",
+            "complex-type");
+
+    /**
+     * Resource types read from FHIR npm packages. Other package entries are skipped without being parsed.
+     */
+    protected static final Set<String> PACKAGE_RESOURCE_TYPES = Set.of("StructureDefinition", "SearchParameter",
+            "OperationDefinition", "CodeSystem", "ValueSet", "ImplementationGuide");
+
+    /**
+     * Resource types consumed from terminology directories.
+     */
+    protected static final Set<String> TERMINOLOGY_RESOURCE_TYPES = Set.of("Bundle");
+
+    /**
+     * Resource types consumed from data type profile directories.
+     */
+    protected static final Set<String> DATA_TYPE_RESOURCE_TYPES = Set.of("StructureDefinition");
+
+    /**
+     * Warm start cache key of the terminologies resolved from the loaded value sets and code systems.
+     */
+    protected static final String RESOLVED_TERMINOLOGIES_KEY = "resolved-terminologies";
+
+    /**
+     * Warm start cache of the parsed definitions. Disabled unless a cache directory is configured.
+     */
+    protected FHIRDefinitionCache definitionCache = FHIRDefinitionCache.disabled();
+
+    /**
+     * Parser of the definition files, configured from the parser config when parsing starts.
+     */
+    protected FHIRDefinitionParser definitionParser;
+
+    private final Map<String, Optional<FHIRPrecompiledSpec>> precompiledSpecs = new ConcurrentHashMap<>();
+
     /**
      * This method is used to parse the FHIR structure definition from the file.
      *
@@ -48,11 +125,23 @@ public abstract class AbstractFHIRSpecParser extends AbstractSpecParser {
      * @throws CodeGenException if an error occurs while parsing the definition
      */
     protected static IBaseResource parseDefinition(FhirContext CTX, File file) throws CodeGenException {
-        IParser parser = CTX.newJsonParser();
+        return parseDefinition(FHIRDefinitionParser.getInstance(CTX, false), file);
+    }
+
+    /**
+     * This method is used to parse the FHIR structure definition from the file with the given definition parser.
+     *
+     * @param definitionParser definition parser
+     * @param file             definition file
+     * @return parsed FHIR structure definition
+     * @throws CodeGenException if an error occurs while reading or parsing the definition
+     */
+    protected static IBaseResource parseDefinition(FHIRDefinitionParser definitionParser, File file)
+            throws CodeGenException {
         try {
-            return parser.parseResource(new FileReader(file));
-        } catch (FileNotFoundException e) {
-            throw new CodeGenException("Error occurred while parsing FHIR definition.", e);
+            return definitionParser.parse(file);
+        } catch (IOException | DataFormatException e) {
+            throw new CodeGenException("Error occurred while parsing FHIR definition: " + file.getName(), e);
         }
     }
 
@@ -64,14 +153,181 @@ public abstract class AbstractFHIRSpecParser extends AbstractSpecParser {
      * @throws CodeGenException if an error occurs while parsing the definition
      */
     protected static IBaseResource parseDefinition(FhirContext CTX, InputStream inputStream) throws CodeGenException {
-        IParser parser = CTX.newJsonParser();
+        return parseDefinition(FHIRDefinitionParser.getInstance(CTX, false), inputStream);
+    }
+
+    /**
+     * This method is used to parse the FHIR structure definition from the input stream with the given definition
+     * parser.
+     *
+     * @param definitionParser definition parser
+     * @param inputStream      definition file input stream
+     * @return parsed FHIR structure definition
+     * @throws CodeGenException if an error occurs while parsing the definition
+     */
+    protected static IBaseResource parseDefinition(FHIRDefinitionParser definitionParser, InputStream inputStream)
+            throws CodeGenException {
         try {
-            return parser.parseResource(inputStream);
+            return definitionParser.parse(inputStream);
         } catch (Exception e) {
             throw new CodeGenException("Error occurred while parsing FHIR definition from the stream.", e);
         }
     }
 
+    /**
+     * Returns the definition parser configured for this parse, or the shared parser of the FHIR context if parsing
+     * was not started through {@link #parse(ToolConfig)}.
+     *
+     * @param CTX FHIR context of the FHIR version
+     * @return definition parser
+     */
+    protected FHIRDefinitionParser getDefinitionParser(FhirContext CTX) {
+        return definitionParser != null ? definitionParser : FHIRDefinitionParser.getInstance(CTX, false);
+    }
+
+    /**
+     * This method is used to parse a FHIR definition bundled in the tool resources. The parsed definition is served
+     * from the warm start cache when available.
+     *
+     * @param resourcePath class path of the bundled definition
+     * @return parsed FHIR definition
+     * @throws CodeGenException if an error occurs while reading or parsing the definition
+     */
+    protected IBaseResource parseBundledDefinition(FhirContext CTX, String resourcePath) throws CodeGenException {
+        String cacheKey = "classpath:" + resourcePath;
+        if (definitionCache.contains(cacheKey)) {
+            return definitionCache.get(cacheKey);
+        }
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(resourcePath)) {
+            if (inputStream == null) {
+                throw new CodeGenException("FHIR definition not found in the tool resources: " + resourcePath);
+            }
+            IBaseResource parsedDef = parseDefinition(getDefinitionParser(CTX), inputStream);
+            definitionCache.put(cacheKey, parsedDef);
+            return parsedDef;
+        } catch (IOException e) {
+            throw new CodeGenException("Error occurred while reading FHIR definition: " + resourcePath, e);
+        }
+    }
+
+    /**
+     * Returns the hash of the definition files the terminologies are resolved from, i.e. the files of the
+     * implementation guides and terminology directories loaded into the given specification data. It is the input
+     * hash of the resolved terminologies in the warm start cache.
+     *
+     * @param specData   loaded specification data
+     * @param toolConfig FHIR tool config
+     * @return combined content hash, or null if it cannot be calculated
+     */
+    protected static String getTerminologyInputHash(FHIRSpecificationData specData, FHIRToolConfig toolConfig) {
+        List<FHIRDefinitionManifest> manifests = new ArrayList<>();
+        for (FHIRImplementationGuide implementationGuide : specData.getFhirImplementationGuides().values()) {
+            if (implementationGuide.getManifest() != null) {
+                manifests.add(implementationGuide.getManifest());
+            }
+        }
+        for (String terminologyDir : toolConfig.getTerminologyDirs()) {
+            File terminologyDirPath = new File(toolConfig.getSpecBasePath() + terminologyDir);
+            manifests.add(specData.getDefinitionManifest(terminologyDirPath.getAbsolutePath()));
+        }
+        return FHIRDefinitionManifest.hash(manifests);
+    }
+
+    /**
+     * Returns the class path of a base data type profile bundled in the tool resources.
+     *
+     * @param fhirVersion FHIR version, e.g. r4
+     * @param fileName    file name of the profile
+     * @return profile class path
+     */
+    protected static String getBaseDataTypePath(String fhirVersion, String fileName) {
+        return fhirVersion + "/profiles/base-data-types/" + fileName;
+    }
+
+    /**
+     * Returns the class path of the international search parameter bundle in the tool resources.
+     *
+     * @param fhirVersion FHIR version, e.g. r4
+     * @return bundle class path
+     */
+    protected static String getSearchParametersPath(String fhirVersion) {
+        return fhirVersion + "/profiles/all-search-parameters.json";
+    }
+
+    /**
+     * Returns the precompiled definitions of the given FHIR version, read once per parser.
+     *
+     * @param fhirVersion FHIR version, e.g. r4
+     * @return precompiled definitions, or null if they are not available
+     */
+    protected FHIRPrecompiledSpec getPrecompiledSpec(String fhirVersion) {
+        return precompiledSpecs.computeIfAbsent(fhirVersion, version ->
+                Optional.ofNullable(FHIRPrecompiledSpec.load(getClass().getClassLoader(), version))).orElse(null);
+    }
+
+    /**
+     * This method is used to read a bundled base data type profile. The precompiled definition is used when
+     * available, otherwise the bundled JSON definition is parsed.
+     *
+     * @param fhirVersion FHIR version, e.g. r4
+     * @param fileName    file name of the profile
+     * @return base data type profile
+     * @throws CodeGenException if an error occurs while reading or parsing the definition
+     */
+    protected IBaseResource readBaseDataType(FhirContext CTX, String fhirVersion, String fileName)
+            throws CodeGenException {
+        FHIRPrecompiledSpec precompiledSpec = getPrecompiledSpec(fhirVersion);
+        if (precompiledSpec != null) {
+            try {
+                IBaseResource definition = precompiledSpec.getBaseDataType(fileName, getDefinitionParser(CTX));
+                if (definition != null) {
+                    return definition;
+                }
+            } catch (IllegalStateException e) {
+                LOG.warn("Unable to read the precompiled base data type: " + fileName, e);
+            }
+        }
+        return parseBundledDefinition(CTX, getBaseDataTypePath(fhirVersion, fileName));
+    }
+
+    /**
+     * This method is used to read the index of the international search parameters. The precompiled index is used
+     * when available, otherwise the bundled search parameter bundle is scanned.
+     *
+     * @param fhirVersion FHIR version, e.g. r4
+     * @return search parameter index
+     * @throws CodeGenException if the search parameter bundle cannot be read
+     */
+    protected FHIRSearchParameterIndex readSearchParameterIndex(String fhirVersion) throws CodeGenException {
+        FHIRPrecompiledSpec precompiledSpec = getPrecompiledSpec(fhirVersion);
+        if (precompiledSpec != null) {
+            return precompiledSpec.getSearchParameterIndex();
+        }
+        try {
+            return FHIRSearchParameterIndex.scan(readBundledResource(getSearchParametersPath(fhirVersion)));
+        } catch (IllegalArgumentException e) {
+            throw new CodeGenException("Error occurred while indexing international search parameters.", e);
+        }
+    }
+
+    /**
+     * This method is used to read the content of a file bundled in the tool resources.
+     *
+     * @param resourcePath class path of the bundled file
+     * @return file content
+     * @throws CodeGenException if the file cannot be read
+     */
+    protected byte[] readBundledResource(String resourcePath) throws CodeGenException {
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(resourcePath)) {
+            if (inputStream == null) {
+                throw new CodeGenException("File not found in the tool resources: " + resourcePath);
+            }
+            return inputStream.readAllBytes();
+        } catch (IOException e) {
+            throw new CodeGenException("Error occurred while reading: " + resourcePath, e);
+        }
+    }
+
     /**
      * This method is used to parse the FHIR structure definition from the string.
      *
@@ -80,14 +336,252 @@ public abstract class AbstractFHIRSpecParser extends AbstractSpecParser {
      * @throws CodeGenException if an error occurs while parsing the definition
      */
     protected static IBaseResource parseDefinition(FhirContext CTX, String resourceContent) throws CodeGenException {
-        IParser parser = CTX.newJsonParser();
         try {
-            return parser.parseResource(resourceContent);
+            return FHIRDefinitionParser.getInstance(CTX, false).parse(resourceContent);
         } catch (Exception e) {
             throw new CodeGenException("Error occurred while parsing FHIR definition from the string.", e);
         }
     }
 
+    /**
+     * This method is used to parse the given definition files. When parallel parsing is enabled in the parser config,
+     * files are parsed concurrently, but the results are always returned in the order of the given files so that the
+     * callers can merge them exactly as in a sequential run. Definitions available in the warm start cache are not
+     * read again.
+     *
+     * @param CTX          FHIR context of the FHIR version
+     * @param files        definition files
+     * @param filter       files not accepted by the filter are returned as skipped definitions
+     * @param parserConfig parser config
+     * @return parsed definitions in the order of the given files
+     */
+    protected List<ParsedDefinition> parseDefinitions(FhirContext CTX, File[] files, Predicate<File> filter,
+                                                      ParserConfig parserConfig) {
+        List<ParsedDefinition> parsedDefinitions = new ArrayList<>(files.length);
+
+        if (!parserConfig.isParallel() || files.length < 2) {
+            for (File file : files) {
+                parsedDefinitions.add(parseDefinition(CTX, file, filter, parserConfig));
+            }
+            return parsedDefinitions;
+        }
+
+        ExecutorService executor = parserConfig.isVirtualThreads() ? Executors.newVirtualThreadPerTaskExecutor() :
+                Executors.newFixedThreadPool(Math.min(parserConfig.getParallelism(), files.length));
+        try {
+            List<Future<ParsedDefinition>> futures = new ArrayList<>(files.length);
+            for (File file : files) {
+                futures.add(executor.submit(() -> parseDefinition(CTX, file, filter, parserConfig)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    parsedDefinitions.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    parsedDefinitions.add(new ParsedDefinition(files[i], e.getCause()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    parsedDefinitions.add(new ParsedDefinition(files[i], new CodeGenException(
+                            "Interrupted while parsing FHIR definition: " + files[i].getName(), e)));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return parsedDefinitions;
+    }
+
+    private ParsedDefinition parseDefinition(FhirContext CTX, File file, Predicate<File> filter,
+                                             ParserConfig parserConfig) {
+        if (definitionCache.contains(file)) {
+            return new ParsedDefinition(file, (IBaseResource) definitionCache.get(file));
+        }
+        try {
+            if (FHIRPackageReader.isPackage(file)) {
+                IBaseResource packageBundle = parsePackage(CTX, file);
+                definitionCache.put(file, packageBundle);
+                return new ParsedDefinition(file, packageBundle);
+            }
+            if (!filter.test(file)) {
+                definitionCache.put(file, null);
+                return new ParsedDefinition(file, (IBaseResource) null);
+            }
+            if (parserConfig.isLazyDefinitions()) {
+                // header stubs are not cached, the warm start cache only holds parsed definitions
+                IBaseResource definitionStub = readDefinitionStub(file, parserConfig.getDefinitionRetention());
+                if (definitionStub != null) {
+                    return new ParsedDefinition(file, definitionStub);
+                }
+            }
+            IBaseResource parsedDef = parseDefinition(getDefinitionParser(CTX), file);
+            definitionCache.put(file, parsedDef);
+            return new ParsedDefinition(file, parsedDef);
+        } catch (CodeGenException | RuntimeException e) {
+            return new ParsedDefinition(file, e);
+        }
+    }
+
+    /**
+     * This method is used to load the definition files of a directory into the specification data. On the first load
+     * every file is parsed and merged. When the manifest already holds a previous load, only the added and changed
+     * files are parsed, and every entry under a key contributed by a changed, added or removed file is taken out and
+     * merged again in the listing order, so that the precedence stays the same as in a full load. The manifest holds
+     * a previous load when the specification data is a {@link FHIRSpecificationData#copy()} of previously parsed data,
+     * which the specification data registry re-parses when the input files change.
+     *
+     * @param CTX          FHIR context of the FHIR version
+     * @param files        definition files of the directory
+     * @param filter       files not accepted by the filter are skipped
+     * @param manifest     manifest of the directory
+     * @param merger       merges the parsed definitions into the specification data
+     * @param parserConfig parser config
+     * @param LOG          logger of the parser
+     * @return true if anything was merged or removed
+     */
+    protected boolean loadDefinitions(FhirContext CTX, File[] files, Predicate<File> filter,
+                                      FHIRDefinitionManifest manifest, DefinitionMerger merger,
+                                      ParserConfig parserConfig, Log LOG) {
+        boolean initialLoad = manifest.isEmpty();
+        File[] filesToParse = files;
+        Set<String> affectedKeys = new HashSet<>();
+
+        if (!initialLoad) {
+            FHIRDefinitionManifest.Changes changes = manifest.diff(files);
+            if (changes.isEmpty()) {
+                return false;
+            }
+            filesToParse = changes.getModifiedFiles().toArray(new File[0]);
+            for (IBaseResource staleDefinition : changes.getStaleDefinitions()) {
+                for (IBaseResource resource : merger.split(staleDefinition)) {
+                    merger.unmerge(resource);
+                    affectedKeys.add(merger.key(resource));
+                }
+            }
+        }
+
+        List<ParsedDefinition> parsedDefinitions = parseDefinitions(CTX, filesToParse, filter, parserConfig);
+        Map<File, IBaseResource> parsedResources = new HashMap<>();
+        for (ParsedDefinition parsedDefinition : parsedDefinitions) {
+            parsedResources.put(parsedDefinition.getFile(), parsedDefinition.resource);
+            if (parsedDefinition.isSkipped()) {
+                continue;
+            }
+            try {
+                for (IBaseResource resource : merger.split(parsedDefinition.getResource())) {
+                    if (initialLoad) {
+                        merger.merge(resource);
+                    } else {
+                        affectedKeys.add(merger.key(resource));
+                    }
+                }
+            } catch (CodeGenException e) {
+                LOG.error("Error occurred while processing FHIR resource definition.", e);
+            }
+        }
+        manifest.update(files, parsedResources);
+
+        if (!initialLoad) {
+            LOG.info("Reloaded " + filesToParse.length + " changed FHIR definition files.");
+            affectedKeys.remove(null);
+            // entries of unchanged files are taken out as well, so that an added file listed before them takes over
+            for (FHIRDefinitionManifest.Entry entry : manifest.getEntries()) {
+                for (IBaseResource resource : merger.split(entry.getDefinition())) {
+                    if (affectedKeys.contains(merger.key(resource))) {
+                        merger.unmerge(resource);
+                    }
+                }
+            }
+            for (FHIRDefinitionManifest.Entry entry : manifest.getEntries()) {
+                for (IBaseResource resource : merger.split(entry.getDefinition())) {
+                    if (affectedKeys.contains(merger.key(resource))) {
+                        merger.merge(resource);
+                    }
+                }
+                // keep the warm start snapshot complete, unchanged files are not read in this run
+                File entryFile = new File(entry.getPath());
+                if (!definitionCache.contains(entryFile)) {
+                    definitionCache.put(entryFile, entry.getDefinition());
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * This method is used to parse the definitions of a FHIR npm package. The entries are streamed out of the package
+     * tarball and collected into a collection bundle in the archive order, so that the package is loaded and tracked
+     * like a single definition file.
+     *
+     * @param CTX         FHIR context of the FHIR version
+     * @param packageFile package tarball
+     * @return collection bundle of the package definitions
+     * @throws CodeGenException if the package cannot be read
+     */
+    protected IBaseResource parsePackage(FhirContext CTX, File packageFile) throws CodeGenException {
+        List<FHIRPackageReader.PackageEntry> entries;
+        try {
+            entries = FHIRPackageReader.readDefinitions(packageFile, PACKAGE_RESOURCE_TYPES);
+        } catch (IOException e) {
+            throw new CodeGenException("Error occurred while reading FHIR package: " + packageFile.getName(), e);
+        }
+
+        BundleBuilder bundleBuilder = new BundleBuilder(CTX);
+        bundleBuilder.setType("collection");
+        for (FHIRPackageReader.PackageEntry entry : entries) {
+            try {
+                bundleBuilder.addCollectionEntry(parseDefinition(getDefinitionParser(CTX), entry.getContent()));
+            } catch (CodeGenException e) {
+                LOG.error("Error occurred while parsing FHIR definition: " + entry.getFileName() + " of package: " +
+                        packageFile.getName(), e);
+            }
+        }
+        LOG.debug("Read " + entries.size() + " FHIR definitions from package: " + packageFile.getName());
+        return bundleBuilder.getBundle();
+    }
+
+    private IBaseResource readDefinitionStub(File file, DefinitionRetention retention) {
+        try {
+            FHIRDefinitionHeader header = FHIRDefinitionSniffer.readHeader(file);
+            if (header != null && "StructureDefinition".equals(header.getResourceType()) &&
+                    "resource".equals(header.getKind()) && header.getUrl() != null && header.getType() != null) {
+                return createDefinitionStub(file, header, retention);
+            }
+        } catch (IOException e) {
+            // parsed eagerly, which reports the error
+        }
+        return null;
+    }
+
+    /**
+     * This method is used to create the header stub of a profile structure definition which is parsed lazily. The
+     * stub carries the indexed header properties and refers to a {@link LazyDefinition} through its user data.
+     *
+     * @param file      definition file
+     * @param header    header properties of the definition
+     * @param retention memory policy of the definition once parsed
+     * @return structure definition stub, or null if the definition should be parsed eagerly
+     */
+    protected IBaseResource createDefinitionStub(File file, FHIRDefinitionHeader header, DefinitionRetention retention) {
+        return null;
+    }
+
+    /**
+     * Collects the ancestry chain of a resource definition by following the linked parent resources.
+     *
+     * @param resourceDef resource definition
+     * @return ancestor resource definitions, nearest first
+     */
+    protected static <S, E, D> List<FHIRResourceDef<S, E, D>> collectAncestors(FHIRResourceDef<S, E, D> resourceDef) {
+        List<FHIRResourceDef<S, E, D>> ancestors = new ArrayList<>();
+        // guards against base definition cycles in malformed implementation guides
+        Set<FHIRResourceDef<S, E, D>> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        visited.add(resourceDef);
+        for (FHIRResourceDef<S, E, D> parent = resourceDef.getParentResource(); parent != null && visited.add(parent);
+             parent = parent.getParentResource()) {
+            ancestors.add(parent);
+        }
+        return ancestors.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(ancestors);
+    }
+
     public abstract void parse(ToolConfig toolConfig);
 
     public abstract void parseIG(ToolConfig toolConfig, String igName, String igDirPath);
@@ -105,14 +599,157 @@ public abstract class AbstractFHIRSpecParser extends AbstractSpecParser {
      * @return true if the file is a valid FHIR definition file, false otherwise
      */
     protected boolean isValidFHIRDefinition(File definitionFile, Log LOG) {
-        try (FileReader fileReader = new FileReader(definitionFile)) {
-            JsonElement jsonElement = new Gson().fromJson(fileReader, JsonElement.class);
-            if (!jsonElement.isJsonArray()) {
-                return jsonElement.getAsJsonObject().has("resourceType");
-            }
+        return readResourceType(definitionFile, LOG) != null;
+    }
+
+    /**
+     * This method will check whether the given file is a FHIR definition of one of the given resource types. Only the
+     * beginning of the file is read, so unsupported resources are skipped without being parsed.
+     *
+     * @param definitionFile definition file
+     * @param resourceTypes  accepted resource types
+     * @return true if the file is a FHIR definition of an accepted resource type, false otherwise
+     */
+    protected boolean isSupportedFHIRDefinition(File definitionFile, Set<String> resourceTypes, Log LOG) {
+        String resourceType = readResourceType(definitionFile, LOG);
+        if (resourceType == null) {
+            return false;
+        }
+        if (!resourceTypes.contains(resourceType)) {
+            LOG.debug("Skipping unsupported FHIR definition: " + definitionFile.getName() + " of type: " +
+                    resourceType);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * This method will check whether the given file of an implementation guide directory is consumed, using the
+     * directory index when the file is indexed. Indexed files which are not consumed, such as examples and logical
+     * models, are skipped without being opened.
+     *
+     * @param definitionFile definition file
+     * @param index          index of the implementation guide directory
+     * @return true if the file is a consumed FHIR definition, false otherwise
+     */
+    protected boolean isConsumedIGDefinition(File definitionFile, FHIRPackageIndex index, Log LOG) {
+        FHIRDefinitionHeader header = index.get(definitionFile);
+        if (header == null) {
+            return isSupportedFHIRDefinition(definitionFile, IG_RESOURCE_TYPES, LOG);
+        }
+        String resourceType = header.getResourceType();
+        if (!IG_RESOURCE_TYPES.contains(resourceType) || ("StructureDefinition".equals(resourceType) &&
+                header.getKind() != null && !IG_STRUCTURE_DEFINITION_KINDS.contains(header.getKind()))) {
+            LOG.debug("Skipping unsupported FHIR definition: " + definitionFile.getName() + " of type: " +
+                    resourceType);
+            return false;
+        }
+        return true;
+    }
+
+    private static String readResourceType(File definitionFile, Log LOG) {
+        try {
+            return FHIRDefinitionSniffer.readResourceType(definitionFile);
         } catch (IOException e) {
             LOG.error("Error occurred while reading the definition file: " + definitionFile.getName(), e);
         }
-        return false;
+        return null;
+    }
+
+    /**
+     * Kinds of the sources definitions are loaded from.
+     */
+    protected enum DefinitionSource {
+        IMPLEMENTATION_GUIDE,
+        PACKAGE,
+        TERMINOLOGY,
+        DATA_TYPE
+    }
+
+    /**
+     * Merges parsed definitions into the specification data. Entries are identified by a key, such as the canonical
+     * url, so that the entries contributed by a changed definition file can be taken out and merged again.
+     */
+    protected interface DefinitionMerger {
+
+        /**
+         * Returns the resources of a parsed definition which are merged, e.g. the entries of a bundle.
+         *
+         * @param definition parsed definition, may be null
+         * @return resources to merge
+         */
+        List<? extends IBaseResource> split(IBaseResource definition);
+
+        /**
+         * Returns the key of the entry the resource is merged into.
+         *
+         * @param resource resource returned by {@link #split(IBaseResource)}
+         * @return entry key, or null if the resource is not merged
+         */
+        String key(IBaseResource resource);
+
+        void merge(IBaseResource resource);
+
+        /**
+         * Removes the entries merged from the given resource. Entries contributed by other definitions are kept.
+         *
+         * @param resource resource returned by {@link #split(IBaseResource)}
+         */
+        void unmerge(IBaseResource resource);
+    }
+
+    /**
+     * Holds the outcome of parsing a single definition file, so that errors raised while parsing concurrently are
+     * reported at the point the definition is merged.
+     */
+    protected static class ParsedDefinition {
+
+        private final File file;
+        private final IBaseResource resource;
+        private final Throwable error;
+
+        ParsedDefinition(File file, IBaseResource resource) {
+            this.file = file;
+            this.resource = resource;
+            this.error = null;
+        }
+
+        ParsedDefinition(File file, Throwable error) {
+            this.file = file;
+            this.resource = null;
+            this.error = error;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * Returns whether the definition file was filtered out before parsing.
+         *
+         * @return true if the file was skipped
+         */
+        public boolean isSkipped() {
+            return resource == null && error == null;
+        }
+
+        /**
+         * Returns the parsed definition or rethrows the error occurred while parsing it.
+         *
+         * @return parsed FHIR definition
+         * @throws CodeGenException if an error occurred while parsing the definition
+         */
+        public IBaseResource getResource() throws CodeGenException {
+            if (error instanceof CodeGenException) {
+                throw (CodeGenException) error;
+            } else if (error instanceof RuntimeException) {
+                throw (RuntimeException) error;
+            } else if (error instanceof Error) {
+                throw (Error) error;
+            } else if (error != null) {
+                throw new CodeGenException("Error occurred while parsing FHIR definition: " + file.getName(), error);
+            }
+            return resource;
+        }
     }
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.org).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.healthcare.codegen.tool.framework.fhir.core;
+
+import ca.uhn.fhir.context.FhirContext;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRDefinitionParser;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRPrecompiledSpec;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRSearchParameterIndex;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.versions.r4.common.FHIRR4SpecUtils;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.versions.r5.common.FHIRR5SpecUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Generates the precompiled definitions of the bundled R4 and R5 resources. Run when the module is built, with the
+ * class output directory as the argument. It is not part of the API, and is left out of the module jar.
+ */
+final class FHIRPrecompiledSpecGenerator {
+
+    private FHIRPrecompiledSpecGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Usage: FHIRPrecompiledSpecGenerator <output directory>");
+        }
+        Path outputDir = Paths.get(args[0]);
+        generate(outputDir, "r4", FhirContext.forR4(), FHIRR4SpecUtils.getDefaultBaseDataTypeProfiles());
+        generate(outputDir, "r5", FhirContext.forR5(), FHIRR5SpecUtils.getDefaultBaseDataTypeProfiles());
+    }
+
+    private static void generate(Path outputDir, String fhirVersion, FhirContext fhirContext,
+                                 String[] baseDataTypeFiles) throws IOException {
+        // definitions are stored as is, the parser options are applied when they are read
+        FHIRDefinitionParser definitionParser = FHIRDefinitionParser.getInstance(fhirContext, false);
+
+        Map<String, IBaseResource> baseDataTypes = new LinkedHashMap<>();
+        for (String baseDataTypeFile : baseDataTypeFiles) {
+            try (InputStream inputStream = openResource(
+                    AbstractFHIRSpecParser.getBaseDataTypePath(fhirVersion, baseDataTypeFile))) {
+                baseDataTypes.put(baseDataTypeFile, definitionParser.parse(inputStream));
+            }
+        }
+        FHIRSearchParameterIndex searchParameterIndex;
+        try (InputStream inputStream = openResource(AbstractFHIRSpecParser.getSearchParametersPath(fhirVersion))) {
+            searchParameterIndex = FHIRSearchParameterIndex.scan(inputStream.readAllBytes());
+        }
+
+        Path artifact = outputDir.resolve(FHIRPrecompiledSpec.getArtifactPath(fhirVersion));
+        Files.createDirectories(artifact.getParent());
+        try (OutputStream outputStream = Files.newOutputStream(artifact)) {
+            FHIRPrecompiledSpec.write(outputStream, fhirVersion, baseDataTypes, searchParameterIndex,
+                    definitionParser);
+        }
+    }
+
+    private static InputStream openResource(String resourcePath) throws IOException {
+        InputStream inputStream = FHIRPrecompiledSpecGenerator.class.getClassLoader()
+                .getResourceAsStream(resourcePath);
+        if (inputStream == null) {
+            throw new IOException("File not found in the tool resources: " + resourcePath);
+        }
+        return inputStream;
+    }
+}
@@ -18,8 +18,11 @@
 
 package org.wso2.healthcare.codegen.tool.framework.fhir.core;
 
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRSpecificationData;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.versions.r4.FHIRR4SpecParser;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.versions.r4.common.FHIRR4SpecificationData;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.versions.r5.FHIRR5SpecParser;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.versions.r5.common.FHIRR5SpecificationData;
 
 public class FHIRSpecParserFactory {
     public static AbstractFHIRSpecParser getParser(String fhirVersion) {
@@ -31,4 +34,21 @@ public class FHIRSpecParserFactory {
             throw new IllegalArgumentException("Unsupported FHIR Version. Supported versions are: r4, r5");
         }
     }
+
+    /**
+     * Returns a parser populating the given specification data.
+     *
+     * @param fhirVersion       FHIR version, r4 or r5
+     * @param specificationData specification data of the FHIR version
+     * @return specification parser
+     */
+    public static AbstractFHIRSpecParser getParser(String fhirVersion, FHIRSpecificationData specificationData) {
+        if (fhirVersion.equalsIgnoreCase("r4")) {
+            return new FHIRR4SpecParser((FHIRR4SpecificationData) specificationData);
+        } else if (fhirVersion.equalsIgnoreCase("r5")) {
+            return new FHIRR5SpecParser((FHIRR5SpecificationData) specificationData);
+        } else {
+            throw new IllegalArgumentException("Unsupported FHIR Version. Supported versions are: r4, r5");
+        }
+    }
 }
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.org).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.healthcare.codegen.tool.framework.fhir.core;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRDefinitionCache;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRSpecificationData;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.config.FHIRToolConfig;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.config.IGConfig;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.config.ParserConfig;
+
+import java.lang.ref.WeakReference;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Registry of the specification data of FHIR tool runs. Runs with identical parser inputs share a single instance,
+ * while runs with different inputs get separate instances, so that they can be parsed and generated in parallel
+ * without their definitions being merged together.
+ * <p>
+ * A registered instance is only handed out once parsed, and is never parsed again. When the input files have changed
+ * since it was parsed, a copy of it is re-parsed, reading only the changed files, and replaces it in the registry,
+ * while the runs still generating from the previous instance keep reading it unchanged. Instances are only weakly
+ * held, and are released once no tool context refers to them.
+ */
+public class FHIRSpecificationDataRegistry {
+
+    private static final Log LOG = LogFactory.getLog(FHIRSpecificationDataRegistry.class);
+    private static final Map<String, RegisteredData> SPECIFICATION_DATA = new HashMap<>();
+    // runs of the same config are parsed one at a time, runs of different configs in parallel
+    private static final Map<String, Object> PARSE_LOCKS = new ConcurrentHashMap<>();
+
+    private FHIRSpecificationDataRegistry() {
+    }
+
+    /**
+     * Returns the parsed specification data of the given tool config, shared with the other runs of an identical
+     * config. An instance parsed from the same input files is returned as is. Otherwise a copy of the registered
+     * instance, or a new instance if there is none, is parsed with the given parser and published to the registry
+     * once parsed.
+     *
+     * @param fhirVersion FHIR version, r4 or r5
+     * @param toolConfig  FHIR tool config
+     * @param parser      parses the tool config into a new or copied instance
+     * @return parsed specification data, which should not be modified
+     */
+    public static FHIRSpecificationData getSpecificationData(String fhirVersion, FHIRToolConfig toolConfig,
+                                                             Consumer<FHIRSpecificationData> parser) {
+        String configKey = getConfigKey(fhirVersion, toolConfig);
+        String fingerprint = getInputFingerprint(fhirVersion, toolConfig);
+        synchronized (PARSE_LOCKS.computeIfAbsent(configKey, key -> new Object())) {
+            RegisteredData registeredData = getRegisteredData(configKey);
+            FHIRSpecificationData previousData = registeredData != null ? registeredData.get() : null;
+            if (previousData != null && fingerprint != null && fingerprint.equals(registeredData.fingerprint)) {
+                return previousData;
+            }
+            // the previous instance is copied rather than thawed, as other runs may still be reading it
+            FHIRSpecificationData specificationData = previousData != null ? previousData.copy() :
+                    FHIRToolContextFactory.createSpecificationData(fhirVersion);
+            parser.accept(specificationData);
+            specificationData.publish();
+            publish(configKey, new RegisteredData(specificationData, fingerprint));
+            return specificationData;
+        }
+    }
+
+    private static synchronized RegisteredData getRegisteredData(String configKey) {
+        SPECIFICATION_DATA.values().removeIf(registeredData -> registeredData.get() == null);
+        return SPECIFICATION_DATA.get(configKey);
+    }
+
+    private static synchronized void publish(String configKey, RegisteredData registeredData) {
+        SPECIFICATION_DATA.put(configKey, registeredData);
+    }
+
+    /**
+     * Returns the fingerprint of the input files, from their paths, sizes and last modified times rather than their
+     * content, or null if it cannot be calculated, in which case a registered instance is never reused.
+     */
+    private static String getInputFingerprint(String fhirVersion, FHIRToolConfig toolConfig) {
+        try {
+            return FHIRDefinitionCache.getInputFingerprint(toolConfig, fhirVersion.toLowerCase());
+        } catch (NoSuchAlgorithmException e) {
+            LOG.warn("Unable to fingerprint FHIR definition inputs, specification data is parsed again.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the key of the config properties which change the parsed specification data. Runtime options such as
+     * the parallelism and the cache directory are left out.
+     */
+    private static String getConfigKey(String fhirVersion, FHIRToolConfig toolConfig) {
+        // sorted so that the key doesn't depend on the config ordering
+        Map<String, String> igDirs = new TreeMap<>();
+        for (Map.Entry<String, IGConfig> igConfig : toolConfig.getIgConfigs().entrySet()) {
+            igDirs.put(igConfig.getKey(), igConfig.getValue().getDirPath());
+        }
+        ParserConfig parserConfig = toolConfig.getParserConfig();
+        return fhirVersion.toLowerCase() + "|" + toolConfig.getSpecBasePath() + "|" + igDirs +
+                "|" + new TreeSet<>(toolConfig.getTerminologyDirs()) +
+                "|" + new TreeSet<>(toolConfig.getDataTypeProfileDirs()) +
+                "|lazyDefinitions=" + parserConfig.isLazyDefinitions() +
+                "|definitionRetention=" + parserConfig.getDefinitionRetention() +
+                "|stripNarratives=" + parserConfig.isStripNarratives() +
+                "|lazyTerminologies=" + parserConfig.isLazyTerminologies() +
+                "|deterministicTerminologies=" + parserConfig.isDeterministicTerminologies();
+    }
+
+    /**
+     * Registered specification data with the fingerprint of the input files it was parsed from.
+     */
+    private static final class RegisteredData extends WeakReference<FHIRSpecificationData> {
+
+        private final String fingerprint;
+
+        private RegisteredData(FHIRSpecificationData specificationData, String fingerprint) {
+            super(specificationData);
+            this.fingerprint = fingerprint;
+        }
+    }
+}
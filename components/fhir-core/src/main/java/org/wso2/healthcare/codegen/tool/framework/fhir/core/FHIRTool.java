@@ -23,6 +23,8 @@ import org.wso2.healthcare.codegen.tool.framework.commons.core.AbstractTool;
 import org.wso2.healthcare.codegen.tool.framework.commons.core.Tool;
 import org.wso2.healthcare.codegen.tool.framework.commons.core.ToolContext;
 import org.wso2.healthcare.codegen.tool.framework.commons.exception.CodeGenException;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRSpecificationData;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.config.FHIRToolConfig;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -44,11 +46,12 @@ public class FHIRTool extends AbstractTool {
     }
 
     public void initialize(ToolConfig toolConfig) throws CodeGenException {
-        toolContext = FHIRToolContextFactory.getToolContext(fhirVersion);
+        // specification data is owned by this tool, and only shared with the tools of an identical config
+        FHIRSpecificationData specificationData = FHIRSpecificationDataRegistry.getSpecificationData(fhirVersion,
+                (FHIRToolConfig) toolConfig,
+                data -> FHIRSpecParserFactory.getParser(fhirVersion, data).parse(toolConfig));
+        toolContext = FHIRToolContextFactory.getToolContext(fhirVersion, specificationData);
         toolContext.setConfig(toolConfig);
-
-        AbstractFHIRSpecParser specParser = FHIRSpecParserFactory.getParser(fhirVersion);
-        specParser.parse(toolConfig);
     }
 
     public ToolContext getToolContext() {
@@ -18,22 +18,55 @@
 
 package org.wso2.healthcare.codegen.tool.framework.fhir.core;
 
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRSpecificationData;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.versions.r4.FHIRR4ToolContext;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.versions.r4.common.FHIRR4SpecificationData;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.versions.r5.FHIRR5ToolContext;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.versions.r5.common.FHIRR5SpecificationData;
 
 public class FHIRToolContextFactory {
+
+    /**
+     * Returns a tool context bound to the shared specification data of the FHIR version.
+     *
+     * @param fhirVersion FHIR version, r4 or r5
+     * @return tool context
+     * @deprecated the shared specification data is no longer filled by the FHIR tool, which parses into specification
+     * data of its own. Use {@link #getToolContext(String, FHIRSpecificationData)} with the parsed specification data
+     * instead.
+     */
+    @Deprecated
     public static AbstractFHIRToolContext getToolContext(String fhirVersion) {
+        switch (fhirVersion.toLowerCase()) {
+            case "r4": {
+                return getToolContext(fhirVersion, FHIRR4SpecificationData.getDataHolderInstance());
+            }
+            case "r5": {
+                return getToolContext(fhirVersion, FHIRR5SpecificationData.getDataHolderInstance());
+            }
+            default: {
+                throw new IllegalArgumentException("Unsupported FHIR version. Only R4 and R5 are supported.");
+            }
+        }
+    }
+
+    /**
+     * Returns a tool context bound to the given specification data.
+     *
+     * @param fhirVersion       FHIR version, r4 or r5
+     * @param specificationData specification data of the FHIR version
+     * @return tool context
+     */
+    public static AbstractFHIRToolContext getToolContext(String fhirVersion, FHIRSpecificationData specificationData) {
         switch (fhirVersion.toLowerCase()) {
             case "r4": {
                 FHIRR4ToolContext fhirR4ToolContext = new FHIRR4ToolContext();
-                fhirR4ToolContext.setSpecificationData(FHIRR4SpecificationData.getDataHolderInstance());
+                fhirR4ToolContext.setSpecificationData(specificationData);
                 return fhirR4ToolContext;
             }
             case "r5": {
                 FHIRR5ToolContext fhirr5ToolContext = new FHIRR5ToolContext();
-                fhirr5ToolContext.setSpecificationData(FHIRR5SpecificationData.getDataHolderInstance());
+                fhirr5ToolContext.setSpecificationData(specificationData);
                 return fhirr5ToolContext;
             }
             default: {
@@ -41,4 +74,24 @@ public class FHIRToolContextFactory {
             }
         }
     }
+
+    /**
+     * Creates empty specification data of the FHIR version, not shared with other tool contexts.
+     *
+     * @param fhirVersion FHIR version, r4 or r5
+     * @return specification data
+     */
+    public static FHIRSpecificationData createSpecificationData(String fhirVersion) {
+        switch (fhirVersion.toLowerCase()) {
+            case "r4": {
+                return new FHIRR4SpecificationData();
+            }
+            case "r5": {
+                return new FHIRR5SpecificationData();
+            }
+            default: {
+                throw new IllegalArgumentException("Unsupported FHIR version. Only R4 and R5 are supported.");
+            }
+        }
+    }
 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.org).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.healthcare.codegen.tool.framework.fhir.core.common;
+
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.model.FHIRResourceDef;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Registry of the resource definitions of all the loaded implementation guides by their canonical url, and by their
+ * versioned canonical, i.e. "url|version". Used to resolve references such as the base definition of a profile in
+ * constant time. A registry is built once per parse and not modified after it is published.
+ */
+public class FHIRCanonicalRegistry {
+
+    private static final char VERSION_SEPARATOR = '|';
+
+    private final Map<String, FHIRResourceDef> resourcesByUrl = new HashMap<>();
+    private final Map<String, FHIRResourceDef> resourcesByVersionedUrl = new HashMap<>();
+
+    /**
+     * Registers a resource definition. When several definitions share a canonical, the first registered one is
+     * resolved.
+     *
+     * @param url         canonical url
+     * @param version     business version, or null if the definition is not versioned
+     * @param resourceDef resource definition
+     */
+    public void register(String url, String version, FHIRResourceDef resourceDef) {
+        if (url == null) {
+            return;
+        }
+        resourcesByUrl.putIfAbsent(url, resourceDef);
+        if (version != null) {
+            resourcesByVersionedUrl.putIfAbsent(url + VERSION_SEPARATOR + version, resourceDef);
+        }
+    }
+
+    /**
+     * Resolves a canonical reference, which may be versioned as "url|version". A versioned reference falls back to
+     * the unversioned url if that version is not loaded.
+     *
+     * @param canonical canonical reference
+     * @return resource definition, or null if the reference is not loaded
+     */
+    public FHIRResourceDef resolve(String canonical) {
+        if (canonical == null) {
+            return null;
+        }
+        int separatorIndex = canonical.indexOf(VERSION_SEPARATOR);
+        if (separatorIndex < 0) {
+            return resourcesByUrl.get(canonical);
+        }
+        FHIRResourceDef resourceDef = resourcesByVersionedUrl.get(canonical);
+        return resourceDef != null ? resourceDef : resourcesByUrl.get(canonical.substring(0, separatorIndex));
+    }
+
+    public int size() {
+        return resourcesByUrl.size();
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.org).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.healthcare.codegen.tool.framework.fhir.core.common;
+
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.util.CardinalityTypes;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Cardinality of the elements of a structure definition snapshot by their FHIR path, computed once when the
+ * definition is loaded. The min and max cardinality of each element are packed into a single long, alongside the
+ * resolved {@link CardinalityTypes}. For a sliced element, the cardinality of the element being sliced is kept.
+ */
+public class FHIRCardinalityTable {
+
+    /**
+     * Max cardinality value of an element which can repeat without a limit, i.e. "*".
+     */
+    public static final int UNLIMITED = -1;
+
+    /**
+     * Cardinality value of an element which is not defined, or whose cardinality is not a valid number.
+     */
+    public static final int UNDEFINED = -2;
+
+    private static final CardinalityTypes[] CARDINALITY_TYPES = CardinalityTypes.values();
+
+    private final Map<String, Integer> indexes;
+    private final long[] cardinalities;
+    private final byte[] minTypes;
+    private final byte[] maxTypes;
+    private final String[] maxValues;
+
+    /**
+     * @param elements       elements of the snapshot, in their definition order
+     * @param pathFunction   returns the path of an element
+     * @param minFunction    returns the min cardinality of an element
+     * @param maxFunction    returns the max cardinality of an element
+     */
+    public <E> FHIRCardinalityTable(List<E> elements, Function<E, String> pathFunction, ToIntFunction<E> minFunction,
+                                    Function<E, String> maxFunction) {
+        Map<String, Integer> indexes = new HashMap<>(elements.size() * 4 / 3 + 1);
+        for (E element : elements) {
+            String path = pathFunction.apply(element);
+            if (path != null) {
+                indexes.putIfAbsent(path, indexes.size());
+            }
+        }
+        this.indexes = indexes;
+        this.cardinalities = new long[indexes.size()];
+        this.minTypes = new byte[indexes.size()];
+        this.maxTypes = new byte[indexes.size()];
+        this.maxValues = new String[indexes.size()];
+
+        int index = 0;
+        for (E element : elements) {
+            String path = pathFunction.apply(element);
+            if (path == null || indexes.get(path) != index) {
+                continue;
+            }
+            int min = minFunction.applyAsInt(element);
+            String max = maxFunction.apply(element);
+            cardinalities[index] = pack(min < 0 ? UNDEFINED : min, parseMax(max));
+            minTypes[index] = (byte) CardinalityTypes.fromValue("min", String.valueOf(min)).ordinal();
+            maxTypes[index] = (byte) (max != null && !max.isBlank() ?
+                    CardinalityTypes.fromValue("max", max) : CardinalityTypes.INVALID).ordinal();
+            maxValues[index] = max;
+            index++;
+        }
+    }
+
+    /**
+     * Returns whether an element of the given path is defined.
+     *
+     * @param fhirPath FHIR path of the element
+     * @return true if the element is defined
+     */
+    public boolean contains(String fhirPath) {
+        return indexes.containsKey(fhirPath);
+    }
+
+    /**
+     * Returns the min cardinality of the element of the given path.
+     *
+     * @param fhirPath FHIR path of the element
+     * @return min cardinality, or {@link #UNDEFINED}
+     */
+    public int getMin(String fhirPath) {
+        Integer index = indexes.get(fhirPath);
+        return index != null ? (int) (cardinalities[index] >> 32) : UNDEFINED;
+    }
+
+    /**
+     * Returns the max cardinality of the element of the given path.
+     *
+     * @param fhirPath FHIR path of the element
+     * @return max cardinality, {@link #UNLIMITED} or {@link #UNDEFINED}
+     */
+    public int getMax(String fhirPath) {
+        Integer index = indexes.get(fhirPath);
+        return index != null ? (int) cardinalities[index] : UNDEFINED;
+    }
+
+    /**
+     * Returns the max cardinality of the element of the given path, as defined in the element.
+     *
+     * @param fhirPath FHIR path of the element
+     * @return max cardinality value which is a number or *, or null if the element is not defined
+     */
+    public String getMaxValue(String fhirPath) {
+        Integer index = indexes.get(fhirPath);
+        return index != null ? maxValues[index] : null;
+    }
+
+    public CardinalityTypes getMinType(String fhirPath) {
+        Integer index = indexes.get(fhirPath);
+        return index != null ? CARDINALITY_TYPES[minTypes[index]] : CardinalityTypes.INVALID;
+    }
+
+    public CardinalityTypes getMaxType(String fhirPath) {
+        Integer index = indexes.get(fhirPath);
+        return index != null ? CARDINALITY_TYPES[maxTypes[index]] : CardinalityTypes.INVALID;
+    }
+
+    private static long pack(int min, int max) {
+        return ((long) min << 32) | (max & 0xFFFFFFFFL);
+    }
+
+    private static int parseMax(String max) {
+        if ("*".equals(max)) {
+            return UNLIMITED;
+        }
+        try {
+            int value = max != null ? Integer.parseInt(max) : UNDEFINED;
+            return value >= 0 ? value : UNDEFINED;
+        } catch (NumberFormatException e) {
+            return UNDEFINED;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.org).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.healthcare.codegen.tool.framework.fhir.core.common;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Transitive closure of the concept hierarchy of a code system. Concepts are numbered in the depth first order of the
+ * hierarchy, so that the descendants of a concept are the concepts numbered after it up to the end of its subtree.
+ * Subsumption is answered by comparing these intervals, and the descendants of a concept are a contiguous range.
+ * <p>
+ * In a polyhierarchy, a concept nested in more than one concept is numbered where it first appears, and linked to the
+ * other concepts it is nested in. Queries which miss the intervals follow these links, so they only cost more for the
+ * code systems which have them.
+ * <p>
+ * A closure is built by visiting the concepts depth first with {@link #beginConcept(String)} and
+ * {@link #endConcept()}, after which it is not modified.
+ */
+public class FHIRCodeSystemClosure {
+
+    private static final int NO_PARENT = -1;
+
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private final List<String> codes = new ArrayList<>();
+    private final Deque<Integer> openConcepts = new ArrayDeque<>();
+    private int[] parents = new int[16];
+    private int[] subtreeEnds = new int[16];
+    // links of the concepts repeated in other concepts, which the intervals don't cover
+    private final Map<Integer, List<Integer>> additionalParents = new HashMap<>();
+    private final Map<Integer, List<Integer>> additionalChildren = new HashMap<>();
+
+    /**
+     * Starts a concept nested in the concept started last and not yet ended. A code seen before is not added again,
+     * but is linked to the concept it is nested in again, and its nested concepts should be skipped.
+     *
+     * @param code concept code
+     * @return true if the concept is added and should be ended with {@link #endConcept()}
+     */
+    public boolean beginConcept(String code) {
+        if (code == null) {
+            return false;
+        }
+        Integer existingIndex = indexes.get(code);
+        if (existingIndex != null) {
+            if (!openConcepts.isEmpty()) {
+                addParent(existingIndex, openConcepts.peek());
+            }
+            return false;
+        }
+        int index = codes.size();
+        if (index == parents.length) {
+            parents = Arrays.copyOf(parents, index * 2);
+            subtreeEnds = Arrays.copyOf(subtreeEnds, index * 2);
+        }
+        indexes.put(code, index);
+        codes.add(code);
+        parents[index] = openConcepts.isEmpty() ? NO_PARENT : openConcepts.peek();
+        openConcepts.push(index);
+        return true;
+    }
+
+    /**
+     * Ends the concept started last, once all its nested concepts are visited.
+     */
+    public void endConcept() {
+        subtreeEnds[openConcepts.pop()] = codes.size() - 1;
+    }
+
+    private void addParent(int index, int parent) {
+        if (parent == index || parent == parents[index]) {
+            return;
+        }
+        List<Integer> parentIndexes = additionalParents.computeIfAbsent(index, key -> new ArrayList<>());
+        if (!parentIndexes.contains(parent)) {
+            parentIndexes.add(parent);
+            additionalChildren.computeIfAbsent(parent, key -> new ArrayList<>()).add(index);
+        }
+    }
+
+    public boolean contains(String code) {
+        return code != null && indexes.containsKey(code);
+    }
+
+    public int size() {
+        return codes.size();
+    }
+
+    /**
+     * Returns whether a concept is subsumed by another concept, i.e. is one of its descendants.
+     *
+     * @param code         concept code
+     * @param ancestorCode code of the potential ancestor
+     * @param inclusive    whether a concept is subsumed by itself
+     * @return true if the concept is subsumed, false if it is not or either concept is not in the code system
+     */
+    public boolean isSubsumedBy(String code, String ancestorCode, boolean inclusive) {
+        Integer index = code != null ? indexes.get(code) : null;
+        Integer ancestorIndex = ancestorCode != null ? indexes.get(ancestorCode) : null;
+        if (index == null || ancestorIndex == null) {
+            return false;
+        }
+        if (index.equals(ancestorIndex)) {
+            return inclusive;
+        }
+        if (ancestorIndex < index && index <= subtreeEnds[ancestorIndex]) {
+            return true;
+        }
+        return !additionalParents.isEmpty() && getAncestorIndexes(index).contains(ancestorIndex);
+    }
+
+    /**
+     * Returns the descendants of a concept in the depth first order of the hierarchy, followed by the descendants
+     * repeated from other concepts.
+     *
+     * @param code      concept code
+     * @param inclusive whether the concept itself is included
+     * @return unmodifiable descendant codes, empty if the concept is not in the code system
+     */
+    public List<String> getDescendants(String code, boolean inclusive) {
+        Integer index = code != null ? indexes.get(code) : null;
+        if (index == null) {
+            return Collections.emptyList();
+        }
+        if (additionalChildren.isEmpty()) {
+            return Collections.unmodifiableList(codes.subList(inclusive ? index : index + 1, subtreeEnds[index] + 1));
+        }
+        Set<Integer> descendantIndexes = new LinkedHashSet<>();
+        Deque<Integer> pendingSubtrees = new ArrayDeque<>();
+        pendingSubtrees.add(index);
+        while (!pendingSubtrees.isEmpty()) {
+            int subtree = pendingSubtrees.poll();
+            for (int i = subtree; i <= subtreeEnds[subtree]; i++) {
+                if (descendantIndexes.add(i)) {
+                    pendingSubtrees.addAll(additionalChildren.getOrDefault(i, Collections.emptyList()));
+                }
+            }
+        }
+        List<String> descendants = new ArrayList<>(descendantIndexes.size());
+        for (int descendantIndex : descendantIndexes) {
+            if (inclusive || descendantIndex != index) {
+                descendants.add(codes.get(descendantIndex));
+            }
+        }
+        return Collections.unmodifiableList(descendants);
+    }
+
+    /**
+     * Returns the ancestors of a concept, starting from its parents, nearest first.
+     *
+     * @param code concept code
+     * @return ancestor codes, empty if the concept is a root or not in the code system
+     */
+    public List<String> getAncestors(String code) {
+        Integer index = code != null ? indexes.get(code) : null;
+        if (index == null) {
+            return Collections.emptyList();
+        }
+        List<String> ancestors = new ArrayList<>();
+        for (int ancestorIndex : getAncestorIndexes(index)) {
+            ancestors.add(codes.get(ancestorIndex));
+        }
+        return ancestors;
+    }
+
+    /**
+     * Returns the ancestors of a concept breadth first, following the parent of each concept and the concepts it is
+     * repeated in. Cycles of repeated concepts are visited once.
+     */
+    private Set<Integer> getAncestorIndexes(int index) {
+        Set<Integer> ancestorIndexes = new LinkedHashSet<>();
+        Set<Integer> visited = new HashSet<>();
+        Deque<Integer> pending = new ArrayDeque<>();
+        pending.add(index);
+        visited.add(index);
+        while (!pending.isEmpty()) {
+            int current = pending.poll();
+            List<Integer> currentParents = new ArrayList<>();
+            if (parents[current] != NO_PARENT) {
+                currentParents.add(parents[current]);
+            }
+            currentParents.addAll(additionalParents.getOrDefault(current, Collections.emptyList()));
+            for (int parent : currentParents) {
+                if (visited.add(parent)) {
+                    ancestorIndexes.add(parent);
+                    pending.add(parent);
+                }
+            }
+        }
+        return ancestorIndexes;
+    }
+
+    /**
+     * Returns the parent of a concept in the hierarchy, where the concept first appears.
+     *
+     * @param code concept code
+     * @return parent code, or null if the concept is a root or not in the code system
+     */
+    public String getParent(String code) {
+        Integer index = code != null ? indexes.get(code) : null;
+        return index != null && parents[index] != NO_PARENT ? codes.get(parents[index]) : null;
+    }
+}
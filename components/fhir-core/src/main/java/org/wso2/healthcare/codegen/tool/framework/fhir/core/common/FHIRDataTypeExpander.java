@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.org).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.healthcare.codegen.tool.framework.fhir.core.common;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Expands complex data types into the elements of their data type definitions, recursively, e.g. Identifier into
+ * Identifier.period.start through Period. Expansion of a recursive type stops where the type occurs again within its
+ * own expansion, e.g. at Identifier.assigner.identifier, and at the given depth. Expansions are memoized, so every
+ * type or element path is expanded once per depth and shared by all the callers.
+ *
+ * @param <E> element definition type of the FHIR version
+ */
+public class FHIRDataTypeExpander<E> {
+
+    /**
+     * Expansion depth used when no depth is requested.
+     */
+    public static final int DEFAULT_MAX_DEPTH = 5;
+
+    private final Function<String, FHIRElementTree<E>> treeResolver;
+    private final Function<E, List<String>> typesFunction;
+    private final Map<String, List<ExpandedElement<E>>> expansions = new ConcurrentHashMap<>();
+
+    /**
+     * @param treeResolver  returns the element tree of a complex data type, or null for primitive and unknown types
+     * @param typesFunction returns the type codes of an element
+     */
+    public FHIRDataTypeExpander(Function<String, FHIRElementTree<E>> treeResolver,
+                                Function<E, List<String>> typesFunction) {
+        this.treeResolver = treeResolver;
+        this.typesFunction = typesFunction;
+    }
+
+    /**
+     * Expands a data type, or the element of the given path of a data type, up to the default depth.
+     *
+     * @param typeOrPath data type name, e.g. Identifier, or element path, e.g. Identifier.assigner
+     * @return expanded elements in depth first order, empty for primitive and unknown types
+     */
+    public List<ExpandedElement<E>> expand(String typeOrPath) {
+        return expand(typeOrPath, DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * Expands a data type, or the element of the given path of a data type, up to the given depth. The elements of
+     * the data type itself are at depth 1.
+     *
+     * @param typeOrPath data type name, e.g. Identifier, or element path, e.g. Identifier.assigner
+     * @param maxDepth   depth up to which the elements are expanded
+     * @return expanded elements in depth first order, empty for primitive and unknown types
+     */
+    public List<ExpandedElement<E>> expand(String typeOrPath, int maxDepth) {
+        return expansions.computeIfAbsent(typeOrPath + '|' + maxDepth, key -> {
+            int separatorIndex = typeOrPath.indexOf('.');
+            String typeName = separatorIndex >= 0 ? typeOrPath.substring(0, separatorIndex) : typeOrPath;
+            FHIRElementTree<E> tree = treeResolver.apply(typeName);
+            FHIRElementTree.Node<E> node = tree == null ? null :
+                    separatorIndex >= 0 ? tree.getNode(typeOrPath) : tree.getRoot();
+            if (node == null) {
+                return Collections.emptyList();
+            }
+            List<ExpandedElement<E>> elements = new ArrayList<>();
+            Deque<String> expandingTypes = new ArrayDeque<>();
+            expandingTypes.push(typeName);
+            if (separatorIndex >= 0 && node.getChildren().isEmpty()) {
+                // an element of a complex type is expanded through its type
+                for (String type : typesFunction.apply(node.getElement())) {
+                    expandType(type, typeOrPath, 1, maxDepth, expandingTypes, elements);
+                }
+            } else {
+                expandChildren(node, typeOrPath, 1, maxDepth, expandingTypes, elements);
+            }
+            return Collections.unmodifiableList(elements);
+        });
+    }
+
+    /**
+     * Clears the memoized expansions, e.g. once the data type definitions are changed.
+     */
+    public void clear() {
+        expansions.clear();
+    }
+
+    private void expandChildren(FHIRElementTree.Node<E> node, String path, int depth, int maxDepth,
+                                Deque<String> expandingTypes, List<ExpandedElement<E>> elements) {
+        for (FHIRElementTree.Node<E> child : node.getChildren()) {
+            List<String> types = typesFunction.apply(child.getElement());
+            if (!child.getChildren().isEmpty()) {
+                // backbone elements are expanded through their own children
+                String childPath = path + '.' + child.getName();
+                elements.add(new ExpandedElement<>(childPath, child, null, depth, false, false));
+                if (depth < maxDepth) {
+                    expandChildren(child, childPath, depth + 1, maxDepth, expandingTypes, elements);
+                }
+                continue;
+            }
+            for (String type : types) {
+                String childPath = path + '.' + (child.isChoice() && type != null && !type.isEmpty() ?
+                        child.getBaseName() + Character.toUpperCase(type.charAt(0)) + type.substring(1) :
+                        child.getName());
+                boolean expandable = type != null && treeResolver.apply(type) != null;
+                boolean recursive = expandable && expandingTypes.contains(type);
+                boolean truncated = expandable && !recursive && depth >= maxDepth;
+                elements.add(new ExpandedElement<>(childPath, child, type, depth, recursive, truncated));
+                if (expandable && !recursive && !truncated) {
+                    expandType(type, childPath, depth + 1, maxDepth, expandingTypes, elements);
+                }
+            }
+        }
+    }
+
+    private void expandType(String type, String path, int depth, int maxDepth, Deque<String> expandingTypes,
+                            List<ExpandedElement<E>> elements) {
+        FHIRElementTree<E> tree = type != null ? treeResolver.apply(type) : null;
+        if (tree == null || tree.getRoot() == null) {
+            return;
+        }
+        expandingTypes.push(type);
+        try {
+            expandChildren(tree.getRoot(), path, depth, maxDepth, expandingTypes, elements);
+        } finally {
+            expandingTypes.pop();
+        }
+    }
+
+    /**
+     * Element of an expanded data type.
+     *
+     * @param <E> element definition type of the FHIR version
+     */
+    public static class ExpandedElement<E> {
+
+        private final String path;
+        private final FHIRElementTree.Node<E> node;
+        private final String type;
+        private final int depth;
+        private final boolean recursive;
+        private final boolean truncated;
+
+        private ExpandedElement(String path, FHIRElementTree.Node<E> node, String type, int depth, boolean recursive,
+                                boolean truncated) {
+            this.path = path;
+            this.node = node;
+            this.type = type;
+            this.depth = depth;
+            this.recursive = recursive;
+            this.truncated = truncated;
+        }
+
+        /**
+         * Returns the path of the element from the expanded type, with choice types expanded, e.g.
+         * Identifier.assigner.identifier or Extension.valueString.
+         *
+         * @return expanded path
+         */
+        public String getPath() {
+            return path;
+        }
+
+        public FHIRElementTree.Node<E> getNode() {
+            return node;
+        }
+
+        public E getElement() {
+            return node.getElement();
+        }
+
+        /**
+         * Returns the type of the element this entry is expanded for.
+         *
+         * @return type code, or null for a backbone element
+         */
+        public String getType() {
+            return type;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * Returns whether the type of the element is already being expanded by an enclosing element, in which case
+         * it is not expanded again.
+         *
+         * @return true if the element is not expanded due to recursion
+         */
+        public boolean isRecursive() {
+            return recursive;
+        }
+
+        /**
+         * Returns whether the element is a complex type which is not expanded as the depth limit is reached.
+         *
+         * @return true if the element is not expanded due to the depth limit
+         */
+        public boolean isTruncated() {
+            return truncated;
+        }
+    }
+}
@@ -0,0 +1,443 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.org).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.healthcare.codegen.tool.framework.fhir.core.common;
+
+import ca.uhn.fhir.context.FhirContext;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.config.FHIRToolConfig;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.config.IGConfig;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent warm start cache of parsed FHIR specification data.
+ * <p>
+ * The parsed definitions are stored against the file (or bundled resource) they were read from, together with the
+ * resolved terminologies. The parsers replay the cached definitions through the same merge logic as a cold run, so the
+ * populated specification data is identical. Each file entry records the size, last modified time and content hash of
+ * its file, and is only served while the file still has the same content, so a changed file only invalidates its own
+ * entry. Values derived from many files, such as the resolved terminologies, are stored with a hash of their inputs.
+ * The snapshot as a whole is only discarded when its fingerprint, calculated over the cache format and the library
+ * versions, doesn't match. Parser options changing the parsed definitions are kept in separate snapshots.
+ */
+public class FHIRDefinitionCache {
+
+    private static final Log LOG = LogFactory.getLog(FHIRDefinitionCache.class);
+
+    // Bump when the layout of the cached values or the logic producing them changes.
+    private static final String CACHE_FORMAT_VERSION = "4";
+    private static final String SNAPSHOT_EXTENSION = ".snapshot";
+    private static final ObjectInputFilter SNAPSHOT_FILTER = ObjectInputFilter.Config.createFilter(
+            "maxdepth=500;maxrefs=50000000;maxbytes=1073741824;" + FHIRPrecompiledSpec.JDK_TYPE_PATTERN +
+                    ";org.hl7.fhir.**;ca.uhn.fhir.**;" + FHIRDefinitionCache.class.getName() + "$*;" +
+                    FHIRTerminologyStore.class.getName() + ";" + FHIRTerminologyStore.class.getName() + "$*;!*");
+
+    private static final FHIRDefinitionCache DISABLED = new FHIRDefinitionCache(null, null);
+
+    private final Path snapshotFile;
+    private final String fingerprint;
+    private final Map<String, Serializable> entries = new ConcurrentHashMap<>();
+    // paths of the file entries already checked against their files in this run
+    private final Set<String> validatedPaths = ConcurrentHashMap.newKeySet();
+    private volatile boolean modified;
+
+    private FHIRDefinitionCache(Path snapshotFile, String fingerprint) {
+        this.snapshotFile = snapshotFile;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Returns a cache which never holds any entries.
+     *
+     * @return disabled cache
+     */
+    public static FHIRDefinitionCache disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Opens the warm start cache for the given tool config. A disabled cache is returned if no cache directory is
+     * configured or the fingerprint of the snapshot cannot be calculated.
+     *
+     * @param toolConfig  FHIR tool config
+     * @param fhirVersion FHIR version of the parsed specification
+     * @return cache loaded with the snapshot of the current config, or an empty cache
+     */
+    public static FHIRDefinitionCache open(FHIRToolConfig toolConfig, String fhirVersion) {
+        String cacheDir = toolConfig.getParserConfig().getCacheDir();
+        if (cacheDir == null || cacheDir.isEmpty()) {
+            return DISABLED;
+        }
+
+        String fingerprint;
+        String configKey;
+        try {
+            Map<String, File> inputDirs = getInputDirs(toolConfig);
+            // parser options changing the parsed definitions are kept in separate snapshots
+            configKey = digest(fhirVersion + "|" + toolConfig.getSpecBasePath() + "|" + inputDirs.keySet() +
+                    "|stripNarratives=" + toolConfig.getParserConfig().isStripNarratives() +
+                    "|deterministicTerminologies=" + toolConfig.getParserConfig().isDeterministicTerminologies());
+            fingerprint = calculateFingerprint(fhirVersion);
+        } catch (NoSuchAlgorithmException e) {
+            LOG.warn("Unable to fingerprint the FHIR definition cache, warm start cache is disabled.", e);
+            return DISABLED;
+        }
+
+        FHIRDefinitionCache cache = new FHIRDefinitionCache(
+                Path.of(cacheDir, fhirVersion + "-" + configKey + SNAPSHOT_EXTENSION), fingerprint);
+        cache.load();
+        return cache;
+    }
+
+    /**
+     * Calculates a cheap fingerprint of the inputs of the given tool config, over the path, size and last modified
+     * time of every input file, without reading them. A file rewritten with the same size within the timestamp
+     * resolution is not detected, as with the definition manifests.
+     *
+     * @param toolConfig  FHIR tool config
+     * @param fhirVersion FHIR version of the parsed specification
+     * @return fingerprint of the inputs
+     * @throws NoSuchAlgorithmException if the digest algorithm is not available
+     */
+    public static String getInputFingerprint(FHIRToolConfig toolConfig, String fhirVersion)
+            throws NoSuchAlgorithmException {
+        MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+        update(messageDigest, fhirVersion);
+        for (Map.Entry<String, File> inputDir : getInputDirs(toolConfig).entrySet()) {
+            update(messageDigest, inputDir.getKey());
+            for (File file : listInputFiles(inputDir.getValue())) {
+                update(messageDigest, file.getAbsolutePath());
+                update(messageDigest, file.length() + ":" + file.lastModified());
+            }
+        }
+        return HexFormat.of().formatHex(messageDigest.digest());
+    }
+
+    public boolean isEnabled() {
+        return snapshotFile != null;
+    }
+
+    /**
+     * Returns whether a value is cached for the given key of a bundled resource. A cached entry may still be empty if
+     * the source was skipped in the run which populated the cache.
+     *
+     * @param key cache key
+     * @return true if the key is cached
+     */
+    public boolean contains(String key) {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * Returns the value cached for the given key.
+     *
+     * @param key cache key
+     * @return cached value or null if the key is not cached or was recorded as empty
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Serializable> T get(String key) {
+        Serializable value = entries.get(key);
+        return value == Marker.EMPTY ? null : (T) value;
+    }
+
+    /**
+     * Caches the value for the given key of a bundled resource. Null values are recorded as empty entries, so that
+     * skipped sources are not inspected again in a warm run.
+     *
+     * @param key   cache key
+     * @param value value to cache
+     */
+    public void put(String key, Serializable value) {
+        if (!isEnabled()) {
+            return;
+        }
+        entries.put(key, value == null ? Marker.EMPTY : value);
+        modified = true;
+    }
+
+    /**
+     * Returns whether a value is cached for the given file. Files with the same size and last modified time as when
+     * they were cached are trusted without reading them, otherwise the content hash decides, and the entry of a
+     * changed file is dropped.
+     *
+     * @param file definition file
+     * @return true if a value of the current file content is cached
+     */
+    public boolean contains(File file) {
+        String path = file.getAbsolutePath();
+        if (!(entries.get(path) instanceof Entry entry)) {
+            return false;
+        }
+        if (validatedPaths.contains(path)) {
+            return true;
+        }
+        if (entry.size != file.length() || entry.lastModified != file.lastModified()) {
+            String hash = FHIRDefinitionManifest.hash(file);
+            if (hash == null || !hash.equals(entry.hash)) {
+                entries.remove(path);
+                modified = true;
+                return false;
+            }
+            // touched, but the content is the same
+            entries.put(path, new Entry(hash, file.length(), file.lastModified(), entry.value));
+            modified = true;
+        }
+        validatedPaths.add(path);
+        return true;
+    }
+
+    /**
+     * Returns the value cached for the given file.
+     *
+     * @param file definition file
+     * @return cached value or null if no value of the current file content is cached or it was recorded as empty
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Serializable> T get(File file) {
+        if (!contains(file)) {
+            return null;
+        }
+        Serializable value = ((Entry) entries.get(file.getAbsolutePath())).value;
+        return value == Marker.EMPTY ? null : (T) value;
+    }
+
+    /**
+     * Caches the value parsed from the given file. The content hash of the file is calculated when the snapshot is
+     * stored. Null values are recorded as empty entries, so that skipped files are not inspected again in a warm run.
+     *
+     * @param file  definition file
+     * @param value value to cache
+     */
+    public void put(File file, Serializable value) {
+        if (!isEnabled()) {
+            return;
+        }
+        String path = file.getAbsolutePath();
+        entries.put(path, new Entry(null, file.length(), file.lastModified(), value == null ? Marker.EMPTY : value));
+        validatedPaths.add(path);
+        modified = true;
+    }
+
+    /**
+     * Returns the value cached for the given key, if it was derived from the same inputs.
+     *
+     * @param key       cache key
+     * @param inputHash hash of the inputs the value is derived from
+     * @return cached value or null if no value of the given inputs is cached
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Serializable> T get(String key, String inputHash) {
+        if (inputHash != null && entries.get(key) instanceof Entry entry && inputHash.equals(entry.hash)) {
+            return (T) entry.value;
+        }
+        return null;
+    }
+
+    /**
+     * Caches the value for the given key, replacing a value derived from other inputs.
+     *
+     * @param key       cache key
+     * @param inputHash hash of the inputs the value is derived from
+     * @param value     value to cache
+     */
+    public void put(String key, String inputHash, Serializable value) {
+        if (!isEnabled() || inputHash == null || value == null) {
+            return;
+        }
+        entries.put(key, new Entry(inputHash, -1, -1, value));
+        modified = true;
+    }
+
+    /**
+     * Writes the cache snapshot to the cache directory if new entries were added since it was loaded.
+     */
+    public void store() {
+        if (!isEnabled() || !modified) {
+            return;
+        }
+        try {
+            prepareFileEntries();
+            Files.createDirectories(snapshotFile.getParent());
+            Path tempFile = Files.createTempFile(snapshotFile.getParent(), snapshotFile.getFileName().toString(),
+                    ".tmp");
+            try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(tempFile));
+                 ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream)) {
+                objectOutputStream.writeUTF(fingerprint);
+                objectOutputStream.writeObject(new TreeMap<>(entries));
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(tempFile);
+                throw e;
+            }
+            Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING);
+            modified = false;
+            LOG.debug("FHIR definition cache stored: " + snapshotFile);
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Error occurred while storing the FHIR definition cache: " + snapshotFile, e);
+        }
+    }
+
+    /**
+     * Drops the entries of files which no longer exist, and calculates the content hash of the newly cached files.
+     */
+    private void prepareFileEntries() {
+        for (Map.Entry<String, Serializable> cacheEntry : entries.entrySet()) {
+            if (!(cacheEntry.getValue() instanceof Entry entry) || entry.size < 0) {
+                continue;
+            }
+            File file = new File(cacheEntry.getKey());
+            if (!file.isFile()) {
+                entries.remove(cacheEntry.getKey());
+            } else if (entry.hash == null) {
+                String hash = FHIRDefinitionManifest.hash(file);
+                if (hash == null) {
+                    entries.remove(cacheEntry.getKey());
+                } else {
+                    cacheEntry.setValue(new Entry(hash, entry.size, entry.lastModified, entry.value));
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void load() {
+        if (!Files.isRegularFile(snapshotFile)) {
+            return;
+        }
+        try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(snapshotFile));
+             ObjectInputStream objectInputStream = new ObjectInputStream(inputStream)) {
+            objectInputStream.setObjectInputFilter(SNAPSHOT_FILTER);
+            if (!fingerprint.equals(objectInputStream.readUTF())) {
+                LOG.info("FHIR definition cache format has changed, rebuilding the warm start cache.");
+                return;
+            }
+            entries.putAll((Map<String, Serializable>) objectInputStream.readObject());
+            LOG.info("Loaded " + entries.size() + " FHIR definitions from the warm start cache.");
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            LOG.warn("Discarding unreadable FHIR definition cache: " + snapshotFile, e);
+            entries.clear();
+        }
+    }
+
+    private static Map<String, File> getInputDirs(FHIRToolConfig toolConfig) {
+        // sorted so that the fingerprint doesn't depend on the config map ordering
+        Map<String, File> inputDirs = new TreeMap<>();
+        String specBasePath = toolConfig.getSpecBasePath();
+        for (Map.Entry<String, IGConfig> igConfig : toolConfig.getIgConfigs().entrySet()) {
+            String igDirPath = igConfig.getValue().getDirPath();
+            String igPath = igDirPath.contains(specBasePath) ? igDirPath : specBasePath + igDirPath;
+            inputDirs.put("ig:" + igConfig.getKey(), new File(igPath));
+        }
+        for (String terminologyDir : toolConfig.getTerminologyDirs()) {
+            inputDirs.put("terminology:" + terminologyDir, new File(specBasePath + terminologyDir));
+        }
+        for (String dataTypeProfileDir : toolConfig.getDataTypeProfileDirs()) {
+            inputDirs.put("dataType:" + dataTypeProfileDir, new File(specBasePath + dataTypeProfileDir));
+        }
+        return inputDirs;
+    }
+
+    /**
+     * Calculates the fingerprint of the snapshot, over the cache format and the versions of the libraries producing
+     * the cached values. The inputs are validated per entry instead.
+     */
+    private static String calculateFingerprint(String fhirVersion) throws NoSuchAlgorithmException {
+        MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+        update(messageDigest, CACHE_FORMAT_VERSION);
+        update(messageDigest, fhirVersion);
+        update(messageDigest, String.valueOf(FhirContext.class.getPackage().getImplementationVersion()));
+        update(messageDigest, String.valueOf(FHIRDefinitionCache.class.getPackage().getImplementationVersion()));
+        return HexFormat.of().formatHex(messageDigest.digest());
+    }
+
+    /**
+     * Lists the definition files of an input directory in name order. An implementation guide may also be loaded from
+     * a package tarball, which is the only input file then.
+     */
+    private static File[] listInputFiles(File inputDir) {
+        File[] files = inputDir.isFile() ? new File[]{inputDir} : inputDir.listFiles(
+                file -> file.isFile() && file.getName().toLowerCase().endsWith(".json") &&
+                        !FHIRPackageIndex.GENERATED_INDEX_FILE.equals(file.getName()));
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files);
+        return files;
+    }
+
+    private static String digest(String value) throws NoSuchAlgorithmException {
+        MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+        update(messageDigest, value);
+        return HexFormat.of().formatHex(messageDigest.digest(), 0, 8);
+    }
+
+    private static void update(MessageDigest messageDigest, String value) {
+        messageDigest.update(value.getBytes(StandardCharsets.UTF_8));
+        messageDigest.update((byte) 0);
+    }
+
+    /**
+     * Cached value together with the inputs it was derived from. The size and last modified time are only recorded
+     * for values parsed from a single file, and are -1 otherwise.
+     */
+    private static final class Entry implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String hash;
+        private final long size;
+        private final long lastModified;
+        private final Serializable value;
+
+        private Entry(String hash, long size, long lastModified, Serializable value) {
+            this.hash = hash;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Placeholder for sources which didn't yield a value.
+     */
+    private enum Marker {
+        EMPTY
+    }
+}
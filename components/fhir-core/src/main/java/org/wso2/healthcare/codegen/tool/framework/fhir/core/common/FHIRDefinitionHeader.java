@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.org).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.healthcare.codegen.tool.framework.fhir.core.common;
+
+/**
+ * Top level properties of a FHIR definition, read without parsing the whole definition.
+ */
+public class FHIRDefinitionHeader {
+
+    private String resourceType;
+    private String id;
+    private String url;
+    private String version;
+    private String name;
+    private String type;
+    private String kind;
+    private String baseDefinition;
+
+    public String getResourceType() {
+        return resourceType;
+    }
+
+    void setResourceType(String resourceType) {
+        this.resourceType = resourceType;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    void setId(String id) {
+        this.id = id;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    void setVersion(String version) {
+        this.version = version;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    void setName(String name) {
+        this.name = name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    void setType(String type) {
+        this.type = type;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    void setKind(String kind) {
+        this.kind = kind;
+    }
+
+    public String getBaseDefinition() {
+        return baseDefinition;
+    }
+
+    void setBaseDefinition(String baseDefinition) {
+        this.baseDefinition = baseDefinition;
+    }
+
+    /**
+     * Returns whether all the structure definition properties used to index a profile are read. The version is
+     * optional, and precedes the base definition in FHIR JSON.
+     *
+     * @return true if the header is complete
+     */
+    boolean isComplete() {
+        return resourceType != null && id != null && url != null && name != null && type != null && kind != null &&
+                baseDefinition != null;
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.org).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.healthcare.codegen.tool.framework.fhir.core.common;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Manifest of the definition files parsed from a directory. Each entry records the path, size, last modified time and
+ * content hash of a file together with the definition parsed from it, so that a re-parse only needs to read the files
+ * which were added, changed or removed since.
+ */
+public class FHIRDefinitionManifest {
+
+    private static final Log LOG = LogFactory.getLog(FHIRDefinitionManifest.class);
+
+    // entries are kept in the listing order of the directory, which decides the merge precedence
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Returns a copy of this manifest, which is updated by a re-parse without affecting this manifest. The parsed
+     * definitions are shared, as they are not modified once parsed.
+     *
+     * @return copied manifest
+     */
+    public FHIRDefinitionManifest copy() {
+        FHIRDefinitionManifest manifest = new FHIRDefinitionManifest();
+        for (Entry entry : entries.values()) {
+            manifest.entries.put(entry.path,
+                    new Entry(entry.path, entry.size, entry.lastModified, entry.hash, entry.definition));
+        }
+        return manifest;
+    }
+
+    /**
+     * Returns the manifest entries in the listing order of the directory.
+     *
+     * @return manifest entries
+     */
+    public Collection<Entry> getEntries() {
+        return Collections.unmodifiableCollection(entries.values());
+    }
+
+    /**
+     * Compares the given directory listing with the manifest. Files with the same size and last modified time are
+     * treated as unchanged without reading them, otherwise the content hash decides.
+     *
+     * @param files current definition files of the directory
+     * @return changes since the manifest was last updated
+     */
+    public Changes diff(File[] files) {
+        List<File> modifiedFiles = new ArrayList<>();
+        List<IBaseResource> staleDefinitions = new ArrayList<>();
+        Set<String> currentPaths = new HashSet<>();
+
+        for (File file : files) {
+            String path = file.getAbsolutePath();
+            currentPaths.add(path);
+            Entry entry = entries.get(path);
+
+            if (entry == null) {
+                modifiedFiles.add(file);
+            } else if (entry.size != file.length() || entry.lastModified != file.lastModified()) {
+                String hash = hash(file);
+                if (hash != null && hash.equals(entry.hash)) {
+                    // touched, but the content is the same
+                    entry.size = file.length();
+                    entry.lastModified = file.lastModified();
+                } else {
+                    modifiedFiles.add(file);
+                    addIfPresent(staleDefinitions, entry.definition);
+                }
+            }
+        }
+        int removedFileCount = 0;
+        for (Entry entry : entries.values()) {
+            if (!currentPaths.contains(entry.path)) {
+                addIfPresent(staleDefinitions, entry.definition);
+                removedFileCount++;
+            }
+        }
+        return new Changes(modifiedFiles, staleDefinitions, removedFileCount);
+    }
+
+    /**
+     * Updates the manifest to the given directory listing. Entries of files which are not in the given definitions are
+     * retained as they are, and entries of files which are no longer listed are dropped.
+     *
+     * @param files       current definition files of the directory
+     * @param definitions definitions parsed from added or changed files, null for skipped or failed files
+     */
+    public void update(File[] files, Map<File, IBaseResource> definitions) {
+        Map<String, Entry> updatedEntries = new LinkedHashMap<>();
+        for (File file : files) {
+            String path = file.getAbsolutePath();
+            Entry entry = entries.get(path);
+            if (entry == null || definitions.containsKey(file)) {
+                entry = new Entry(path, file.length(), file.lastModified(), hash(file), definitions.get(file));
+            }
+            updatedEntries.put(path, entry);
+        }
+        entries.clear();
+        entries.putAll(updatedEntries);
+    }
+
+    /**
+     * Calculates a combined hash of the files tracked by the given manifests, from their paths and content hashes.
+     * The result doesn't depend on the order of the manifests.
+     *
+     * @param manifests definition file manifests
+     * @return combined content hash, or null if it cannot be calculated
+     */
+    public static String hash(Collection<FHIRDefinitionManifest> manifests) {
+        Map<String, String> hashes = new TreeMap<>();
+        for (FHIRDefinitionManifest manifest : manifests) {
+            for (Entry entry : manifest.entries.values()) {
+                if (entry.hash == null) {
+                    return null;
+                }
+                hashes.put(entry.path, entry.hash);
+            }
+        }
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            for (Map.Entry<String, String> hash : hashes.entrySet()) {
+                messageDigest.update((hash.getKey() + '\0' + hash.getValue() + '\0').getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(messageDigest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            LOG.warn("Unable to calculate the content hash of the definition files.", e);
+            return null;
+        }
+    }
+
+    private static void addIfPresent(List<IBaseResource> definitions, IBaseResource definition) {
+        if (definition != null) {
+            definitions.add(definition);
+        }
+    }
+
+    /**
+     * Calculates the content hash of a definition file.
+     *
+     * @param file definition file
+     * @return content hash, or null if the file cannot be read
+     */
+    static String hash(File file) {
+        try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                messageDigest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(messageDigest.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            LOG.warn("Unable to calculate the content hash of the definition file: " + file.getName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Manifest entry of a single definition file.
+     */
+    public static class Entry {
+
+        private final String path;
+        private final String hash;
+        private final IBaseResource definition;
+        private long size;
+        private long lastModified;
+
+        Entry(String path, long size, long lastModified, String hash, IBaseResource definition) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+            this.definition = definition;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        /**
+         * Returns the definition parsed from the file.
+         *
+         * @return parsed definition, or null if the file was skipped or could not be parsed
+         */
+        public IBaseResource getDefinition() {
+            return definition;
+        }
+    }
+
+    /**
+     * Changes of a directory listing compared to the manifest.
+     */
+    public static class Changes {
+
+        private final List<File> modifiedFiles;
+        private final List<IBaseResource> staleDefinitions;
+        private final int removedFileCount;
+
+        Changes(List<File> modifiedFiles, List<IBaseResource> staleDefinitions, int removedFileCount) {
+            this.modifiedFiles = modifiedFiles;
+            this.staleDefinitions = staleDefinitions;
+            this.removedFileCount = removedFileCount;
+        }
+
+        /**
+         * Returns the added and changed files, which need to be parsed.
+         *
+         * @return added or changed files
+         */
+        public List<File> getModifiedFiles() {
+            return modifiedFiles;
+        }
+
+        /**
+         * Returns the definitions previously parsed from changed or removed files.
+         *
+         * @return stale definitions
+         */
+        public List<IBaseResource> getStaleDefinitions() {
+            return staleDefinitions;
+        }
+
+        public boolean isEmpty() {
+            return modifiedFiles.isEmpty() && removedFileCount == 0;
+        }
+    }
+}
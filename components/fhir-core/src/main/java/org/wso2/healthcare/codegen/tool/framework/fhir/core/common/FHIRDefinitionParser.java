@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.org).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.healthcare.codegen.tool.framework.fhir.core.common;
+
+import ca.uhn.fhir.context.BaseRuntimeChildDefinition;
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.DataFormatException;
+import ca.uhn.fhir.parser.IParser;
+import ca.uhn.fhir.util.BundleUtil;
+import org.hl7.fhir.instance.model.api.IBaseBundle;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared JSON parser of FHIR definitions. HAPI parsers are not thread safe, so each thread reuses its own parser
+ * instance instead of creating one per definition, which makes a single instance safe to share between the threads
+ * loading definitions in parallel. Input is always read as buffered UTF-8, independent of the platform charset.
+ * <p>
+ * Narratives are only meant for human readers and are not used to generate artifacts. When narrative stripping is
+ * enabled, the narrative of each parsed resource, including bundle entries, is dropped right after parsing so that it
+ * isn't retained in the specification data or the warm start cache.
+ */
+public class FHIRDefinitionParser {
+
+    private static final Map<FhirContext, FHIRDefinitionParser> PARSERS = new ConcurrentHashMap<>();
+    private static final Map<FhirContext, FHIRDefinitionParser> NARRATIVE_STRIPPING_PARSERS =
+            new ConcurrentHashMap<>();
+
+    private static final String NARRATIVE_CHILD = "text";
+
+    private final FhirContext fhirContext;
+    private final boolean stripNarratives;
+    private final ThreadLocal<IParser> parsers;
+
+    private FHIRDefinitionParser(FhirContext fhirContext, boolean stripNarratives) {
+        this.fhirContext = fhirContext;
+        this.stripNarratives = stripNarratives;
+        this.parsers = ThreadLocal.withInitial(fhirContext::newJsonParser);
+    }
+
+    /**
+     * Returns the shared definition parser of the given FHIR context.
+     *
+     * @param fhirContext     FHIR context
+     * @param stripNarratives whether narratives are dropped from the parsed definitions
+     * @return definition parser
+     */
+    public static FHIRDefinitionParser getInstance(FhirContext fhirContext, boolean stripNarratives) {
+        Map<FhirContext, FHIRDefinitionParser> parsers = stripNarratives ? NARRATIVE_STRIPPING_PARSERS : PARSERS;
+        return parsers.computeIfAbsent(fhirContext, context -> new FHIRDefinitionParser(context, stripNarratives));
+    }
+
+    public FhirContext getFhirContext() {
+        return fhirContext;
+    }
+
+    /**
+     * Parses the given definition file.
+     *
+     * @param file definition file
+     * @return parsed FHIR resource
+     * @throws IOException         if the file cannot be read
+     * @throws DataFormatException if the file content is not a valid FHIR resource
+     */
+    public IBaseResource parse(File file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            return parse(reader);
+        }
+    }
+
+    /**
+     * Parses a definition from the given input stream. The stream is not closed.
+     *
+     * @param inputStream definition input stream
+     * @return parsed FHIR resource
+     * @throws DataFormatException if the content is not a valid FHIR resource
+     */
+    public IBaseResource parse(InputStream inputStream) {
+        return parse(new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Parses a definition from the given string.
+     *
+     * @param resourceContent FHIR resource string
+     * @return parsed FHIR resource
+     * @throws DataFormatException if the content is not a valid FHIR resource
+     */
+    public IBaseResource parse(String resourceContent) {
+        return parse(new StringReader(resourceContent));
+    }
+
+    /**
+     * Applies the parser options to a definition which was not parsed from JSON by this parser, such as a
+     * deserialized definition.
+     *
+     * @param resource FHIR resource
+     * @return the given resource
+     */
+    public IBaseResource normalize(IBaseResource resource) {
+        if (stripNarratives) {
+            stripNarrative(resource);
+            if (resource instanceof IBaseBundle) {
+                for (IBaseResource entryResource : BundleUtil.toListOfResources(fhirContext, (IBaseBundle) resource)) {
+                    stripNarrative(entryResource);
+                }
+            }
+        }
+        return resource;
+    }
+
+    private IBaseResource parse(Reader reader) {
+        return normalize(parsers.get().parseResource(reader));
+    }
+
+    private void stripNarrative(IBaseResource resource) {
+        BaseRuntimeChildDefinition narrative = fhirContext.getResourceDefinition(resource)
+                .getChildByName(NARRATIVE_CHILD);
+        if (narrative != null) {
+            narrative.getMutator().setValue(resource, null);
+        }
+    }
+}
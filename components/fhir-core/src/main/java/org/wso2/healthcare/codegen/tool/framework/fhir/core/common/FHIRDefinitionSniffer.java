@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.org).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.healthcare.codegen.tool.framework.fhir.core.common;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Streaming reader to identify FHIR definition files without parsing the whole content. Only the top level object is
+ * read, and reading stops as soon as the requested properties are found.
+ */
+public class FHIRDefinitionSniffer {
+
+    private static final String RESOURCE_TYPE = "resourceType";
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    private FHIRDefinitionSniffer() {
+    }
+
+    /**
+     * Reads the resource type of the given FHIR definition file.
+     *
+     * @param definitionFile definition file
+     * @return resource type, or null if the file is not a FHIR resource
+     * @throws IOException if an error occurs while reading the file
+     */
+    public static String readResourceType(File definitionFile) throws IOException {
+        try (Reader reader = Files.newBufferedReader(definitionFile.toPath(), StandardCharsets.UTF_8)) {
+            return readResourceType(reader);
+        }
+    }
+
+    /**
+     * Reads the resource type of the FHIR definition in the given stream. The stream is not closed.
+     *
+     * @param inputStream definition input stream
+     * @return resource type, or null if the content is not a FHIR resource
+     * @throws IOException if an error occurs while reading the stream
+     */
+    public static String readResourceType(InputStream inputStream) throws IOException {
+        return readResourceType(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads the resource type of the FHIR definition in the given reader. The reader is not closed.
+     *
+     * @param reader definition reader
+     * @return resource type, or null if the content is not a FHIR resource
+     * @throws IOException if an error occurs while reading, including malformed JSON content
+     */
+    public static String readResourceType(Reader reader) throws IOException {
+        BufferedReader bufferedReader = reader instanceof BufferedReader ?
+                (BufferedReader) reader : new BufferedReader(reader);
+        skipByteOrderMark(bufferedReader);
+
+        JsonReader jsonReader = new JsonReader(bufferedReader);
+        jsonReader.setLenient(true);
+        try {
+            if (jsonReader.peek() != JsonToken.BEGIN_OBJECT) {
+                return null;
+            }
+            jsonReader.beginObject();
+            while (jsonReader.hasNext()) {
+                String name = jsonReader.nextName();
+                if (RESOURCE_TYPE.equals(name) && jsonReader.peek() == JsonToken.STRING) {
+                    return jsonReader.nextString();
+                }
+                jsonReader.skipValue();
+            }
+        } catch (IllegalStateException e) {
+            throw new IOException("Malformed FHIR definition content.", e);
+        }
+        return null;
+    }
+
+    /**
+     * Reads the header properties of the given FHIR definition file. Reading stops once the properties used to index
+     * a structure definition are found, which precede the snapshot and differential in FHIR JSON.
+     *
+     * @param definitionFile definition file
+     * @return definition header, or null if the file is not a FHIR resource
+     * @throws IOException if an error occurs while reading the file, including malformed JSON content
+     */
+    public static FHIRDefinitionHeader readHeader(File definitionFile) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(definitionFile.toPath(), StandardCharsets.UTF_8)) {
+            skipByteOrderMark(reader);
+
+            JsonReader jsonReader = new JsonReader(reader);
+            jsonReader.setLenient(true);
+            try {
+                if (jsonReader.peek() != JsonToken.BEGIN_OBJECT) {
+                    return null;
+                }
+                FHIRDefinitionHeader header = new FHIRDefinitionHeader();
+                jsonReader.beginObject();
+                while (jsonReader.hasNext() && !header.isComplete()) {
+                    String name = jsonReader.nextName();
+                    if (jsonReader.peek() != JsonToken.STRING) {
+                        jsonReader.skipValue();
+                        continue;
+                    }
+                    switch (name) {
+                        case RESOURCE_TYPE:
+                            header.setResourceType(jsonReader.nextString());
+                            break;
+                        case "id":
+                            header.setId(jsonReader.nextString());
+                            break;
+                        case "url":
+                            header.setUrl(jsonReader.nextString());
+                            break;
+                        case "version":
+                            header.setVersion(jsonReader.nextString());
+                            break;
+                        case "name":
+                            header.setName(jsonReader.nextString());
+                            break;
+                        case "type":
+                            header.setType(jsonReader.nextString());
+                            break;
+                        case "kind":
+                            header.setKind(jsonReader.nextString());
+                            break;
+                        case "baseDefinition":
+                            header.setBaseDefinition(jsonReader.nextString());
+                            break;
+                        default:
+                            jsonReader.skipValue();
+                    }
+                }
+                return header.getResourceType() != null ? header : null;
+            } catch (IllegalStateException e) {
+                throw new IOException("Malformed FHIR definition content.", e);
+            }
+        }
+    }
+
+    private static void skipByteOrderMark(BufferedReader reader) throws IOException {
+        reader.mark(1);
+        if (reader.read() != BYTE_ORDER_MARK) {
+            reader.reset();
+        }
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.org).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.healthcare.codegen.tool.framework.fhir.core.common;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.healthcare.codegen.tool.framework.commons.exception.CodeGenException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Dependency graph of the loaded definitions by their canonical url. A profile depends on its base definition, the
+ * types and extensions of its elements, the value sets they are bound to and their target profiles, and a value set
+ * depends on the code systems and value sets it includes. Dependencies on definitions which are not loaded are left
+ * out.
+ * <p>
+ * The definitions are ordered into topological layers, where every definition only depends on definitions of earlier
+ * layers, so that the definitions of a layer can be processed in parallel.
+ */
+public class FHIRDependencyGraph {
+
+    private static final Log LOG = LogFactory.getLog(FHIRDependencyGraph.class);
+    private static final char VERSION_SEPARATOR = '|';
+    private static final String BASE_DEFINITION_URL = "http://hl7.org/fhir/StructureDefinition/";
+
+    /**
+     * Kind of a definition in the graph.
+     */
+    public enum NodeKind {
+        PROFILE,
+        DATA_TYPE,
+        VALUE_SET,
+        CODE_SYSTEM
+    }
+
+    private final Map<String, NodeKind> nodes = new HashMap<>();
+    private final Map<String, Set<String>> dependencies = new HashMap<>();
+    private List<List<String>> layers;
+    private Map<String, Set<String>> dependents;
+
+    /**
+     * Adds a definition. When several definitions share a canonical url, the first added kind is kept.
+     *
+     * @param url  canonical url
+     * @param kind definition kind
+     */
+    public synchronized void addNode(String url, NodeKind kind) {
+        if (url != null) {
+            nodes.putIfAbsent(stripVersion(url), kind);
+            layers = null;
+        }
+    }
+
+    /**
+     * Adds a dependency of a definition on another definition.
+     *
+     * @param url           canonical url of the dependent definition
+     * @param dependencyUrl canonical url of the definition it depends on, versioned or not
+     */
+    public synchronized void addDependency(String url, String dependencyUrl) {
+        if (url != null && dependencyUrl != null) {
+            String dependency = stripVersion(dependencyUrl);
+            String dependent = stripVersion(url);
+            if (!dependency.equals(dependent)) {
+                dependencies.computeIfAbsent(dependent, key -> new LinkedHashSet<>()).add(dependency);
+                layers = null;
+            }
+        }
+    }
+
+    public synchronized boolean contains(String url) {
+        return url != null && nodes.containsKey(stripVersion(url));
+    }
+
+    public synchronized NodeKind getKind(String url) {
+        return url != null ? nodes.get(stripVersion(url)) : null;
+    }
+
+    public synchronized int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Returns the loaded definitions the given definition depends on.
+     *
+     * @param url canonical url
+     * @return canonical urls of the dependencies
+     */
+    public synchronized Set<String> getDependencies(String url) {
+        Set<String> loadedDependencies = new TreeSet<>();
+        for (String dependency : dependencies.getOrDefault(stripVersion(url), Collections.emptySet())) {
+            if (nodes.containsKey(dependency)) {
+                loadedDependencies.add(dependency);
+            }
+        }
+        return loadedDependencies;
+    }
+
+    /**
+     * Returns the definitions which depend on the given definition.
+     *
+     * @param url canonical url
+     * @return canonical urls of the dependents
+     */
+    public synchronized Set<String> getDependents(String url) {
+        computeLayers();
+        return Collections.unmodifiableSet(dependents.getOrDefault(stripVersion(url), Collections.emptySet()));
+    }
+
+    /**
+     * Returns the topological layers of the graph. The definitions of a layer only depend on the definitions of
+     * earlier layers, and are sorted by their url. Definitions on a dependency cycle can't be ordered, and are added
+     * as a last layer.
+     *
+     * @return unmodifiable layers of canonical urls
+     */
+    public synchronized List<List<String>> getLayers() {
+        computeLayers();
+        return layers;
+    }
+
+    /**
+     * Processes all the definitions layer by layer, processing the definitions of a layer in parallel. A layer is
+     * only started once the previous layer has completed.
+     *
+     * @param parallelism maximum number of definitions processed at once
+     * @param task        processes a definition by its canonical url
+     * @throws CodeGenException if processing a definition fails, after which no further layer is processed
+     */
+    public void processLayers(int parallelism, LayerTask task) throws CodeGenException {
+        List<List<String>> layers = getLayers();
+        if (parallelism <= 1) {
+            for (List<String> layer : layers) {
+                for (String url : layer) {
+                    task.process(url);
+                }
+            }
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            for (List<String> layer : layers) {
+                List<Future<Void>> futures = new ArrayList<>(layer.size());
+                for (String url : layer) {
+                    futures.add(executor.submit(() -> {
+                        task.process(url);
+                        return null;
+                    }));
+                }
+                for (int i = 0; i < futures.size(); i++) {
+                    try {
+                        futures.get(i).get();
+                    } catch (ExecutionException e) {
+                        if (e.getCause() instanceof CodeGenException) {
+                            throw (CodeGenException) e.getCause();
+                        }
+                        throw new CodeGenException("Error occurred while processing FHIR definition: " +
+                                layer.get(i), e.getCause());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new CodeGenException("Interrupted while processing FHIR definition: " + layer.get(i), e);
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Kahn's algorithm over the loaded definitions
+    private void computeLayers() {
+        if (layers != null) {
+            return;
+        }
+        Map<String, Integer> pendingDependencies = new HashMap<>();
+        Map<String, Set<String>> dependents = new HashMap<>();
+        for (String url : nodes.keySet()) {
+            int count = 0;
+            for (String dependency : dependencies.getOrDefault(url, Collections.emptySet())) {
+                if (nodes.containsKey(dependency)) {
+                    dependents.computeIfAbsent(dependency, key -> new TreeSet<>()).add(url);
+                    count++;
+                }
+            }
+            pendingDependencies.put(url, count);
+        }
+
+        List<List<String>> layers = new ArrayList<>();
+        TreeSet<String> layer = new TreeSet<>();
+        for (Map.Entry<String, Integer> pending : pendingDependencies.entrySet()) {
+            if (pending.getValue() == 0) {
+                layer.add(pending.getKey());
+            }
+        }
+        int ordered = 0;
+        while (!layer.isEmpty()) {
+            layers.add(Collections.unmodifiableList(new ArrayList<>(layer)));
+            ordered += layer.size();
+            TreeSet<String> nextLayer = new TreeSet<>();
+            for (String url : layer) {
+                for (String dependent : dependents.getOrDefault(url, Collections.emptySet())) {
+                    if (pendingDependencies.merge(dependent, -1, Integer::sum) == 0) {
+                        nextLayer.add(dependent);
+                    }
+                }
+            }
+            layer = nextLayer;
+        }
+        if (ordered < nodes.size()) {
+            TreeSet<String> cyclicNodes = new TreeSet<>();
+            for (Map.Entry<String, Integer> pending : pendingDependencies.entrySet()) {
+                if (pending.getValue() > 0) {
+                    cyclicNodes.add(pending.getKey());
+                }
+            }
+            LOG.warn("FHIR definitions with cyclic dependencies are processed last: " + cyclicNodes);
+            layers.add(Collections.unmodifiableList(new ArrayList<>(cyclicNodes)));
+        }
+        this.dependents = dependents;
+        this.layers = Collections.unmodifiableList(layers);
+    }
+
+    /**
+     * Returns the canonical url of an element type, e.g. http://hl7.org/fhir/StructureDefinition/Identifier for
+     * Identifier.
+     *
+     * @param typeCode type code of an element
+     * @return canonical url of the type, or null if the type code is null
+     */
+    public static String getTypeUrl(String typeCode) {
+        if (typeCode == null || typeCode.indexOf(':') >= 0) {
+            return typeCode;
+        }
+        return BASE_DEFINITION_URL + typeCode;
+    }
+
+    private static String stripVersion(String canonical) {
+        int separatorIndex = canonical.indexOf(VERSION_SEPARATOR);
+        return separatorIndex >= 0 ? canonical.substring(0, separatorIndex) : canonical;
+    }
+
+    /**
+     * Processing of a definition of the graph.
+     */
+    @FunctionalInterface
+    public interface LayerTask {
+
+        void process(String url) throws CodeGenException;
+    }
+}
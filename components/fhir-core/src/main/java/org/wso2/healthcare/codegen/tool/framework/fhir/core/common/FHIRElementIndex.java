@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.org).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.healthcare.codegen.tool.framework.fhir.core.common;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Indexed view of the elements of a structure definition snapshot or differential. The elements which are skipped
+ * when generating artifacts are marked once, and elements can be looked up by their path or id without scanning the
+ * element list. The view is immutable, and safe to share between threads.
+ *
+ * @param <E> element definition type of the FHIR version
+ */
+public class FHIRElementIndex<E> {
+
+    private final List<E> elements;
+    private final BitSet skippedElements;
+    private final List<E> processableElements;
+    private final Map<String, E> elementsByPath;
+    private final Map<String, E> elementsById;
+
+    /**
+     * @param elements     elements of the snapshot or differential, in their definition order
+     * @param skipFilter   returns whether an element is skipped when generating artifacts
+     * @param pathFunction returns the path of an element
+     * @param idFunction   returns the id of an element
+     */
+    public FHIRElementIndex(List<E> elements, Predicate<E> skipFilter, Function<E, String> pathFunction,
+                            Function<E, String> idFunction) {
+        List<E> processableElements = new ArrayList<>(elements.size());
+        this.skippedElements = new BitSet(elements.size());
+        this.elementsByPath = new HashMap<>(elements.size() * 4 / 3 + 1);
+        this.elementsById = new HashMap<>(elements.size() * 4 / 3 + 1);
+        for (int i = 0; i < elements.size(); i++) {
+            E element = elements.get(i);
+            if (skipFilter.test(element)) {
+                skippedElements.set(i);
+            } else {
+                processableElements.add(element);
+            }
+            // slices share the path of the sliced element, which is the first one defined
+            String path = pathFunction.apply(element);
+            if (path != null) {
+                elementsByPath.putIfAbsent(path, element);
+            }
+            String id = idFunction.apply(element);
+            if (id != null) {
+                elementsById.putIfAbsent(id, element);
+            }
+        }
+        this.elements = Collections.unmodifiableList(new ArrayList<>(elements));
+        this.processableElements = Collections.unmodifiableList(processableElements);
+    }
+
+    /**
+     * Returns all the elements, in their definition order.
+     *
+     * @return unmodifiable element list
+     */
+    public List<E> getElements() {
+        return elements;
+    }
+
+    /**
+     * Returns the elements which are not skipped when generating artifacts, in their definition order.
+     *
+     * @return unmodifiable element list
+     */
+    public List<E> getProcessableElements() {
+        return processableElements;
+    }
+
+    /**
+     * Returns whether the element at the given position of {@link #getElements()} is skipped.
+     *
+     * @param index element position
+     * @return true if the element is skipped
+     */
+    public boolean isSkipped(int index) {
+        return skippedElements.get(index);
+    }
+
+    /**
+     * Returns the element of the given path. For a sliced element, the element being sliced is returned.
+     *
+     * @param path FHIR path of the element, e.g. Patient.name
+     * @return element, or null if no element has the path
+     */
+    public E getElementByPath(String path) {
+        return elementsByPath.get(path);
+    }
+
+    /**
+     * Returns the element of the given id.
+     *
+     * @param id element id, e.g. Patient.identifier:mrn
+     * @return element, or null if no element has the id
+     */
+    public E getElementById(String id) {
+        return elementsById.get(id);
+    }
+}
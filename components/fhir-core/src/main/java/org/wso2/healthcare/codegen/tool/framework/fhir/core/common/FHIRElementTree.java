@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.org).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.healthcare.codegen.tool.framework.fhir.core.common;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Tree of the elements of a structure definition snapshot, built once from the flat element list. Each node knows
+ * its parent, its children by name, its slices by slice name and the names its choice type expands to, so that
+ * nested backbone elements and slices can be traversed without parsing element ids again.
+ *
+ * @param <E> element definition type of the FHIR version
+ */
+public class FHIRElementTree<E> {
+
+    private static final String CHOICE_SUFFIX = "[x]";
+
+    private final Node<E> root;
+    private final Map<String, Node<E>> nodesById;
+
+    /**
+     * @param elements      elements of the snapshot, in their definition order
+     * @param pathFunction  returns the path of an element
+     * @param idFunction    returns the id of an element
+     * @param typesFunction returns the type codes of an element
+     */
+    public FHIRElementTree(List<E> elements, Function<E, String> pathFunction, Function<E, String> idFunction,
+                           Function<E, List<String>> typesFunction) {
+        Map<String, Node<E>> nodesById = new HashMap<>(elements.size() * 4 / 3 + 1);
+        Node<E> root = null;
+        for (E element : elements) {
+            String path = pathFunction.apply(element);
+            String id = idFunction.apply(element);
+            if (id == null) {
+                id = path;
+            }
+            if (id == null || nodesById.containsKey(id)) {
+                continue;
+            }
+            int separatorIndex = id.lastIndexOf('.');
+            String parentId = separatorIndex >= 0 ? id.substring(0, separatorIndex) : null;
+            String segment = id.substring(separatorIndex + 1);
+            int sliceIndex = segment.indexOf(':');
+            String name = sliceIndex >= 0 ? segment.substring(0, sliceIndex) : segment;
+            String sliceName = sliceIndex >= 0 ? segment.substring(sliceIndex + 1) : null;
+
+            Node<E> parent = parentId != null ? nodesById.get(parentId) : null;
+            Node<E> node = new Node<>(element, id, path, name, sliceName, parent,
+                    parent != null ? parent.depth + 1 : countSeparators(id),
+                    sliceName != null || parent != null && parent.inSlice, typesFunction.apply(element));
+            if (sliceName != null) {
+                // a re-slice, e.g. identifier:a/b, is a slice of the slice identifier:a
+                int resliceIndex = segment.lastIndexOf('/');
+                String slicedSegment = segment.substring(0, resliceIndex > sliceIndex ? resliceIndex : sliceIndex);
+                Node<E> slicedNode = nodesById.get(parentId != null ? parentId + "." + slicedSegment : slicedSegment);
+                if (slicedNode != null) {
+                    slicedNode.slices.putIfAbsent(sliceName, node);
+                }
+            } else if (parent != null) {
+                parent.addChild(node);
+            } else if (root == null) {
+                root = node;
+            }
+            nodesById.put(id, node);
+        }
+        this.root = root;
+        this.nodesById = nodesById;
+    }
+
+    /**
+     * Returns the root node, i.e. the node of the resource or data type itself.
+     *
+     * @return root node, or null if the snapshot is empty
+     */
+    public Node<E> getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns the node of the given element id.
+     *
+     * @param id element id, e.g. Patient.identifier:mrn.system
+     * @return node, or null if no element has the id
+     */
+    public Node<E> getNode(String id) {
+        return nodesById.get(id);
+    }
+
+    public int size() {
+        return nodesById.size();
+    }
+
+    private static int countSeparators(String id) {
+        int count = 0;
+        for (int i = 0; i < id.length(); i++) {
+            if (id.charAt(i) == '.') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Node of an element in the tree.
+     *
+     * @param <E> element definition type of the FHIR version
+     */
+    public static class Node<E> {
+
+        private final E element;
+        private final String id;
+        private final String path;
+        private final String name;
+        private final String sliceName;
+        private final Node<E> parent;
+        private final int depth;
+        private final boolean inSlice;
+        private final List<String> choiceNames;
+        private final Map<String, Node<E>> children = new LinkedHashMap<>();
+        private final Map<String, Node<E>> choiceChildren = new HashMap<>();
+        private final Map<String, Node<E>> slices = new LinkedHashMap<>();
+
+        private Node(E element, String id, String path, String name, String sliceName, Node<E> parent, int depth,
+                     boolean inSlice, List<String> types) {
+            this.element = element;
+            this.id = id;
+            this.path = path;
+            this.name = name;
+            this.sliceName = sliceName;
+            this.parent = parent;
+            this.depth = depth;
+            this.inSlice = inSlice;
+            if (name.endsWith(CHOICE_SUFFIX) && !types.isEmpty()) {
+                String baseName = getBaseName();
+                List<String> choiceNames = new ArrayList<>(types.size());
+                for (String type : types) {
+                    if (type == null || type.isEmpty()) {
+                        continue;
+                    }
+                    choiceNames.add(baseName + Character.toUpperCase(type.charAt(0)) + type.substring(1));
+                }
+                this.choiceNames = Collections.unmodifiableList(choiceNames);
+            } else {
+                this.choiceNames = Collections.emptyList();
+            }
+        }
+
+        private void addChild(Node<E> child) {
+            if (children.putIfAbsent(child.name, child) == null) {
+                for (String choiceName : child.choiceNames) {
+                    choiceChildren.putIfAbsent(choiceName, child);
+                }
+            }
+        }
+
+        public E getElement() {
+            return element;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * Returns the element name, i.e. the last segment of the path, e.g. value[x].
+         *
+         * @return element name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the element name without the choice type suffix, e.g. value for value[x].
+         *
+         * @return element name without the choice type suffix
+         */
+        public String getBaseName() {
+            return isChoice() ? name.substring(0, name.length() - CHOICE_SUFFIX.length()) : name;
+        }
+
+        /**
+         * Returns the slice name if this node is a slice.
+         *
+         * @return slice name, or null if not a slice
+         */
+        public String getSliceName() {
+            return sliceName;
+        }
+
+        public Node<E> getParent() {
+            return parent;
+        }
+
+        /**
+         * Returns the depth of the node, where the root node is at depth 0 and its children at depth 1.
+         *
+         * @return depth of the node
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        public boolean isSlice() {
+            return sliceName != null;
+        }
+
+        /**
+         * Returns whether this node is a slice, or is nested within a slice.
+         *
+         * @return true if the node belongs to a slice
+         */
+        public boolean isInSlice() {
+            return inSlice;
+        }
+
+        public boolean isChoice() {
+            return name.endsWith(CHOICE_SUFFIX);
+        }
+
+        /**
+         * Returns the names the choice type element expands to, e.g. valueString and valueQuantity for value[x].
+         *
+         * @return expanded names, empty if the element is not a choice type
+         */
+        public List<String> getChoiceNames() {
+            return choiceNames;
+        }
+
+        public Collection<Node<E>> getChildren() {
+            return Collections.unmodifiableCollection(children.values());
+        }
+
+        /**
+         * Returns the child of the given name. Expanded names of a choice type child resolve to the choice type
+         * child, e.g. valueString resolves to value[x].
+         *
+         * @param name element name
+         * @return child node, or null if there is no such child
+         */
+        public Node<E> getChild(String name) {
+            Node<E> child = children.get(name);
+            return child != null ? child : choiceChildren.get(name);
+        }
+
+        public Collection<Node<E>> getSlices() {
+            return Collections.unmodifiableCollection(slices.values());
+        }
+
+        public Node<E> getSlice(String sliceName) {
+            return slices.get(sliceName);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.org).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.healthcare.codegen.tool.framework.fhir.core.common;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Unmodifiable map view whose values are computed on lookup, e.g. value set expansions which are computed on first
+ * use. Iterating the entries computes the value of every key, so callers should prefer {@link #get(Object)}. A
+ * memoizing map computes the value of a key once and returns the same value on every later lookup.
+ *
+ * @param <V> value type
+ */
+public class FHIRLazyMap<V> extends AbstractMap<String, V> {
+
+    private final Set<String> keys;
+    private final Function<String, V> valueFunction;
+    // computed values, kept only when memoizing
+    private final Map<String, V> values;
+
+    /**
+     * @param keys          keys of the map, which are read through
+     * @param valueFunction computes the value of a key
+     */
+    public FHIRLazyMap(Set<String> keys, Function<String, V> valueFunction) {
+        this(keys, valueFunction, false);
+    }
+
+    /**
+     * @param keys          keys of the map, which are read through
+     * @param valueFunction computes the value of a key
+     * @param memoize       whether the value of a key is computed once and kept
+     */
+    public FHIRLazyMap(Set<String> keys, Function<String, V> valueFunction, boolean memoize) {
+        this.keys = keys;
+        this.valueFunction = valueFunction;
+        this.values = memoize ? new ConcurrentHashMap<>() : null;
+    }
+
+    @Override
+    public V get(Object key) {
+        if (!(key instanceof String) || !keys.contains(key)) {
+            return null;
+        }
+        return values != null ? values.computeIfAbsent((String) key, valueFunction) :
+                valueFunction.apply((String) key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return keys.contains(key);
+    }
+
+    @Override
+    public int size() {
+        return keys.size();
+    }
+
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, V>> iterator() {
+                Iterator<String> keyIterator = keys.iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return keyIterator.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, V> next() {
+                        String key = keyIterator.next();
+                        return new SimpleImmutableEntry<>(key, get(key));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return keys.size();
+            }
+        };
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.org).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.healthcare.codegen.tool.framework.fhir.core.common;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Least recently used cache bounded by the total weight of its values rather than their count, e.g. by the number of
+ * codings of value set expansions. Least recently used values are evicted once the total weight exceeds the maximum.
+ * Values are loaded outside the cache lock, so concurrent misses of the same key may load it more than once.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class FHIRLruCache<K, V> {
+
+    private final long maxWeight;
+    private final ToIntFunction<V> weigher;
+    private final LinkedHashMap<K, V> values = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+
+    /**
+     * @param maxWeight maximum total weight of the cached values
+     * @param weigher   returns the weight of a value
+     */
+    public FHIRLruCache(long maxWeight, ToIntFunction<V> weigher) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    /**
+     * Returns the cached value of the given key, loading and caching it on a miss. A null value is not cached.
+     *
+     * @param key    key
+     * @param loader loads the value of a key
+     * @return value, or null if the loader returns null
+     */
+    public V get(K key, Function<K, V> loader) {
+        synchronized (this) {
+            V value = values.get(key);
+            if (value != null) {
+                return value;
+            }
+        }
+        V value = loader.apply(key);
+        if (value != null) {
+            put(key, value);
+        }
+        return value;
+    }
+
+    public synchronized void put(K key, V value) {
+        V previous = values.put(key, value);
+        if (previous != null) {
+            weight -= weigher.applyAsInt(previous);
+        }
+        weight += weigher.applyAsInt(value);
+        // the value just added is kept even when it alone exceeds the maximum weight
+        Iterator<Map.Entry<K, V>> iterator = values.entrySet().iterator();
+        while (weight > maxWeight && values.size() > 1 && iterator.hasNext()) {
+            Map.Entry<K, V> eldest = iterator.next();
+            if (eldest.getKey().equals(key)) {
+                continue;
+            }
+            weight -= weigher.applyAsInt(eldest.getValue());
+            iterator.remove();
+        }
+    }
+
+    public synchronized void invalidate(K key) {
+        V value = values.remove(key);
+        if (value != null) {
+            weight -= weigher.applyAsInt(value);
+        }
+    }
+
+    public synchronized void clear() {
+        values.clear();
+        weight = 0;
+    }
+
+    public synchronized int size() {
+        return values.size();
+    }
+
+    public synchronized long getWeight() {
+        return weight;
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.org).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.healthcare.codegen.tool.framework.fhir.core.common;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Index of the definition files of an implementation guide directory, holding the header properties of each file so
+ * that files which are not consumed can be skipped without being opened.
+ * <p>
+ * The ".index.json" shipped with FHIR packages is used when present. Otherwise an index is generated by reading the
+ * headers of the files, and cached in the directory as ".codegen-index.json". Cached entries are only reused while
+ * the size and last modified time of the file are unchanged.
+ */
+public class FHIRPackageIndex {
+
+    private static final Log LOG = LogFactory.getLog(FHIRPackageIndex.class);
+
+    public static final String PACKAGE_INDEX_FILE = ".index.json";
+    public static final String GENERATED_INDEX_FILE = ".codegen-index.json";
+
+    private static final int INDEX_VERSION = 2;
+    private static final FHIRPackageIndex EMPTY = new FHIRPackageIndex(new HashMap<>());
+
+    private final Map<String, IndexEntry> entries;
+
+    private FHIRPackageIndex(Map<String, IndexEntry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Loads the index of the given implementation guide directory.
+     *
+     * @param igDir definition directory
+     * @param files definition files of the directory
+     * @return index of the directory, empty if it cannot be read or generated
+     */
+    public static FHIRPackageIndex load(File igDir, File[] files) {
+        if (!igDir.isDirectory()) {
+            return EMPTY;
+        }
+        File packageIndexFile = new File(igDir, PACKAGE_INDEX_FILE);
+        if (packageIndexFile.isFile()) {
+            Map<String, IndexEntry> entries = read(packageIndexFile, -1);
+            if (entries != null) {
+                return new FHIRPackageIndex(entries);
+            }
+        }
+        return generate(new File(igDir, GENERATED_INDEX_FILE), files);
+    }
+
+    /**
+     * Returns the indexed header of the given definition file.
+     *
+     * @param file definition file
+     * @return definition header, or null if the file is not indexed as a FHIR resource
+     */
+    public FHIRDefinitionHeader get(File file) {
+        IndexEntry entry = entries.get(file.getName());
+        return entry != null && entry.header.getResourceType() != null ? entry.header : null;
+    }
+
+    private static FHIRPackageIndex generate(File indexFile, File[] files) {
+        Map<String, IndexEntry> cachedEntries = indexFile.isFile() ? read(indexFile, INDEX_VERSION) : null;
+        Map<String, IndexEntry> entries = new HashMap<>();
+        boolean modified = false;
+
+        for (File file : files) {
+            IndexEntry entry = cachedEntries != null ? cachedEntries.get(file.getName()) : null;
+            if (entry == null || entry.size != file.length() || entry.lastModified != file.lastModified()) {
+                FHIRDefinitionHeader header = null;
+                try {
+                    header = FHIRDefinitionSniffer.readHeader(file);
+                } catch (IOException e) {
+                    // indexed without a resource type, the file is inspected again when it is loaded
+                }
+                entry = new IndexEntry(header != null ? header : new FHIRDefinitionHeader(), file.length(),
+                        file.lastModified());
+                modified = true;
+            }
+            entries.put(file.getName(), entry);
+        }
+        if (cachedEntries == null || !cachedEntries.keySet().equals(entries.keySet())) {
+            modified = true;
+        }
+        if (modified) {
+            write(indexFile, entries);
+        }
+        return new FHIRPackageIndex(entries);
+    }
+
+    /**
+     * Reads the entries of an index file, or returns null if it cannot be read or is of another index version.
+     */
+    private static Map<String, IndexEntry> read(File indexFile, int indexVersion) {
+        try (Reader reader = Files.newBufferedReader(indexFile.toPath(), StandardCharsets.UTF_8)) {
+            JsonObject index = JsonParser.parseReader(reader).getAsJsonObject();
+            JsonArray files = index.getAsJsonArray("files");
+            if (files == null || indexVersion != -1 && (!index.has("index-version") ||
+                    index.get("index-version").getAsInt() != indexVersion)) {
+                return null;
+            }
+            Map<String, IndexEntry> entries = new HashMap<>();
+            for (JsonElement file : files) {
+                JsonObject fileEntry = file.getAsJsonObject();
+                if (!fileEntry.has("filename")) {
+                    continue;
+                }
+                FHIRDefinitionHeader header = new FHIRDefinitionHeader();
+                header.setResourceType(getString(fileEntry, "resourceType"));
+                header.setId(getString(fileEntry, "id"));
+                header.setUrl(getString(fileEntry, "url"));
+                header.setVersion(getString(fileEntry, "version"));
+                header.setName(getString(fileEntry, "name"));
+                header.setType(getString(fileEntry, "type"));
+                header.setKind(getString(fileEntry, "kind"));
+                header.setBaseDefinition(getString(fileEntry, "baseDefinition"));
+                long size = fileEntry.has("size") ? fileEntry.get("size").getAsLong() : -1;
+                long lastModified = fileEntry.has("lastModified") ? fileEntry.get("lastModified").getAsLong() : -1;
+                entries.put(fileEntry.get("filename").getAsString(), new IndexEntry(header, size, lastModified));
+            }
+            return entries;
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Unable to read the FHIR definition index: " + indexFile, e);
+            return null;
+        }
+    }
+
+    private static void write(File indexFile, Map<String, IndexEntry> entries) {
+        JsonArray files = new JsonArray();
+        entries.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(entry -> {
+            FHIRDefinitionHeader header = entry.getValue().header;
+            JsonObject fileEntry = new JsonObject();
+            fileEntry.addProperty("filename", entry.getKey());
+            fileEntry.addProperty("resourceType", header.getResourceType());
+            fileEntry.addProperty("id", header.getId());
+            fileEntry.addProperty("url", header.getUrl());
+            fileEntry.addProperty("version", header.getVersion());
+            fileEntry.addProperty("name", header.getName());
+            fileEntry.addProperty("type", header.getType());
+            fileEntry.addProperty("kind", header.getKind());
+            fileEntry.addProperty("baseDefinition", header.getBaseDefinition());
+            fileEntry.addProperty("size", entry.getValue().size);
+            fileEntry.addProperty("lastModified", entry.getValue().lastModified);
+            files.add(fileEntry);
+        });
+        JsonObject index = new JsonObject();
+        index.addProperty("index-version", INDEX_VERSION);
+        index.add("files", files);
+
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        Path indexPath = indexFile.toPath();
+        try {
+            Path tempFile = Files.createTempFile(indexPath.getParent(), GENERATED_INDEX_FILE, ".tmp");
+            try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                gson.toJson(index, writer);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(tempFile);
+                throw e;
+            }
+            Files.move(tempFile, indexPath, StandardCopyOption.REPLACE_EXISTING);
+            LOG.debug("FHIR definition index generated: " + indexFile);
+        } catch (IOException | RuntimeException e) {
+            // the index is still used for this run
+            LOG.debug("Unable to store the FHIR definition index: " + indexFile, e);
+        }
+    }
+
+    private static String getString(JsonObject jsonObject, String name) {
+        JsonElement value = jsonObject.get(name);
+        return value != null && value.isJsonPrimitive() ? value.getAsString() : null;
+    }
+
+    /**
+     * Indexed header of a definition file.
+     */
+    private static class IndexEntry {
+
+        private final FHIRDefinitionHeader header;
+        private final long size;
+        private final long lastModified;
+
+        IndexEntry(FHIRDefinitionHeader header, long size, long lastModified) {
+            this.header = header;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+}
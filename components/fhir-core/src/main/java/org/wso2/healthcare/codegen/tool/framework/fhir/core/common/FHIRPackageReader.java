@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.org).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.healthcare.codegen.tool.framework.fhir.core.common;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads FHIR definitions straight out of a FHIR npm package tarball (package.tgz) without extracting it.
+ * <p>
+ * The archive is streamed once. Only the JSON files directly under the "package" folder are considered, which excludes
+ * the examples and other sub folders. The resource type of each file is taken from the package ".index.json" once it
+ * has been read, and otherwise sniffed from the file content, so that files of other resource types are skipped
+ * without being parsed.
+ */
+public class FHIRPackageReader {
+
+    private static final Log LOG = LogFactory.getLog(FHIRPackageReader.class);
+
+    private static final String PACKAGE_FOLDER = "package/";
+    private static final String PACKAGE_INDEX = ".index.json";
+    private static final String PACKAGE_MANIFEST = "package.json";
+    private static final int BLOCK_SIZE = 512;
+
+    private FHIRPackageReader() {
+    }
+
+    /**
+     * Returns whether the given file is a FHIR npm package tarball.
+     *
+     * @param file file
+     * @return true if the file is a package tarball
+     */
+    public static boolean isPackage(File file) {
+        String name = file.getName().toLowerCase();
+        return file.isFile() && (name.endsWith(".tgz") || name.endsWith(".tar.gz"));
+    }
+
+    /**
+     * Reads the definitions of the given resource types from the package.
+     *
+     * @param packageFile   package tarball
+     * @param resourceTypes resource types to read
+     * @return package entries of the requested resource types, in the archive order
+     * @throws IOException if an error occurs while reading the package
+     */
+    public static List<PackageEntry> readDefinitions(File packageFile, Set<String> resourceTypes) throws IOException {
+        List<PackageEntry> entries = new ArrayList<>();
+        Map<String, String> indexedResourceTypes = null;
+
+        try (InputStream inputStream = new GZIPInputStream(
+                new BufferedInputStream(Files.newInputStream(packageFile.toPath())), 64 * 1024)) {
+            byte[] header = new byte[BLOCK_SIZE];
+            String longName = null;
+
+            while (readBlock(inputStream, header)) {
+                if (isEndOfArchive(header)) {
+                    break;
+                }
+                String name = longName != null ? longName : readEntryName(header);
+                longName = null;
+                long size = parseOctal(header, 124, 12);
+                char typeFlag = (char) header[156];
+
+                if (typeFlag == 'L') {
+                    // GNU long file name of the next entry
+                    longName = trimName(readContent(inputStream, size));
+                    continue;
+                } else if (typeFlag == 'x') {
+                    // PAX extended header, which may carry the path of the next entry
+                    longName = readPaxPath(readContent(inputStream, size));
+                    continue;
+                } else if (typeFlag != '0' && typeFlag != '\0') {
+                    skip(inputStream, size);
+                    continue;
+                }
+
+                String fileName = getPackageFileName(name);
+                if (fileName == null || !fileName.toLowerCase().endsWith(".json") ||
+                        PACKAGE_MANIFEST.equals(fileName)) {
+                    skip(inputStream, size);
+                    continue;
+                }
+
+                if (PACKAGE_INDEX.equals(fileName)) {
+                    indexedResourceTypes = readIndex(readContent(inputStream, size));
+                    continue;
+                }
+
+                String resourceType = indexedResourceTypes != null ? indexedResourceTypes.get(fileName) : null;
+                if (resourceType != null && !resourceTypes.contains(resourceType)) {
+                    skip(inputStream, size);
+                    continue;
+                }
+
+                byte[] content = readContent(inputStream, size);
+                if (resourceType == null) {
+                    resourceType = FHIRDefinitionSniffer.readResourceType(new ByteArrayInputStream(content));
+                }
+                if (resourceType != null && resourceTypes.contains(resourceType)) {
+                    entries.add(new PackageEntry(fileName, resourceType, content));
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static String getPackageFileName(String name) {
+        if (name.startsWith("./")) {
+            name = name.substring(2);
+        }
+        if (!name.startsWith(PACKAGE_FOLDER) || name.indexOf('/', PACKAGE_FOLDER.length()) >= 0) {
+            return null;
+        }
+        return name.substring(PACKAGE_FOLDER.length());
+    }
+
+    private static Map<String, String> readIndex(byte[] content) {
+        Map<String, String> resourceTypes = new HashMap<>();
+        try {
+            JsonObject index = JsonParser.parseReader(new InputStreamReader(new ByteArrayInputStream(content),
+                    StandardCharsets.UTF_8)).getAsJsonObject();
+            JsonArray files = index.getAsJsonArray("files");
+            if (files != null) {
+                for (JsonElement file : files) {
+                    JsonObject fileEntry = file.getAsJsonObject();
+                    if (fileEntry.has("filename") && fileEntry.has("resourceType")) {
+                        resourceTypes.put(fileEntry.get("filename").getAsString(),
+                                fileEntry.get("resourceType").getAsString());
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            LOG.warn("Unable to read the FHIR package index, package files are identified by their content.", e);
+        }
+        return resourceTypes;
+    }
+
+    private static String readEntryName(byte[] header) {
+        String name = trimName(header, 0, 100);
+        // ustar prefix of long names
+        if ("ustar".equals(new String(header, 257, 5, StandardCharsets.US_ASCII))) {
+            String prefix = trimName(header, 345, 155);
+            if (!prefix.isEmpty()) {
+                name = prefix + "/" + name;
+            }
+        }
+        return name;
+    }
+
+    private static String readPaxPath(byte[] content) {
+        // records are formatted as "<length> <key>=<value>\n"
+        String records = new String(content, StandardCharsets.UTF_8);
+        for (String record : records.split("\n")) {
+            int keyStart = record.indexOf(' ');
+            if (keyStart > 0 && record.startsWith("path=", keyStart + 1)) {
+                return record.substring(keyStart + 6);
+            }
+        }
+        return null;
+    }
+
+    private static String trimName(byte[] content) {
+        return trimName(content, 0, content.length);
+    }
+
+    private static String trimName(byte[] bytes, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && bytes[end] != 0) {
+            end++;
+        }
+        return new String(bytes, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private static long parseOctal(byte[] bytes, int offset, int length) {
+        long value = 0;
+        int i = offset;
+        // leading spaces are allowed, digits end at a space or NUL
+        while (i < offset + length && bytes[i] == ' ') {
+            i++;
+        }
+        for (; i < offset + length && bytes[i] >= '0' && bytes[i] <= '7'; i++) {
+            value = (value << 3) + (bytes[i] - '0');
+        }
+        return value;
+    }
+
+    private static boolean isEndOfArchive(byte[] header) {
+        for (byte b : header) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean readBlock(InputStream inputStream, byte[] block) throws IOException {
+        int read = inputStream.readNBytes(block, 0, block.length);
+        if (read == 0) {
+            return false;
+        } else if (read < block.length) {
+            throw new EOFException("Unexpected end of the FHIR package archive.");
+        }
+        return true;
+    }
+
+    private static byte[] readContent(InputStream inputStream, long size) throws IOException {
+        if (size > Integer.MAX_VALUE - BLOCK_SIZE) {
+            throw new IOException("FHIR package entry is too large: " + size + " bytes");
+        }
+        byte[] content = inputStream.readNBytes((int) size);
+        if (content.length < size) {
+            throw new EOFException("Unexpected end of the FHIR package archive.");
+        }
+        inputStream.skipNBytes(padding(size));
+        return content;
+    }
+
+    private static void skip(InputStream inputStream, long size) throws IOException {
+        inputStream.skipNBytes(size + padding(size));
+    }
+
+    private static long padding(long size) {
+        return (BLOCK_SIZE - size % BLOCK_SIZE) % BLOCK_SIZE;
+    }
+
+    /**
+     * A definition file read from a FHIR package.
+     */
+    public static class PackageEntry {
+
+        private final String fileName;
+        private final String resourceType;
+        private final byte[] content;
+
+        PackageEntry(String fileName, String resourceType, byte[] content) {
+            this.fileName = fileName;
+            this.resourceType = resourceType;
+            this.content = content;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public String getResourceType() {
+            return resourceType;
+        }
+
+        public InputStream getContent() {
+            return new ByteArrayInputStream(content);
+        }
+    }
+}
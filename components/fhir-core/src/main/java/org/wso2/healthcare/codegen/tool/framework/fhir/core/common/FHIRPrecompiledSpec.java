@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.org).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.healthcare.codegen.tool.framework.fhir.core.common;
+
+import ca.uhn.fhir.context.FhirContext;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Precompiled form of the definitions bundled with the tool, i.e. the base data type profiles and the international
+ * search parameters, generated when the module is built.
+ * <p>
+ * Definitions are stored in Java serialized form, so that loading them doesn't run the FHIR JSON parser. The search
+ * parameters keep their index by base resource type, and are still only deserialized for the requested resource
+ * types. The artifact is ignored if it was generated with a different HAPI FHIR version, in which case the parsers
+ * fall back to the bundled JSON files.
+ */
+public class FHIRPrecompiledSpec {
+
+    private static final Log LOG = LogFactory.getLog(FHIRPrecompiledSpec.class);
+
+    private static final String MAGIC = "FHIR-PRECOMPILED-SPEC";
+    // Bump when the layout of the artifact changes.
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * JDK types held by the fields of the serialized FHIR model objects and cached values, as an object input filter
+     * pattern. Any other JDK type is rejected.
+     */
+    static final String JDK_TYPE_PATTERN = "java.lang.Object;java.lang.String;java.lang.Boolean;java.lang.Byte;" +
+            "java.lang.Short;java.lang.Integer;java.lang.Long;java.lang.Float;java.lang.Double;java.lang.Character;" +
+            "java.lang.Number;java.lang.Enum;java.math.BigDecimal;java.math.BigInteger;java.util.ArrayList;" +
+            "java.util.HashMap;java.util.LinkedHashMap;java.util.TreeMap;java.util.HashSet;java.util.LinkedHashSet;" +
+            "java.util.Date;java.util.TimeZone;java.util.SimpleTimeZone;sun.util.calendar.ZoneInfo";
+    private static final ObjectInputFilter DEFINITION_FILTER = ObjectInputFilter.Config.createFilter(
+            "maxdepth=500;maxrefs=2000000;maxbytes=16777216;" + JDK_TYPE_PATTERN +
+                    ";org.hl7.fhir.**;ca.uhn.fhir.**;!*");
+
+    private final Map<String, byte[]> baseDataTypes;
+    private final FHIRSearchParameterIndex searchParameterIndex;
+
+    private FHIRPrecompiledSpec(Map<String, byte[]> baseDataTypes, FHIRSearchParameterIndex searchParameterIndex) {
+        this.baseDataTypes = baseDataTypes;
+        this.searchParameterIndex = searchParameterIndex;
+    }
+
+    /**
+     * Returns the class path of the precompiled artifact of the given FHIR version.
+     *
+     * @param fhirVersion FHIR version, e.g. r4
+     * @return artifact class path
+     */
+    public static String getArtifactPath(String fhirVersion) {
+        return fhirVersion + "/precompiled/base-spec.bin";
+    }
+
+    /**
+     * Loads the precompiled artifact of the given FHIR version from the class path.
+     *
+     * @param classLoader class loader of the tool resources
+     * @param fhirVersion FHIR version, e.g. r4
+     * @return precompiled definitions, or null if the artifact is missing or can't be used
+     */
+    public static FHIRPrecompiledSpec load(ClassLoader classLoader, String fhirVersion) {
+        String artifactPath = getArtifactPath(fhirVersion);
+        try (InputStream inputStream = classLoader.getResourceAsStream(artifactPath)) {
+            if (inputStream == null) {
+                LOG.debug("Precompiled FHIR definitions not found, bundled JSON definitions are parsed.");
+                return null;
+            }
+            DataInputStream dataInputStream = new DataInputStream(new BufferedInputStream(inputStream));
+            if (!MAGIC.equals(dataInputStream.readUTF()) || dataInputStream.readInt() != FORMAT_VERSION ||
+                    !fhirVersion.equals(dataInputStream.readUTF()) ||
+                    !getHapiVersion().equals(dataInputStream.readUTF())) {
+                LOG.info("Precompiled FHIR definitions are not compatible, bundled JSON definitions are parsed.");
+                return null;
+            }
+            int baseDataTypeCount = dataInputStream.readInt();
+            Map<String, byte[]> baseDataTypes = new HashMap<>();
+            for (int i = 0; i < baseDataTypeCount; i++) {
+                String fileName = dataInputStream.readUTF();
+                byte[] definition = new byte[dataInputStream.readInt()];
+                dataInputStream.readFully(definition);
+                baseDataTypes.put(fileName, definition);
+            }
+            return new FHIRPrecompiledSpec(baseDataTypes, FHIRSearchParameterIndex.readFrom(dataInputStream));
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Unable to read the precompiled FHIR definitions: " + artifactPath, e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the precompiled artifact.
+     *
+     * @param outputStream         artifact output stream
+     * @param fhirVersion          FHIR version, e.g. r4
+     * @param baseDataTypes        base data type profiles by their file name
+     * @param searchParameterIndex index of the international search parameters
+     * @param definitionParser     parser of the search parameter entries
+     * @throws IOException if the artifact cannot be written
+     */
+    public static void write(OutputStream outputStream, String fhirVersion, Map<String, IBaseResource> baseDataTypes,
+                             FHIRSearchParameterIndex searchParameterIndex, FHIRDefinitionParser definitionParser)
+            throws IOException {
+        DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+        dataOutputStream.writeUTF(MAGIC);
+        dataOutputStream.writeInt(FORMAT_VERSION);
+        dataOutputStream.writeUTF(fhirVersion);
+        dataOutputStream.writeUTF(getHapiVersion());
+        dataOutputStream.writeInt(baseDataTypes.size());
+        for (Map.Entry<String, IBaseResource> baseDataType : baseDataTypes.entrySet()) {
+            byte[] definition = serialize(baseDataType.getValue());
+            dataOutputStream.writeUTF(baseDataType.getKey());
+            dataOutputStream.writeInt(definition.length);
+            dataOutputStream.write(definition);
+        }
+        searchParameterIndex.writeTo(dataOutputStream, definitionParser);
+        dataOutputStream.flush();
+    }
+
+    /**
+     * Returns a base data type profile. Each call returns a new instance of the definition.
+     *
+     * @param fileName         file name of the profile in the bundled base data types
+     * @param definitionParser parser whose options are applied to the definition
+     * @return base data type profile, or null if it is not precompiled
+     * @throws IllegalStateException if the definition cannot be deserialized
+     */
+    public IBaseResource getBaseDataType(String fileName, FHIRDefinitionParser definitionParser) {
+        byte[] definition = baseDataTypes.get(fileName);
+        return definition != null ? definitionParser.normalize(deserialize(definition, 0, definition.length)) : null;
+    }
+
+    public FHIRSearchParameterIndex getSearchParameterIndex() {
+        return searchParameterIndex;
+    }
+
+    static byte[] serialize(IBaseResource definition) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream)) {
+            objectOutputStream.writeObject((Serializable) definition);
+        }
+        return outputStream.toByteArray();
+    }
+
+    static IBaseResource deserialize(byte[] content, int offset, int length) {
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(
+                new ByteArrayInputStream(content, offset, length))) {
+            objectInputStream.setObjectInputFilter(DEFINITION_FILTER);
+            return (IBaseResource) objectInputStream.readObject();
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            throw new IllegalStateException("Error occurred while reading a precompiled FHIR definition.", e);
+        }
+    }
+
+    private static String getHapiVersion() {
+        return String.valueOf(FhirContext.class.getPackage().getImplementationVersion());
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.org).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.healthcare.codegen.tool.framework.fhir.core.common;
+
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.model.FHIRResourceDef;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.model.FHIRSearchParamDef;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reverse indexes over the profiles and search parameters of all the loaded implementation guides, answering which
+ * elements bind a value set, use an extension or have a type, and which search parameters apply to a resource type,
+ * without scanning every profile. Usages refer to elements by their id rather than holding the elements, so that
+ * lazily loaded definitions can still be released.
+ */
+public class FHIRReverseIndex {
+
+    private static final char VERSION_SEPARATOR = '|';
+
+    private final Map<String, List<ElementUsage>> bindingUsages = new HashMap<>();
+    private final Map<String, List<ElementUsage>> extensionUsages = new HashMap<>();
+    private final Map<String, List<ElementUsage>> typeUsages = new HashMap<>();
+    private final Map<String, List<FHIRSearchParamDef>> searchParameters = new HashMap<>();
+
+    /**
+     * Indexes an element of a profile. Called while the index is built, before it is published.
+     *
+     * @param resourceDef   profile the element belongs to
+     * @param elementId     element id
+     * @param path          element path
+     * @param valueSetUrl   bound value set, or null if the element is not bound
+     * @param typeCodes     type codes of the element
+     * @param extensionUrls profiles of the extension types of the element
+     */
+    public void addElement(FHIRResourceDef resourceDef, String elementId, String path, String valueSetUrl,
+                           List<String> typeCodes, List<String> extensionUrls) {
+        ElementUsage usage = new ElementUsage(resourceDef, elementId, path);
+        if (valueSetUrl != null) {
+            bindingUsages.computeIfAbsent(stripVersion(valueSetUrl), key -> new ArrayList<>()).add(usage);
+        }
+        for (String typeCode : typeCodes) {
+            if (typeCode != null) {
+                typeUsages.computeIfAbsent(typeCode, key -> new ArrayList<>()).add(usage);
+            }
+        }
+        for (String extensionUrl : extensionUrls) {
+            if (extensionUrl != null) {
+                extensionUsages.computeIfAbsent(stripVersion(extensionUrl), key -> new ArrayList<>()).add(usage);
+            }
+        }
+    }
+
+    /**
+     * Indexes a search parameter of an implementation guide by its base resource types.
+     *
+     * @param searchParamDef search parameter
+     */
+    public void addSearchParameter(FHIRSearchParamDef searchParamDef) {
+        for (Object baseResource : searchParamDef.getBaseResources()) {
+            searchParameters.computeIfAbsent((String) baseResource, key -> new ArrayList<>()).add(searchParamDef);
+        }
+    }
+
+    /**
+     * Returns the elements bound to the given value set.
+     *
+     * @param valueSetUrl value set canonical, versioned or not
+     * @return element usages, in the implementation guide and snapshot order
+     */
+    public List<ElementUsage> getBindingUsages(String valueSetUrl) {
+        return get(bindingUsages, stripVersion(valueSetUrl));
+    }
+
+    /**
+     * Returns the elements using the given extension.
+     *
+     * @param extensionUrl extension definition canonical, versioned or not
+     * @return element usages, in the implementation guide and snapshot order
+     */
+    public List<ElementUsage> getExtensionUsages(String extensionUrl) {
+        return get(extensionUsages, stripVersion(extensionUrl));
+    }
+
+    /**
+     * Returns the elements of the given type, including the choice type elements allowing it.
+     *
+     * @param typeCode type code, e.g. CodeableConcept
+     * @return element usages, in the implementation guide and snapshot order
+     */
+    public List<ElementUsage> getTypeUsages(String typeCode) {
+        return get(typeUsages, typeCode);
+    }
+
+    /**
+     * Returns the search parameters of the implementation guides which apply to the given resource type.
+     *
+     * @param resourceType base resource type, e.g. Patient
+     * @return search parameters of the implementation guides
+     */
+    public List<FHIRSearchParamDef> getSearchParameters(String resourceType) {
+        return get(searchParameters, resourceType);
+    }
+
+    /**
+     * Makes the indexed lists unmodifiable once the index is built.
+     */
+    void freeze() {
+        bindingUsages.replaceAll((key, usages) -> Collections.unmodifiableList(usages));
+        extensionUsages.replaceAll((key, usages) -> Collections.unmodifiableList(usages));
+        typeUsages.replaceAll((key, usages) -> Collections.unmodifiableList(usages));
+        searchParameters.replaceAll((key, searchParamDefs) -> Collections.unmodifiableList(searchParamDefs));
+    }
+
+    private static <T> List<T> get(Map<String, List<T>> index, String key) {
+        List<T> values = key != null ? index.get(key) : null;
+        return values != null ? values : Collections.emptyList();
+    }
+
+    private static String stripVersion(String canonical) {
+        if (canonical == null) {
+            return null;
+        }
+        int separatorIndex = canonical.indexOf(VERSION_SEPARATOR);
+        return separatorIndex >= 0 ? canonical.substring(0, separatorIndex) : canonical;
+    }
+
+    /**
+     * Element of a profile referring to an indexed value set, extension or type.
+     */
+    public static class ElementUsage {
+
+        private final FHIRResourceDef resourceDef;
+        private final String elementId;
+        private final String path;
+
+        private ElementUsage(FHIRResourceDef resourceDef, String elementId, String path) {
+            this.resourceDef = resourceDef;
+            this.elementId = elementId;
+            this.path = path;
+        }
+
+        public FHIRResourceDef getResourceDef() {
+            return resourceDef;
+        }
+
+        /**
+         * Returns the id of the element, which can be looked up in the element index of the profile.
+         *
+         * @return element id
+         */
+        public String getElementId() {
+            return elementId;
+        }
+
+        public String getPath() {
+            return path;
+        }
+    }
+}
@@ -0,0 +1,432 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.org).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.healthcare.codegen.tool.framework.fhir.core.common;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the search parameters of a FHIR bundle by their base resource types.
+ * <p>
+ * The bundle JSON is scanned once without building a tree, recording the byte range of each search parameter entry
+ * against its base resource types. Search parameters are then parsed only for the resource types which are requested,
+ * and each entry is parsed at most once, as a search parameter may apply to several resource types.
+ * <p>
+ * The index can also be written in a precompiled form, where each entry holds the Java serialized search parameter
+ * instead of its JSON, so that entries are deserialized rather than parsed on use.
+ */
+public class FHIRSearchParameterIndex {
+
+    private static final Log LOG = LogFactory.getLog(FHIRSearchParameterIndex.class);
+
+    private final byte[] content;
+    private final List<IndexEntry> entries;
+    private final boolean serialized;
+    private final Map<String, List<IndexEntry>> entriesByBase = new HashMap<>();
+
+    private FHIRSearchParameterIndex(byte[] content, List<IndexEntry> entries, boolean serialized) {
+        this.content = content;
+        this.entries = entries;
+        this.serialized = serialized;
+        for (IndexEntry entry : entries) {
+            for (String base : entry.bases) {
+                entriesByBase.computeIfAbsent(base, key -> new ArrayList<>()).add(entry);
+            }
+        }
+    }
+
+    /**
+     * Scans the given search parameter bundle.
+     *
+     * @param content UTF-8 encoded bundle JSON
+     * @return search parameter index
+     * @throws IllegalArgumentException if the content is not a valid JSON object
+     */
+    public static FHIRSearchParameterIndex scan(byte[] content) {
+        return new FHIRSearchParameterIndex(content, new Scanner(content).scanBundle(), false);
+    }
+
+    /**
+     * Reads an index in the precompiled form.
+     *
+     * @param inputStream precompiled index input stream
+     * @return search parameter index
+     * @throws IOException if the index cannot be read
+     */
+    public static FHIRSearchParameterIndex readFrom(DataInputStream inputStream) throws IOException {
+        int entryCount = inputStream.readInt();
+        List<IndexEntry> entries = new ArrayList<>(entryCount);
+        for (int i = 0; i < entryCount; i++) {
+            int start = inputStream.readInt();
+            int end = inputStream.readInt();
+            int baseCount = inputStream.readInt();
+            List<String> bases = new ArrayList<>(baseCount);
+            for (int j = 0; j < baseCount; j++) {
+                bases.add(inputStream.readUTF());
+            }
+            entries.add(new IndexEntry(start, end, bases));
+        }
+        byte[] content = new byte[inputStream.readInt()];
+        inputStream.readFully(content);
+        return new FHIRSearchParameterIndex(content, entries, true);
+    }
+
+    /**
+     * Writes the index in the precompiled form. Entries which cannot be parsed are logged and left out.
+     *
+     * @param outputStream     precompiled index output stream
+     * @param definitionParser parser of the search parameter entries
+     * @throws IOException if the index cannot be written
+     */
+    public void writeTo(DataOutputStream outputStream, FHIRDefinitionParser definitionParser) throws IOException {
+        ByteArrayOutputStream serializedContent = new ByteArrayOutputStream();
+        List<IndexEntry> serializedEntries = new ArrayList<>(entries.size());
+        for (IndexEntry entry : entries) {
+            byte[] searchParameter;
+            try {
+                searchParameter = FHIRPrecompiledSpec.serialize(readEntry(entry, definitionParser));
+            } catch (RuntimeException e) {
+                LOG.error("Error occurred while parsing the search parameter at offset: " + entry.start, e);
+                continue;
+            }
+            int start = serializedContent.size();
+            serializedContent.write(searchParameter);
+            serializedEntries.add(new IndexEntry(start, serializedContent.size(), entry.bases));
+        }
+        outputStream.writeInt(serializedEntries.size());
+        for (IndexEntry entry : serializedEntries) {
+            outputStream.writeInt(entry.start);
+            outputStream.writeInt(entry.end);
+            outputStream.writeInt(entry.bases.size());
+            for (String base : entry.bases) {
+                outputStream.writeUTF(base);
+            }
+        }
+        outputStream.writeInt(serializedContent.size());
+        serializedContent.writeTo(outputStream);
+    }
+
+    /**
+     * Returns the number of search parameters in the bundle.
+     *
+     * @return search parameter count
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the search parameters of the given base resource type, in the bundle order. Entries which cannot be
+     * parsed are logged and left out.
+     *
+     * @param resourceType     base resource type
+     * @param definitionParser parser of the search parameter entries
+     * @return parsed search parameters
+     */
+    public synchronized List<IBaseResource> getSearchParameters(String resourceType,
+                                                                FHIRDefinitionParser definitionParser) {
+        List<IndexEntry> baseEntries = entriesByBase.get(resourceType);
+        if (baseEntries == null) {
+            return Collections.emptyList();
+        }
+        List<IBaseResource> searchParameters = new ArrayList<>(baseEntries.size());
+        for (IndexEntry entry : baseEntries) {
+            if (entry.searchParameter == null && !entry.failed) {
+                try {
+                    entry.searchParameter = readEntry(entry, definitionParser);
+                } catch (RuntimeException e) {
+                    entry.failed = true;
+                    LOG.error("Error occurred while reading the search parameter at offset: " + entry.start, e);
+                }
+            }
+            if (entry.searchParameter != null) {
+                searchParameters.add(entry.searchParameter);
+            }
+        }
+        return searchParameters;
+    }
+
+    private IBaseResource readEntry(IndexEntry entry, FHIRDefinitionParser definitionParser) {
+        if (serialized) {
+            return definitionParser.normalize(
+                    FHIRPrecompiledSpec.deserialize(content, entry.start, entry.end - entry.start));
+        }
+        return definitionParser.parse(new ByteArrayInputStream(content, entry.start, entry.end - entry.start));
+    }
+
+    /**
+     * Byte range and base resource types of a search parameter entry.
+     */
+    private static class IndexEntry {
+
+        private final int start;
+        private final int end;
+        private final List<String> bases;
+        private IBaseResource searchParameter;
+        private boolean failed;
+
+        IndexEntry(int start, int end, List<String> bases) {
+            this.start = start;
+            this.end = end;
+            this.bases = bases;
+        }
+    }
+
+    /**
+     * Minimal JSON scanner, which walks the bundle structure and skips over every other value.
+     */
+    private static class Scanner {
+
+        private final byte[] content;
+        private int pos;
+
+        Scanner(byte[] content) {
+            this.content = content;
+        }
+
+        List<IndexEntry> scanBundle() {
+            List<IndexEntry> entries = new ArrayList<>();
+            skipByteOrderMark();
+            beginObject();
+            while (hasNextMember()) {
+                if ("entry".equals(nextName())) {
+                    scanEntries(entries);
+                } else {
+                    skipValue();
+                }
+            }
+            return entries;
+        }
+
+        private void scanEntries(List<IndexEntry> entries) {
+            expect('[');
+            while (hasNextElement()) {
+                beginObject();
+                while (hasNextMember()) {
+                    if ("resource".equals(nextName())) {
+                        skipWhitespace();
+                        int start = pos;
+                        List<String> bases = new ArrayList<>();
+                        String resourceType = scanResource(bases);
+                        if ("SearchParameter".equals(resourceType)) {
+                            entries.add(new IndexEntry(start, pos, bases));
+                        }
+                    } else {
+                        skipValue();
+                    }
+                }
+            }
+        }
+
+        private String scanResource(List<String> bases) {
+            String resourceType = null;
+            beginObject();
+            while (hasNextMember()) {
+                String name = nextName();
+                if ("resourceType".equals(name)) {
+                    skipWhitespace();
+                    resourceType = readString();
+                } else if ("base".equals(name)) {
+                    expect('[');
+                    while (hasNextElement()) {
+                        skipWhitespace();
+                        bases.add(readString());
+                    }
+                } else {
+                    skipValue();
+                }
+            }
+            return resourceType;
+        }
+
+        private void beginObject() {
+            expect('{');
+        }
+
+        /**
+         * Returns whether the current object has another member, consuming the separator or the closing brace.
+         */
+        private boolean hasNextMember() {
+            return hasNext('}');
+        }
+
+        /**
+         * Returns whether the current array has another element, consuming the separator or the closing bracket.
+         */
+        private boolean hasNextElement() {
+            return hasNext(']');
+        }
+
+        private boolean hasNext(char close) {
+            skipWhitespace();
+            byte b = peek();
+            if (b == close) {
+                pos++;
+                return false;
+            }
+            if (b == ',') {
+                pos++;
+                skipWhitespace();
+                if (peek() == close) {
+                    throw error("Unexpected '" + close + "'");
+                }
+            }
+            return true;
+        }
+
+        private String nextName() {
+            skipWhitespace();
+            String name = readString();
+            expect(':');
+            return name;
+        }
+
+        private void expect(char expected) {
+            skipWhitespace();
+            if (peek() != expected) {
+                throw error("Expected '" + expected + "'");
+            }
+            pos++;
+        }
+
+        private String readString() {
+            if (peek() != '"') {
+                throw error("Expected a string");
+            }
+            int start = ++pos;
+            boolean escaped = false;
+            while (peek() != '"') {
+                if (content[pos] == '\\') {
+                    escaped = true;
+                    pos++;
+                }
+                pos++;
+            }
+            String value = new String(content, start, pos - start, StandardCharsets.UTF_8);
+            pos++;
+            return escaped ? unescape(value) : value;
+        }
+
+        private void skipValue() {
+            skipWhitespace();
+            byte b = peek();
+            if (b == '"') {
+                readString();
+            } else if (b == '{' || b == '[') {
+                int depth = 0;
+                do {
+                    b = peek();
+                    if (b == '"') {
+                        readString();
+                        continue;
+                    }
+                    if (b == '{' || b == '[') {
+                        depth++;
+                    } else if (b == '}' || b == ']') {
+                        depth--;
+                    }
+                    pos++;
+                } while (depth > 0);
+            } else {
+                // number, boolean or null
+                while (pos < content.length && content[pos] != ',' && content[pos] != '}' && content[pos] != ']' &&
+                        !isWhitespace(content[pos])) {
+                    pos++;
+                }
+            }
+        }
+
+        private void skipWhitespace() {
+            while (pos < content.length && isWhitespace(content[pos])) {
+                pos++;
+            }
+        }
+
+        private void skipByteOrderMark() {
+            if (content.length >= 3 && (content[0] & 0xFF) == 0xEF && (content[1] & 0xFF) == 0xBB &&
+                    (content[2] & 0xFF) == 0xBF) {
+                pos = 3;
+            }
+        }
+
+        private byte peek() {
+            if (pos >= content.length) {
+                throw error("Unexpected end of content");
+            }
+            return content[pos];
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at offset: " + pos);
+        }
+
+        private static boolean isWhitespace(byte b) {
+            return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+        }
+
+        private static String unescape(String value) {
+            StringBuilder builder = new StringBuilder(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c != '\\' || i + 1 >= value.length()) {
+                    builder.append(c);
+                    continue;
+                }
+                char escapedChar = value.charAt(++i);
+                switch (escapedChar) {
+                    case 'n':
+                        builder.append('\n');
+                        break;
+                    case 't':
+                        builder.append('\t');
+                        break;
+                    case 'r':
+                        builder.append('\r');
+                        break;
+                    case 'b':
+                        builder.append('\b');
+                        break;
+                    case 'f':
+                        builder.append('\f');
+                        break;
+                    case 'u':
+                        builder.append((char) Integer.parseInt(value.substring(i + 1, i + 5), 16));
+                        i += 4;
+                        break;
+                    default:
+                        builder.append(escapedChar);
+                }
+            }
+            return builder.toString();
+        }
+    }
+}
@@ -21,27 +21,168 @@ package org.wso2.healthcare.codegen.tool.framework.fhir.core.common;
 import org.wso2.healthcare.codegen.tool.framework.commons.core.SpecificationData;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.model.FHIRDataTypeDef;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.model.FHIRImplementationGuide;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.model.FHIRResourceDef;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.model.FHIRSearchParamDef;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.model.FHIRTerminologyDef;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 
+/**
+ * Holder of the parsed FHIR specification data.
+ * <p>
+ * While definitions are loaded, the data accepts concurrent additions. Once parsing completes the data is frozen,
+ * replacing the maps with unmodifiable copies which generators can read from any thread without locking. Frozen data
+ * rejects updates, including replacing its maps, and is thawed again before a re-parse. Data published for other runs
+ * to share is never thawed again, a {@link #copy()} of it is re-parsed instead.
+ */
 public abstract class FHIRSpecificationData implements SpecificationData {
-    protected Map<String, FHIRDataTypeDef> dataTypes;
-    protected Map<String, FHIRTerminologyDef> valueSets;
-    protected Map<String, FHIRTerminologyDef> codeSystems;
-    private Map<String, FHIRImplementationGuide> fhirImplementationGuides;
-    private final HashMap<String, List<FHIRSearchParamDef>> internationalSpecSearchParameters = new HashMap<>();
+    // replaced when frozen and thawed, so that readers see the published maps without locking
+    protected volatile Map<String, FHIRDataTypeDef> dataTypes;
+    protected volatile Map<String, FHIRTerminologyDef> valueSets;
+    protected volatile Map<String, FHIRTerminologyDef> codeSystems;
+    private volatile Map<String, FHIRImplementationGuide> fhirImplementationGuides;
+    private final Map<String, List<FHIRSearchParamDef>> internationalSpecSearchParameters = new ConcurrentHashMap<>();
+    private volatile Function<String, List<FHIRSearchParamDef>> internationalSearchParameterLoader;
+    private final Map<String, FHIRDefinitionManifest> definitionManifests = new ConcurrentHashMap<>();
+    private volatile boolean baseDefinitionsLoaded;
+    private volatile FHIRCanonicalRegistry canonicalRegistry = new FHIRCanonicalRegistry();
+    private volatile boolean frozen;
+    private volatile boolean published;
+    // built on first use, and discarded when thawed
+    private FHIRReverseIndex reverseIndex;
+    private FHIRReverseIndex searchParameterIndex;
+    private FHIRDependencyGraph dependencyGraph;
 
     public FHIRSpecificationData (){
-        this.dataTypes = new HashMap<>();
-        this.fhirImplementationGuides = new HashMap<>();
-        this.valueSets = new HashMap<>();
-        this.codeSystems = new HashMap<>();
+        this.dataTypes = new ConcurrentHashMap<>();
+        this.fhirImplementationGuides = new ConcurrentHashMap<>();
+        this.valueSets = new ConcurrentHashMap<>();
+        this.codeSystems = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Freezes the data once parsing completes. The maps are replaced with unmodifiable copies, and further additions
+     * are rejected until the data is thawed.
+     */
+    public synchronized void freeze() {
+        if (frozen) {
+            return;
+        }
+        dataTypes = Collections.unmodifiableMap(new HashMap<>(dataTypes));
+        valueSets = Collections.unmodifiableMap(new HashMap<>(valueSets));
+        codeSystems = Collections.unmodifiableMap(new HashMap<>(codeSystems));
+        for (FHIRImplementationGuide implementationGuide : fhirImplementationGuides.values()) {
+            implementationGuide.freeze();
+        }
+        fhirImplementationGuides = Collections.unmodifiableMap(new HashMap<>(fhirImplementationGuides));
+        // search parameters of the other resource types are still loaded on first use
+        internationalSpecSearchParameters.replaceAll((resourceType, searchParameters) ->
+                Collections.unmodifiableList(new ArrayList<>(searchParameters)));
+        frozen = true;
+    }
+
+    /**
+     * Makes frozen data mutable again, so that a re-parse can update it. Readers of the frozen data keep their view.
+     *
+     * @throws IllegalStateException if the data is published
+     */
+    public synchronized void thaw() {
+        if (!frozen) {
+            return;
+        }
+        if (published) {
+            throw new IllegalStateException("FHIR specification data is published, a copy of it should be re-parsed.");
+        }
+        dataTypes = new ConcurrentHashMap<>(dataTypes);
+        valueSets = new ConcurrentHashMap<>(valueSets);
+        codeSystems = new ConcurrentHashMap<>(codeSystems);
+        for (FHIRImplementationGuide implementationGuide : fhirImplementationGuides.values()) {
+            implementationGuide.thaw();
+        }
+        fhirImplementationGuides = new ConcurrentHashMap<>(fhirImplementationGuides);
+        internationalSpecSearchParameters.replaceAll((resourceType, searchParameters) ->
+                new ArrayList<>(searchParameters));
+        reverseIndex = null;
+        searchParameterIndex = null;
+        dependencyGraph = null;
+        frozen = false;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Freezes the data and marks it as published, once it is shared with other runs. Published data is never thawed,
+     * as other runs may still be reading it.
+     */
+    public synchronized void publish() {
+        freeze();
+        published = true;
+    }
+
+    public boolean isPublished() {
+        return published;
+    }
+
+    /**
+     * Returns a mutable copy of this data, to be re-parsed incrementally from the definitions and manifests of this
+     * data while this data is still read. The parsed definitions are shared, while the maps, manifests and resource
+     * definitions holding the links between the profiles are copied.
+     *
+     * @return copied specification data, which is not frozen
+     */
+    public abstract FHIRSpecificationData copy();
+
+    /**
+     * Copies the parsed data into a new instance of the same FHIR version.
+     *
+     * @param copy           new specification data
+     * @param resourceCopier copies a resource definition, without its parent resource and ancestors
+     */
+    @SuppressWarnings("unchecked")
+    protected synchronized void copyTo(FHIRSpecificationData copy, UnaryOperator<FHIRResourceDef> resourceCopier) {
+        copy.dataTypes.putAll(dataTypes);
+        copy.valueSets.putAll(valueSets);
+        copy.codeSystems.putAll(codeSystems);
+        // parents are linked to the copied resource definitions, so that relinking the copy doesn't affect this data
+        Map<FHIRResourceDef, FHIRResourceDef> copiedResources = new IdentityHashMap<>();
+        for (Map.Entry<String, FHIRImplementationGuide> igEntry : fhirImplementationGuides.entrySet()) {
+            copy.fhirImplementationGuides.put(igEntry.getKey(), igEntry.getValue().copy(resourceDef -> {
+                FHIRResourceDef resourceCopy = resourceCopier.apply(resourceDef);
+                copiedResources.put(resourceDef, resourceCopy);
+                return resourceCopy;
+            }));
+        }
+        for (Map.Entry<FHIRResourceDef, FHIRResourceDef> copiedResource : copiedResources.entrySet()) {
+            Object parentResource = copiedResource.getKey().getParentResource();
+            copiedResource.getValue().setParentResource(copiedResources.get(parentResource));
+        }
+        for (Map.Entry<String, List<FHIRSearchParamDef>> searchParameters :
+                internationalSpecSearchParameters.entrySet()) {
+            copy.internationalSpecSearchParameters.put(searchParameters.getKey(),
+                    new ArrayList<>(searchParameters.getValue()));
+        }
+        copy.internationalSearchParameterLoader = internationalSearchParameterLoader;
+        for (Map.Entry<String, FHIRDefinitionManifest> manifestEntry : definitionManifests.entrySet()) {
+            copy.definitionManifests.put(manifestEntry.getKey(), manifestEntry.getValue().copy());
+        }
+        copy.baseDefinitionsLoaded = baseDefinitionsLoaded;
+    }
+
+    protected void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("FHIR specification data is frozen, it should be thawed to be updated.");
+        }
     }
 
     public Map<String, FHIRDataTypeDef> getDataTypes() {
@@ -49,10 +190,12 @@ public abstract class FHIRSpecificationData implements SpecificationData {
     }
 
     public void addDataType(String id, FHIRDataTypeDef dataTypeDef) {
+        checkNotFrozen();
         dataTypes.putIfAbsent(id, dataTypeDef);
     }
 
     public void setDataTypes(Map<String, FHIRDataTypeDef> dataTypes) {
+        checkNotFrozen();
         this.dataTypes = dataTypes;
     }
 
@@ -61,14 +204,17 @@ public abstract class FHIRSpecificationData implements SpecificationData {
     }
 
     public void addFhirImplementationGuide(String igName, FHIRImplementationGuide implementationGuide) {
+        checkNotFrozen();
         fhirImplementationGuides.putIfAbsent(igName, implementationGuide);
     }
 
     public void setFhirImplementationGuides(Map<String, FHIRImplementationGuide> fhirImplementationGuides) {
+        checkNotFrozen();
         this.fhirImplementationGuides = fhirImplementationGuides;
     }
 
     public void addValueSet(String id, FHIRTerminologyDef terminologyDef) {
+        checkNotFrozen();
         this.valueSets.putIfAbsent(id, terminologyDef);
     }
 
@@ -77,11 +223,13 @@ public abstract class FHIRSpecificationData implements SpecificationData {
     }
 
     public void setValueSets(Map<String, FHIRTerminologyDef> valueSets) {
+        checkNotFrozen();
         this.valueSets = valueSets;
     }
 
 
     public void addCodeSystem(String id, FHIRTerminologyDef terminologyDef) {
+        checkNotFrozen();
         this.codeSystems.putIfAbsent(id, terminologyDef);
     }
 
@@ -90,22 +238,174 @@ public abstract class FHIRSpecificationData implements SpecificationData {
     }
 
     public void setCodeSystems(Map<String, FHIRTerminologyDef> codeSystems) {
+        checkNotFrozen();
         this.codeSystems = codeSystems;
     }
 
     public void addInternationalSearchParameter(String resourceType, FHIRSearchParamDef searchParameter) {
-        if (!internationalSpecSearchParameters.containsKey(resourceType)) {
-            internationalSpecSearchParameters.put(resourceType, new ArrayList<>() {
-                {
-                    add(searchParameter);
-                }
+        checkNotFrozen();
+        // the search parameter list of a resource type is only updated while holding its map entry
+        internationalSpecSearchParameters.compute(resourceType, (key, searchParameters) -> {
+            if (searchParameters == null) {
+                searchParameters = internationalSearchParameterLoader != null ?
+                        internationalSearchParameterLoader.apply(key) : new ArrayList<>();
+            }
+            searchParameters.add(searchParameter);
+            return searchParameters;
+        });
+    }
+
+    public List<FHIRSearchParamDef> getInternationalSearchParameters(String resourceType) {
+        List<FHIRSearchParamDef> searchParameters = internationalSpecSearchParameters.get(resourceType);
+        if (searchParameters == null && internationalSearchParameterLoader != null) {
+            searchParameters = internationalSpecSearchParameters.computeIfAbsent(resourceType, key -> {
+                List<FHIRSearchParamDef> loadedSearchParameters = internationalSearchParameterLoader.apply(key);
+                return frozen ? Collections.unmodifiableList(loadedSearchParameters) : loadedSearchParameters;
             });
-        } else {
-            internationalSpecSearchParameters.get(resourceType).add(searchParameter);
         }
+        return searchParameters != null ? searchParameters : Collections.emptyList();
     }
 
-    public List<FHIRSearchParamDef> getInternationalSearchParameters(String resourceType) {
-        return internationalSpecSearchParameters.getOrDefault(resourceType, Collections.emptyList());
+    /**
+     * Sets the loader of the international search parameters, which is called once per resource type on first use.
+     *
+     * @param internationalSearchParameterLoader returns a mutable list of the search parameters of a resource type
+     */
+    public void setInternationalSearchParameterLoader(
+            Function<String, List<FHIRSearchParamDef>> internationalSearchParameterLoader) {
+        checkNotFrozen();
+        this.internationalSearchParameterLoader = internationalSearchParameterLoader;
+    }
+
+    /**
+     * Returns the registry of the resource definitions of all the implementation guides by their canonical url.
+     *
+     * @return canonical registry, rebuilt on each parse
+     */
+    public FHIRCanonicalRegistry getCanonicalRegistry() {
+        return canonicalRegistry;
+    }
+
+    public void setCanonicalRegistry(FHIRCanonicalRegistry canonicalRegistry) {
+        checkNotFrozen();
+        this.canonicalRegistry = canonicalRegistry;
+    }
+
+    /**
+     * Returns the reverse indexes over the profiles and search parameters of all the implementation guides. The
+     * indexes are built in a single pass on first use after parsing.
+     *
+     * @return reverse index
+     */
+    public synchronized FHIRReverseIndex getReverseIndex() {
+        if (reverseIndex == null) {
+            FHIRReverseIndex index = new FHIRReverseIndex();
+            for (String igName : new TreeSet<>(fhirImplementationGuides.keySet())) {
+                FHIRImplementationGuide implementationGuide = fhirImplementationGuides.get(igName);
+                for (FHIRResourceDef resourceDef : implementationGuide.getResources().values()) {
+                    indexElements(index, resourceDef);
+                }
+                for (FHIRSearchParamDef searchParamDef : implementationGuide.getSearchParameters().values()) {
+                    index.addSearchParameter(searchParamDef);
+                }
+            }
+            index.freeze();
+            reverseIndex = index;
+        }
+        return reverseIndex;
+    }
+
+    /**
+     * Returns the index of the search parameters of all the implementation guides by their base resource types. It is
+     * built on first use after parsing, separately from the element indexes of {@link #getReverseIndex()}, so that
+     * looking up search parameters doesn't load lazily loaded profiles.
+     *
+     * @return search parameter index, which has no element usages
+     */
+    public synchronized FHIRReverseIndex getSearchParameterIndex() {
+        if (searchParameterIndex == null) {
+            FHIRReverseIndex index = new FHIRReverseIndex();
+            for (String igName : new TreeSet<>(fhirImplementationGuides.keySet())) {
+                for (FHIRSearchParamDef searchParamDef :
+                        fhirImplementationGuides.get(igName).getSearchParameters().values()) {
+                    index.addSearchParameter(searchParamDef);
+                }
+            }
+            index.freeze();
+            searchParameterIndex = index;
+        }
+        return searchParameterIndex;
+    }
+
+    /**
+     * Returns the dependency graph of the profiles, data types and terminologies. The graph is built on first use
+     * after parsing.
+     *
+     * @return dependency graph
+     */
+    public synchronized FHIRDependencyGraph getDependencyGraph() {
+        if (dependencyGraph == null) {
+            FHIRDependencyGraph graph = new FHIRDependencyGraph();
+            addDependencies(graph);
+            dependencyGraph = graph;
+        }
+        return dependencyGraph;
+    }
+
+    /**
+     * Returns the search parameters which apply to the given resource type, from the international specification
+     * followed by the ones of the implementation guides.
+     *
+     * @param resourceType base resource type, e.g. Patient
+     * @return search parameters of the resource type
+     */
+    public List<FHIRSearchParamDef> getAllSearchParameters(String resourceType) {
+        List<FHIRSearchParamDef> igSearchParameters = getSearchParameterIndex().getSearchParameters(resourceType);
+        List<FHIRSearchParamDef> internationalSearchParameters = getInternationalSearchParameters(resourceType);
+        List<FHIRSearchParamDef> searchParameters =
+                new ArrayList<>(internationalSearchParameters.size() + igSearchParameters.size());
+        searchParameters.addAll(internationalSearchParameters);
+        searchParameters.addAll(igSearchParameters);
+        return searchParameters;
+    }
+
+    /**
+     * Adds the snapshot elements of a profile to the reverse index.
+     *
+     * @param index       reverse index being built
+     * @param resourceDef profile
+     */
+    protected abstract void indexElements(FHIRReverseIndex index, FHIRResourceDef resourceDef);
+
+    /**
+     * Adds the profiles, data types and terminologies, and their dependencies, to the dependency graph.
+     *
+     * @param graph dependency graph being built
+     */
+    protected abstract void addDependencies(FHIRDependencyGraph graph);
+
+    /**
+     * Returns whether the definitions bundled with the tool, i.e. the base data types and the international search
+     * parameters, are already loaded. They don't change between parses.
+     *
+     * @return true if the bundled definitions are loaded
+     */
+    public boolean isBaseDefinitionsLoaded() {
+        return baseDefinitionsLoaded;
+    }
+
+    public void setBaseDefinitionsLoaded(boolean baseDefinitionsLoaded) {
+        checkNotFrozen();
+        this.baseDefinitionsLoaded = baseDefinitionsLoaded;
+    }
+
+    /**
+     * Returns the manifest of the definition files loaded from the given terminology or data type profile directory.
+     *
+     * @param dirPath definition directory path
+     * @return definition file manifest
+     */
+    public FHIRDefinitionManifest getDefinitionManifest(String dirPath) {
+        return definitionManifests.computeIfAbsent(dirPath, key -> new FHIRDefinitionManifest());
     }
 }
@@ -0,0 +1,349 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.org).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.healthcare.codegen.tool.framework.fhir.core.common;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Dictionary encoded store of resolved value set expansions. Each distinct concept, i.e. system and code, is stored
+ * once with the display it was first added with and shared by all the value sets including it, with its system
+ * interned. A value set is stored as an array of concept ids sorted by code, with the displays of its concepts which
+ * differ from the stored ones. {@link #getCodings(String, CodingFactory)} provides the codings of a value set as a map
+ * keyed by code, creating the codings on access.
+ * <p>
+ * A store is not thread safe while it is modified. Once resolved, it is only read, and it is updated on a
+ * {@link #copy()} which replaces it.
+ */
+public class FHIRTerminologyStore implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Map<String, Integer> systemIds = new HashMap<>();
+    private String[] systems = new String[8];
+    private int systemCount;
+    private int[] conceptSystems = new int[64];
+    private String[] codes = new String[64];
+    private String[] displays = new String[64];
+    private int conceptCount;
+    private final Map<String, ValueSetConcepts> valueSets = new HashMap<>();
+    // rebuilt after deserialization, only needed while concepts are added
+    private transient Map<ConceptKey, Integer> conceptIds;
+
+    /**
+     * Returns a copy of this store, which can be updated without affecting the readers of this store.
+     *
+     * @return copied store
+     */
+    public FHIRTerminologyStore copy() {
+        FHIRTerminologyStore store = new FHIRTerminologyStore();
+        store.systemIds.putAll(systemIds);
+        store.systems = Arrays.copyOf(systems, systems.length);
+        store.systemCount = systemCount;
+        store.conceptSystems = Arrays.copyOf(conceptSystems, conceptSystems.length);
+        store.codes = Arrays.copyOf(codes, codes.length);
+        store.displays = Arrays.copyOf(displays, displays.length);
+        store.conceptCount = conceptCount;
+        // stored value sets are not modified, only replaced
+        store.valueSets.putAll(valueSets);
+        return store;
+    }
+
+    /**
+     * Adds a concept, or returns the id of the concept of the same system and code if it is already stored. The
+     * display is stored with a new concept, and a differing display is kept with the value set by
+     * {@link #putValueSet(String, int[], String[])}.
+     *
+     * @param system  code system url
+     * @param code    code
+     * @param display display, or null
+     * @return concept id
+     */
+    public int addConcept(String system, String code, String display) {
+        int systemId = getSystemId(system);
+        ConceptKey key = new ConceptKey(systemId, code);
+        Integer conceptId = getConceptIds().get(key);
+        if (conceptId != null) {
+            return conceptId;
+        }
+        if (conceptCount == codes.length) {
+            conceptSystems = Arrays.copyOf(conceptSystems, conceptCount * 2);
+            codes = Arrays.copyOf(codes, conceptCount * 2);
+            displays = Arrays.copyOf(displays, conceptCount * 2);
+        }
+        conceptSystems[conceptCount] = systemId;
+        codes[conceptCount] = code;
+        displays[conceptCount] = display;
+        conceptIds.put(key, conceptCount);
+        return conceptCount++;
+    }
+
+    /**
+     * Stores the expansion of a value set with the stored displays of its concepts, replacing a previous expansion
+     * of it. A code should only appear once.
+     *
+     * @param url        value set url
+     * @param conceptIds ids of the concepts of the value set
+     */
+    public void putValueSet(String url, int[] conceptIds) {
+        putValueSet(url, conceptIds, null);
+    }
+
+    /**
+     * Stores the expansion of a value set, replacing a previous expansion of it. A code should only appear once.
+     *
+     * @param url        value set url
+     * @param conceptIds ids of the concepts of the value set
+     * @param displays   displays of the concepts in the value set, in the order of the concept ids, or null to use
+     *                   the stored displays
+     */
+    public void putValueSet(String url, int[] conceptIds, String[] displays) {
+        Integer[] order = new Integer[conceptIds.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (first, second) -> compareCodes(codes[conceptIds[first]], codes[conceptIds[second]]));
+        int[] concepts = new int[order.length];
+        Map<Integer, String> displayOverrides = null;
+        for (int i = 0; i < order.length; i++) {
+            concepts[i] = conceptIds[order[i]];
+            if (displays != null && !Objects.equals(displays[order[i]], this.displays[concepts[i]])) {
+                if (displayOverrides == null) {
+                    displayOverrides = new HashMap<>();
+                }
+                displayOverrides.put(i, displays[order[i]]);
+            }
+        }
+        valueSets.put(url, new ValueSetConcepts(concepts, displayOverrides));
+    }
+
+    public void removeValueSet(String url) {
+        valueSets.remove(url);
+    }
+
+    public boolean containsValueSet(String url) {
+        return valueSets.containsKey(url);
+    }
+
+    /**
+     * @return unmodifiable urls of the stored value sets
+     */
+    public Set<String> getValueSetUrls() {
+        return Collections.unmodifiableSet(valueSets.keySet());
+    }
+
+    public int getConceptCount() {
+        return conceptCount;
+    }
+
+    /**
+     * Returns the codings of a value set keyed by code. The map is an unmodifiable view over the store, which creates
+     * a coding on every access, so callers should keep the codings they reuse.
+     *
+     * @param url           value set url
+     * @param codingFactory creates the codings
+     * @param <C>           coding type
+     * @return codings keyed by code, or null if the value set is not stored
+     */
+    public <C> Map<String, C> getCodings(String url, CodingFactory<C> codingFactory) {
+        ValueSetConcepts concepts = valueSets.get(url);
+        return concepts != null ? new CodingMap<>(concepts, codingFactory) : null;
+    }
+
+    private int getSystemId(String system) {
+        Integer systemId = systemIds.get(system);
+        if (systemId == null) {
+            if (systemCount == systems.length) {
+                systems = Arrays.copyOf(systems, systemCount * 2);
+            }
+            systems[systemCount] = system;
+            systemId = systemCount++;
+            systemIds.put(system, systemId);
+        }
+        return systemId;
+    }
+
+    private Map<ConceptKey, Integer> getConceptIds() {
+        if (conceptIds == null) {
+            conceptIds = new HashMap<>();
+            for (int i = 0; i < conceptCount; i++) {
+                conceptIds.put(new ConceptKey(conceptSystems[i], codes[i]), i);
+            }
+        }
+        return conceptIds;
+    }
+
+    private static int compareCodes(String first, String second) {
+        if (first == null || second == null) {
+            return first == null ? (second == null ? 0 : -1) : 1;
+        }
+        return first.compareTo(second);
+    }
+
+    /**
+     * Creates the coding of a stored concept.
+     *
+     * @param <C> coding type
+     */
+    @FunctionalInterface
+    public interface CodingFactory<C> {
+
+        C create(String system, String code, String display);
+    }
+
+    private static final class ConceptKey {
+
+        private final int systemId;
+        private final String code;
+
+        private ConceptKey(int systemId, String code) {
+            this.systemId = systemId;
+            this.code = code;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof ConceptKey)) {
+                return false;
+            }
+            ConceptKey key = (ConceptKey) other;
+            return systemId == key.systemId && Objects.equals(code, key.code);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(systemId, code);
+        }
+    }
+
+    /**
+     * Concepts of a value set sorted by code, with the displays differing from the stored ones by their position.
+     */
+    private static final class ValueSetConcepts implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] concepts;
+        private final Map<Integer, String> displayOverrides;
+
+        private ValueSetConcepts(int[] concepts, Map<Integer, String> displayOverrides) {
+            this.concepts = concepts;
+            this.displayOverrides = displayOverrides;
+        }
+    }
+
+    /**
+     * Codings of a value set keyed by code, looked up by a binary search over the concepts sorted by code.
+     */
+    private final class CodingMap<C> extends AbstractMap<String, C> {
+
+        private final int[] concepts;
+        private final Map<Integer, String> displayOverrides;
+        private final CodingFactory<C> codingFactory;
+
+        private CodingMap(ValueSetConcepts valueSetConcepts, CodingFactory<C> codingFactory) {
+            this.concepts = valueSetConcepts.concepts;
+            this.displayOverrides = valueSetConcepts.displayOverrides;
+            this.codingFactory = codingFactory;
+        }
+
+        @Override
+        public C get(Object key) {
+            int index = indexOf(key);
+            return index >= 0 ? createCoding(index) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexOf(key) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return concepts.length;
+        }
+
+        @Override
+        public Set<Entry<String, C>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, C>> iterator() {
+                    return new Iterator<>() {
+                        private int index;
+
+                        @Override
+                        public boolean hasNext() {
+                            return index < concepts.length;
+                        }
+
+                        @Override
+                        public Entry<String, C> next() {
+                            if (index >= concepts.length) {
+                                throw new NoSuchElementException();
+                            }
+                            int position = index++;
+                            return new SimpleImmutableEntry<>(codes[concepts[position]], createCoding(position));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return concepts.length;
+                }
+            };
+        }
+
+        private C createCoding(int position) {
+            int conceptId = concepts[position];
+            String display = displayOverrides != null && displayOverrides.containsKey(position) ?
+                    displayOverrides.get(position) : displays[conceptId];
+            return codingFactory.create(systems[conceptSystems[conceptId]], codes[conceptId], display);
+        }
+
+        private int indexOf(Object key) {
+            if (key != null && !(key instanceof String)) {
+                return -1;
+            }
+            int low = 0;
+            int high = concepts.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int comparison = compareCodes(codes[concepts[middle]], (String) key);
+                if (comparison < 0) {
+                    low = middle + 1;
+                } else if (comparison > 0) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -1;
+        }
+    }
+}
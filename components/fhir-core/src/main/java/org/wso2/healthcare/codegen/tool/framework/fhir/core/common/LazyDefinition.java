@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.org).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.healthcare.codegen.tool.framework.fhir.core.common;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.config.DefinitionRetention;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+
+/**
+ * FHIR definition which is parsed from its file on first use. A header stub carrying the indexed properties of the
+ * definition stands in for it while parsing, and refers to the lazy definition through its user data under
+ * {@link #USER_DATA_KEY}.
+ *
+ * @param <T> FHIR resource type of the definition
+ */
+public class LazyDefinition<T extends IBaseResource> {
+
+    private static final Log LOG = LogFactory.getLog(LazyDefinition.class);
+
+    /**
+     * User data key of a header stub, which refers to the lazy definition the stub stands in for.
+     */
+    public static final String USER_DATA_KEY = LazyDefinition.class.getName();
+
+    private final File file;
+    private final FHIRDefinitionParser definitionParser;
+    private final Class<T> resourceClass;
+    private final DefinitionRetention retention;
+    private T definition;
+    private Reference<T> definitionReference;
+
+    public LazyDefinition(File file, FHIRDefinitionParser definitionParser, Class<T> resourceClass,
+                          DefinitionRetention retention) {
+        this.file = file;
+        this.definitionParser = definitionParser;
+        this.resourceClass = resourceClass;
+        this.retention = retention;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public DefinitionRetention getRetention() {
+        return retention;
+    }
+
+    /**
+     * Returns the parsed definition, parsing the definition file if it is not retained.
+     *
+     * @return parsed definition
+     * @throws IllegalStateException if the definition file cannot be parsed
+     */
+    public synchronized T get() {
+        T parsedDefinition = definition != null ? definition :
+                definitionReference != null ? definitionReference.get() : null;
+        if (parsedDefinition == null) {
+            parsedDefinition = parse();
+            switch (retention) {
+                case STRONG:
+                    definition = parsedDefinition;
+                    break;
+                case SOFT:
+                    definitionReference = new SoftReference<>(parsedDefinition);
+                    break;
+                case WEAK:
+                    definitionReference = new WeakReference<>(parsedDefinition);
+                    break;
+            }
+        }
+        return parsedDefinition;
+    }
+
+    private T parse() {
+        LOG.debug("Loading FHIR definition: " + file.getName());
+        try {
+            return resourceClass.cast(definitionParser.parse(file));
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalStateException("Error occurred while parsing FHIR definition: " + file.getName(), e);
+        }
+    }
+}
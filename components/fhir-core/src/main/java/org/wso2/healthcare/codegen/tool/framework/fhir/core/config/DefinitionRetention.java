@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.org).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.healthcare.codegen.tool.framework.fhir.core.config;
+
+/**
+ * Memory policy of lazily loaded FHIR definitions once they are parsed.
+ */
+public enum DefinitionRetention {
+
+    /**
+     * Parsed definitions are kept until the tool exits.
+     */
+    STRONG,
+
+    /**
+     * Parsed definitions are kept until the JVM runs low on memory, and parsed again when needed.
+     */
+    SOFT,
+
+    /**
+     * Parsed definitions are released as soon as they are no longer used, and parsed again when needed.
+     */
+    WEAK;
+
+    public static DefinitionRetention fromValue(String value) {
+        for (DefinitionRetention retention : values()) {
+            if (retention.name().equalsIgnoreCase(value)) {
+                return retention;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported definition retention: " + value +
+                ". Supported values are: strong, soft, weak");
+    }
+}
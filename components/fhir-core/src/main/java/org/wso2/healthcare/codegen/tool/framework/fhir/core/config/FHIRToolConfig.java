@@ -47,6 +47,7 @@ public class FHIRToolConfig extends AbstractToolConfig {
     private final Map<String, DataTypeConfig> dataTypeConfigs = new HashMap<>();
     private final List<String> dataTypeProfileDirs = new ArrayList<>();
     private final List<String> terminologyDirs = new ArrayList<>();
+    private ParserConfig parserConfig = new ParserConfig();
 
     @Override
     public void configure(ConfigType<?> configObj) throws CodeGenException {
@@ -84,6 +85,10 @@ public class FHIRToolConfig extends AbstractToolConfig {
                     terminologyDirs.add(terminology.getAsJsonObject().get("dirPath").getAsString());
                 }
             }
+            JsonObject parserConfigObj = jsonConfigObj.getAsJsonObject("parser");
+            if (parserConfigObj != null) {
+                parserConfig = new ParserConfig(parserConfigObj);
+            }
         } else if (Constants.TOML_CONFIG_TYPE.equals(type)) {
             TomlParseResult tomlConfigObj = ((TomlConfigType) configObj.getConfigObj()).getConfigObj();
             Object implementationGuides = tomlConfigObj.get("implementation_guides");
@@ -124,6 +129,10 @@ public class FHIRToolConfig extends AbstractToolConfig {
                     terminologyDirs.add(((TomlTable) terminology).getString("dir_path"));
                 }
             }
+            Object parser = tomlConfigObj.get("parser");
+            if (parser instanceof TomlTable) {
+                parserConfig = new ParserConfig((TomlTable) parser);
+            }
         } else {
             throw new CodeGenException("Unsupported tool configuration format: " + type);
         }
@@ -154,4 +163,12 @@ public class FHIRToolConfig extends AbstractToolConfig {
     public List<String> getTerminologyDirs() {
         return terminologyDirs;
     }
+
+    public ParserConfig getParserConfig() {
+        return parserConfig;
+    }
+
+    public void setParserConfig(ParserConfig parserConfig) {
+        this.parserConfig = parserConfig;
+    }
 }
@@ -69,6 +69,12 @@ public class IGConfig {
         this.properties = properties;
     }
 
+    /**
+     * Returns the path of the implementation guide definitions, either an extracted directory or a FHIR npm package
+     * tarball (package.tgz).
+     *
+     * @return implementation guide path
+     */
     public String getDirPath() {
         return dirPath;
     }
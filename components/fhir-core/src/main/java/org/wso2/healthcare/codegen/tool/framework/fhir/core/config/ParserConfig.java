@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.org).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.healthcare.codegen.tool.framework.fhir.core.config;
+
+import com.google.gson.JsonObject;
+import net.consensys.cava.toml.TomlTable;
+
+/**
+ * FHIR specification parser related tool configs.
+ */
+public class ParserConfig {
+
+    private static final int DEFAULT_TERMINOLOGY_CACHE_SIZE = 500000;
+
+    private int parallelism = 1;
+    private boolean virtualThreads;
+    private String cacheDir;
+    private boolean lazyDefinitions;
+    private DefinitionRetention definitionRetention = DefinitionRetention.SOFT;
+    private boolean stripNarratives;
+    private boolean lazyTerminologies;
+    private int terminologyCacheSize = DEFAULT_TERMINOLOGY_CACHE_SIZE;
+    private boolean deterministicTerminologies = true;
+
+    public ParserConfig() {
+    }
+
+    public ParserConfig(JsonObject config) {
+        if (config.has("parallelism")) {
+            this.setParallelism(config.getAsJsonPrimitive("parallelism").getAsInt());
+        }
+        if (config.has("virtualThreads")) {
+            this.setVirtualThreads(config.getAsJsonPrimitive("virtualThreads").getAsBoolean());
+        }
+        if (config.has("cacheDir")) {
+            this.setCacheDir(config.getAsJsonPrimitive("cacheDir").getAsString());
+        }
+        if (config.has("lazyDefinitions")) {
+            this.setLazyDefinitions(config.getAsJsonPrimitive("lazyDefinitions").getAsBoolean());
+        }
+        if (config.has("definitionRetention")) {
+            this.setDefinitionRetention(DefinitionRetention.fromValue(
+                    config.getAsJsonPrimitive("definitionRetention").getAsString()));
+        }
+        if (config.has("stripNarratives")) {
+            this.setStripNarratives(config.getAsJsonPrimitive("stripNarratives").getAsBoolean());
+        }
+        if (config.has("lazyTerminologies")) {
+            this.setLazyTerminologies(config.getAsJsonPrimitive("lazyTerminologies").getAsBoolean());
+        }
+        if (config.has("terminologyCacheSize")) {
+            this.setTerminologyCacheSize(config.getAsJsonPrimitive("terminologyCacheSize").getAsInt());
+        }
+        if (config.has("deterministicTerminologies")) {
+            this.setDeterministicTerminologies(
+                    config.getAsJsonPrimitive("deterministicTerminologies").getAsBoolean());
+        }
+    }
+
+    public ParserConfig(TomlTable config) {
+        Long parallelism = config.getLong("parallelism");
+        if (parallelism != null) {
+            this.setParallelism(parallelism.intValue());
+        }
+        Boolean virtualThreads = config.getBoolean("virtual_threads");
+        if (virtualThreads != null) {
+            this.setVirtualThreads(virtualThreads);
+        }
+        this.setCacheDir(config.getString("cache_dir"));
+        Boolean lazyDefinitions = config.getBoolean("lazy_definitions");
+        if (lazyDefinitions != null) {
+            this.setLazyDefinitions(lazyDefinitions);
+        }
+        String definitionRetention = config.getString("definition_retention");
+        if (definitionRetention != null) {
+            this.setDefinitionRetention(DefinitionRetention.fromValue(definitionRetention));
+        }
+        Boolean stripNarratives = config.getBoolean("strip_narratives");
+        if (stripNarratives != null) {
+            this.setStripNarratives(stripNarratives);
+        }
+        Boolean lazyTerminologies = config.getBoolean("lazy_terminologies");
+        if (lazyTerminologies != null) {
+            this.setLazyTerminologies(lazyTerminologies);
+        }
+        Long terminologyCacheSize = config.getLong("terminology_cache_size");
+        if (terminologyCacheSize != null) {
+            this.setTerminologyCacheSize(terminologyCacheSize.intValue());
+        }
+        Boolean deterministicTerminologies = config.getBoolean("deterministic_terminologies");
+        if (deterministicTerminologies != null) {
+            this.setDeterministicTerminologies(deterministicTerminologies);
+        }
+    }
+
+    /**
+     * Returns the number of definition files parsed at the same time. A value of 1 keeps the sequential behaviour.
+     *
+     * @return parsing parallelism
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Returns whether definition files are parsed on virtual threads instead of a bounded platform thread pool.
+     *
+     * @return true if virtual threads are used
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Returns whether definition files should be parsed concurrently.
+     *
+     * @return true if parallel parsing is enabled
+     */
+    public boolean isParallel() {
+        return virtualThreads || parallelism > 1;
+    }
+
+    /**
+     * Returns the directory to keep the warm start cache of parsed specification data. Caching is disabled when the
+     * directory is not configured.
+     *
+     * @return cache directory path or null
+     */
+    public String getCacheDir() {
+        return cacheDir;
+    }
+
+    public void setCacheDir(String cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * Returns whether profile structure definitions are loaded lazily. In lazy mode only the header of a profile is
+     * read while parsing, and the full definition is parsed on first use.
+     *
+     * @return true if lazy loading is enabled
+     */
+    public boolean isLazyDefinitions() {
+        return lazyDefinitions;
+    }
+
+    public void setLazyDefinitions(boolean lazyDefinitions) {
+        this.lazyDefinitions = lazyDefinitions;
+    }
+
+    /**
+     * Returns the memory policy of lazily loaded definitions once they are parsed.
+     *
+     * @return definition retention
+     */
+    public DefinitionRetention getDefinitionRetention() {
+        return definitionRetention;
+    }
+
+    public void setDefinitionRetention(DefinitionRetention definitionRetention) {
+        this.definitionRetention = definitionRetention;
+    }
+
+    /**
+     * Returns whether narratives are dropped from the definitions while loading. Narratives are not used to generate
+     * artifacts, so dropping them reduces the memory held by the specification data.
+     *
+     * @return true if narratives are stripped
+     */
+    public boolean isStripNarratives() {
+        return stripNarratives;
+    }
+
+    public void setStripNarratives(boolean stripNarratives) {
+        this.stripNarratives = stripNarratives;
+    }
+
+    /**
+     * Returns whether value sets are expanded on first use instead of all of them while parsing.
+     *
+     * @return true if value sets are expanded lazily
+     */
+    public boolean isLazyTerminologies() {
+        return lazyTerminologies;
+    }
+
+    public void setLazyTerminologies(boolean lazyTerminologies) {
+        this.lazyTerminologies = lazyTerminologies;
+    }
+
+    /**
+     * Returns the maximum number of codings kept in the cache of lazily expanded value sets. The least recently used
+     * expansions are evicted beyond it.
+     *
+     * @return terminology cache size in codings
+     */
+    public int getTerminologyCacheSize() {
+        return terminologyCacheSize;
+    }
+
+    public void setTerminologyCacheSize(int terminologyCacheSize) {
+        this.terminologyCacheSize = Math.max(1, terminologyCacheSize);
+    }
+
+    /**
+     * Returns whether value sets expanded in parallel are resolved exactly as in a sequential run. Otherwise the
+     * expansions of value sets including themselves may depend on the thread scheduling.
+     *
+     * @return true if parallel terminology resolution is deterministic
+     */
+    public boolean isDeterministicTerminologies() {
+        return deterministicTerminologies;
+    }
+
+    public void setDeterministicTerminologies(boolean deterministicTerminologies) {
+        this.deterministicTerminologies = deterministicTerminologies;
+    }
+}
@@ -67,6 +67,23 @@ public interface FHIRDataTypeDef<StructureDefinition, Extension> extends SpecMod
      */
     CardinalityTypes getMinCardinalityType(String fhirPath);
 
+    /**
+     * Returns max cardinality value for the datatype field for the given FHIR path, without parsing it from the
+     * definition.
+     *
+     * @param fhirPath FHIR Path value representing the data type field(eg: Identifier.value)
+     * @return max cardinality value, -1 if unlimited (*), or -2 if the field is not defined or the value is invalid
+     */
+    int getMaxCardinalityValue(String fhirPath);
+
+    /**
+     * Returns min cardinality value for the datatype field for the given FHIR path.
+     *
+     * @param fhirPath FHIR Path value representing the data type field(eg: Identifier.value)
+     * @return min cardinality value, or -2 if the field is not defined
+     */
+    int getMinCardinalityValue(String fhirPath);
+
     List<Extension> getExtensions();
 
     /**
@@ -18,10 +18,14 @@
 
 package org.wso2.healthcare.codegen.tool.framework.fhir.core.model;
 
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRDefinitionManifest;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.oas.model.APIDefinition;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
 
 /**
   * This class holds data model for FHIR implementation guide related information.
@@ -29,16 +33,60 @@ import java.util.Map;
 public class FHIRImplementationGuide {
     private String name;
     private String id;
-    private Map<String, FHIRResourceDef> resources;
-    private Map<String, FHIRSearchParamDef> searchParameters;
-    private Map<String, FHIROperationDef> operations;
-    private Map<String, APIDefinition> apiDefinitions;
+    // replaced when frozen and thawed, and read by generators without locking
+    private volatile Map<String, FHIRResourceDef> resources;
+    private volatile Map<String, FHIRSearchParamDef> searchParameters;
+    private volatile Map<String, FHIROperationDef> operations;
+    private volatile Map<String, APIDefinition> apiDefinitions;
+    private FHIRDefinitionManifest manifest;
 
     public FHIRImplementationGuide() {
-        resources = new HashMap<>();
-        searchParameters = new HashMap<>();
-        operations = new HashMap<>();
-        apiDefinitions = new HashMap<>();
+        resources = new ConcurrentHashMap<>();
+        searchParameters = new ConcurrentHashMap<>();
+        operations = new ConcurrentHashMap<>();
+        apiDefinitions = new ConcurrentHashMap<>();
+        manifest = new FHIRDefinitionManifest();
+    }
+
+    /**
+     * Replaces the maps with unmodifiable copies once parsing completes.
+     */
+    public void freeze() {
+        resources = Collections.unmodifiableMap(new HashMap<>(resources));
+        searchParameters = Collections.unmodifiableMap(new HashMap<>(searchParameters));
+        operations = Collections.unmodifiableMap(new HashMap<>(operations));
+        apiDefinitions = Collections.unmodifiableMap(new HashMap<>(apiDefinitions));
+    }
+
+    /**
+     * Makes the maps mutable again before a re-parse, as concurrent maps since definitions are merged in parallel.
+     */
+    public void thaw() {
+        resources = new ConcurrentHashMap<>(resources);
+        searchParameters = new ConcurrentHashMap<>(searchParameters);
+        operations = new ConcurrentHashMap<>(operations);
+        apiDefinitions = new ConcurrentHashMap<>(apiDefinitions);
+    }
+
+    /**
+     * Returns a mutable copy of this implementation guide, to be re-parsed incrementally while this implementation
+     * guide is still read. API definitions are not copied, as they are generated from the specification data they
+     * belong to, and are generated again by the re-parse.
+     *
+     * @param resourceCopier copies a resource definition
+     * @return copied implementation guide
+     */
+    public FHIRImplementationGuide copy(UnaryOperator<FHIRResourceDef> resourceCopier) {
+        FHIRImplementationGuide implementationGuide = new FHIRImplementationGuide();
+        implementationGuide.name = name;
+        implementationGuide.id = id;
+        for (Map.Entry<String, FHIRResourceDef> resourceEntry : resources.entrySet()) {
+            implementationGuide.resources.put(resourceEntry.getKey(), resourceCopier.apply(resourceEntry.getValue()));
+        }
+        implementationGuide.searchParameters.putAll(searchParameters);
+        implementationGuide.operations.putAll(operations);
+        implementationGuide.manifest = manifest.copy();
+        return implementationGuide;
     }
 
     public Map<String, APIDefinition> getApiDefinitions() {
@@ -94,4 +142,17 @@ public class FHIRImplementationGuide {
     public void setOperations(Map<String, FHIROperationDef> operations) {
         this.operations = operations;
     }
+
+    /**
+     * Returns the manifest of the definition files loaded from the implementation guide directory.
+     *
+     * @return definition file manifest
+     */
+    public FHIRDefinitionManifest getManifest() {
+        return manifest;
+    }
+
+    public void setManifest(FHIRDefinitionManifest manifest) {
+        this.manifest = manifest;
+    }
 }
@@ -19,8 +19,13 @@
 package org.wso2.healthcare.codegen.tool.framework.fhir.core.oas.model;
 
 import io.swagger.v3.oas.models.OpenAPI;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.healthcare.codegen.tool.framework.commons.exception.CodeGenException;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -28,10 +33,13 @@ import java.util.Set;
  */
 public class APIDefinition {
 
+    private static final Log LOG = LogFactory.getLog(APIDefinition.class);
+
     private OpenAPI openAPI;
     private String resourceType;
     private Set<String> supportedProfiles;
     private Set<String> supportedIgs;
+    private final List<OpenAPIGenerator> deferredGenerators = new ArrayList<>();
 
     public APIDefinition() {
         this.openAPI = new OpenAPI();
@@ -44,7 +52,34 @@ public class APIDefinition {
     }
 
     public OpenAPI getOpenAPI() {
-        return openAPI;
+        synchronized (deferredGenerators) {
+            if (!deferredGenerators.isEmpty()) {
+                // taken out first, generators access the OpenAPI definition being generated
+                List<OpenAPIGenerator> generators = new ArrayList<>(deferredGenerators);
+                deferredGenerators.clear();
+                for (OpenAPIGenerator generator : generators) {
+                    try {
+                        openAPI = generator.generate(this);
+                    } catch (CodeGenException e) {
+                        LOG.error("Error occurred while generating OAS definition for resource type: " +
+                                resourceType, e);
+                    }
+                }
+            }
+            return openAPI;
+        }
+    }
+
+    /**
+     * Defers generating the OpenAPI definition until it is first accessed, e.g. for lazily loaded profiles. Deferred
+     * generators run in the order they are added.
+     *
+     * @param generator OpenAPI definition generator
+     */
+    public void addDeferredGenerator(OpenAPIGenerator generator) {
+        synchronized (deferredGenerators) {
+            deferredGenerators.add(generator);
+        }
     }
 
     public void setOpenAPI(OpenAPI openAPI) {
@@ -82,4 +117,13 @@ public class APIDefinition {
     public void addSupportedIg(String igName) {
         this.supportedIgs.add(igName);
     }
+
+    /**
+     * Generates the OpenAPI definition of an API definition.
+     */
+    @FunctionalInterface
+    public interface OpenAPIGenerator {
+
+        OpenAPI generate(APIDefinition apiDefinition) throws CodeGenException;
+    }
 }
@@ -18,8 +18,6 @@
 
 package org.wso2.healthcare.codegen.tool.framework.fhir.core.util;
 
-import java.util.regex.Pattern;
-
 public enum CardinalityTypes {
     MAX_UNLIMITED("unlimited"),
     MAX_FINITE("finite"),
@@ -38,7 +36,7 @@ public enum CardinalityTypes {
             return CardinalityTypes.MAX_UNLIMITED;
         } else if (code.equals("0")) {
             return CardinalityTypes.OPTIONAL;
-        } else if (Pattern.matches("([1-9][0-9]*)", code)) {
+        } else if (isPositiveNumber(code)) {
             switch (type) {
                 case "min":
                     return CardinalityTypes.REQUIRED;
@@ -50,4 +48,17 @@ public enum CardinalityTypes {
         }
         return CardinalityTypes.INVALID;
     }
+
+    // equivalent of matching ([1-9][0-9]*), which is checked for every element of every definition
+    private static boolean isPositiveNumber(String code) {
+        if (code.isEmpty() || code.charAt(0) < '1' || code.charAt(0) > '9') {
+            return false;
+        }
+        for (int i = 1; i < code.length(); i++) {
+            if (code.charAt(i) < '0' || code.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -20,23 +20,34 @@ package org.wso2.healthcare.codegen.tool.framework.fhir.core.versions.r4.common;
 
 import org.hl7.fhir.r4.model.ElementDefinition;
 import org.hl7.fhir.r4.model.StructureDefinition;
-import org.hl7.fhir.r4.model.Coding;
 import org.hl7.fhir.r4.model.CodeSystem;
+import org.hl7.fhir.r4.model.Coding;
 import org.hl7.fhir.r4.model.ValueSet;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRSpecUtils;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRCodeSystemClosure;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRTerminologyStore;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.config.ParserConfig;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.model.FHIRTerminologyDef;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Utility functions on FHIR specification to use by FHIR tools.
  */
 public class FHIRR4SpecUtils implements FHIRSpecUtils {
 
-    private static final List<String> defaultSkippedProperties = new ArrayList<>();
+    private static final Set<String> defaultSkippedProperties = new HashSet<>();
 
     private static final String[] DEFAULT_BASE_DATA_TYPE_PROFILES = {
             "Address.profile.json", "DataRequirement.profile.json", "Period.profile.json", "UsageContext.profile.json",
@@ -70,6 +81,75 @@ public class FHIRR4SpecUtils implements FHIRSpecUtils {
         return typeCode;
     }
 
+    public static List<String> getTypeCodes(ElementDefinition element) {
+        List<ElementDefinition.TypeRefComponent> typeList = element.getType();
+        List<String> typeCodes = new ArrayList<>(typeList.size());
+        for (ElementDefinition.TypeRefComponent type : typeList) {
+            typeCodes.add(type.getCode());
+        }
+        return typeCodes;
+    }
+
+    /**
+     * Adds resolved terminologies to a terminology store, replacing the previous expansions of their value sets.
+     *
+     * @param terminologyStore terminology store
+     * @param codingMap        codings keyed by code, keyed by the value set url
+     */
+    public static void addTerminologies(FHIRTerminologyStore terminologyStore,
+                                        Map<String, Map<String, Coding>> codingMap) {
+        for (Map.Entry<String, Map<String, Coding>> valueSetEntry : codingMap.entrySet()) {
+            int[] conceptIds = new int[valueSetEntry.getValue().size()];
+            String[] displays = new String[conceptIds.length];
+            int index = 0;
+            for (Coding coding : valueSetEntry.getValue().values()) {
+                displays[index] = coding.getDisplay();
+                conceptIds[index++] = terminologyStore.addConcept(coding.getSystem(), coding.getCode(),
+                        coding.getDisplay());
+            }
+            terminologyStore.putValueSet(valueSetEntry.getKey(), conceptIds, displays);
+        }
+    }
+
+    /**
+     * Creates the coding of a concept of a terminology store.
+     *
+     * @param system  code system url
+     * @param code    code
+     * @param display display, or null
+     * @return coding
+     */
+    public static Coding createCoding(String system, String code, String display) {
+        Coding coding = new Coding();
+        coding.setCode(code);
+        coding.setDisplay(display);
+        coding.setSystem(system);
+        return coding;
+    }
+
+    /**
+     * Builds the transitive closure of the concept hierarchy of a code system. Codes repeated in the hierarchy are
+     * added where they first appear, and linked to the other concepts they are nested in.
+     *
+     * @param codeSystem code system
+     * @return closure of the concepts
+     */
+    public static FHIRCodeSystemClosure getCodeSystemClosure(CodeSystem codeSystem) {
+        FHIRCodeSystemClosure closure = new FHIRCodeSystemClosure();
+        addConcepts(closure, codeSystem.getConcept());
+        return closure;
+    }
+
+    private static void addConcepts(FHIRCodeSystemClosure closure,
+                                    List<CodeSystem.ConceptDefinitionComponent> concepts) {
+        for (CodeSystem.ConceptDefinitionComponent concept : concepts) {
+            if (closure.beginConcept(concept.getCode())) {
+                addConcepts(closure, concept.getConcept());
+                closure.endConcept();
+            }
+        }
+    }
+
     public static boolean isMultiDataType(ElementDefinition element) {
         List<ElementDefinition.TypeRefComponent> typeList = element.getType();
         return typeList.size() > 1;
@@ -99,69 +179,117 @@ public class FHIRR4SpecUtils implements FHIRSpecUtils {
      * @return codings map
      */
     public static Map<String, Map<String, Coding>> resolveTerminology(Map<String, FHIRTerminologyDef> valueSets, Map<String, FHIRTerminologyDef> codeSystems) {
-        Map<String, Map<String, Coding>> codingMap = new HashMap<>();
-        Map<String, Coding> codings;
+        return resolveTerminology(valueSets, new FHIRR4ValueSetExpander(valueSets, codeSystems));
+    }
 
+    /**
+     * Resolve terminologies of the given ValueSets, with an expander which may resolve further ValueSets included by
+     * them
+     *
+     * @param valueSets value sets to resolve
+     * @param expander  value set expander
+     * @return codings map
+     */
+    public static Map<String, Map<String, Coding>> resolveTerminology(Map<String, FHIRTerminologyDef> valueSets,
+                                                                      FHIRR4ValueSetExpander expander) {
+        Map<String, Map<String, Coding>> codingMap = new HashMap<>();
         for (Map.Entry<String, FHIRTerminologyDef> valueSetEntry : valueSets.entrySet()) {
-            codings = new HashMap<>();
             ValueSet valueSet = (ValueSet) valueSetEntry.getValue().getTerminologyResource();
-            ValueSet.ValueSetComposeComponent compose = valueSet.getCompose();
-            List<ValueSet.ConceptSetComponent> include = compose.getInclude();
-
-            for (ValueSet.ConceptSetComponent conceptSetComponent : include) {
-                String system = conceptSetComponent.getSystem();
-                List<ValueSet.ConceptReferenceComponent> concepts = conceptSetComponent.getConcept();
-                List<String> includedCodes = new ArrayList<>();
-
-                for (ValueSet.ConceptReferenceComponent concept : concepts) {
-                    if (concept.getDisplay() != null) {
-                        Coding coding = new Coding();
-                        coding.setCode(concept.getCode());
-                        coding.setDisplay(concept.getDisplay());
-                        coding.setSystem(system);
-                        codings.put(concept.getCode(), coding);
-                    } else {
-                        includedCodes.add(concept.getCode());
-                        Coding coding = new Coding();
-                        coding.setCode(concept.getCode());
-                        coding.setSystem(system);
-                        codings.put(concept.getCode(), coding);
-                    }
-                }
+            codingMap.put(valueSet.getUrl(), expander.expand(valueSet));
+        }
+        return codingMap;
+    }
+
+    /**
+     * Resolve terminologies of all the given ValueSets, expanding them in parallel when parallel parsing is enabled in
+     * the parser config. The value sets are split into chunks, each expanded on its own expander, and the results are
+     * added in the order of the given value sets. In deterministic mode the value sets including themselves are
+     * expanded in order on a single expander, so that the result is identical to a sequential resolution.
+     *
+     * @param valueSets    value sets to resolve
+     * @param codeSystems  code systems
+     * @param parserConfig parser config
+     * @return codings map
+     */
+    public static Map<String, Map<String, Coding>> resolveTerminology(Map<String, FHIRTerminologyDef> valueSets,
+                                                                      Map<String, FHIRTerminologyDef> codeSystems,
+                                                                      ParserConfig parserConfig) {
+        return resolveTerminology(valueSets, new FHIRR4ValueSetExpander(valueSets, codeSystems), parserConfig);
+    }
+
+    /**
+     * Resolve terminologies of all the given ValueSets as {@link #resolveTerminology(Map, Map, ParserConfig)}
+     * does, forking the given expander for each chunk.
+     *
+     * @param valueSets    value sets to resolve
+     * @param expander     value set expander
+     * @param parserConfig parser config
+     * @return codings map
+     */
+    public static Map<String, Map<String, Coding>> resolveTerminology(Map<String, FHIRTerminologyDef> valueSets,
+                                                                      FHIRR4ValueSetExpander expander,
+                                                                      ParserConfig parserConfig) {
+        if (!parserConfig.isParallel() || valueSets.size() < 2) {
+            return resolveTerminology(valueSets, expander);
+        }
+        Set<String> recursiveValueSets = parserConfig.isDeterministicTerminologies() ?
+                FHIRR4ValueSetExpander.getRecursiveValueSets(valueSets) : Collections.emptySet();
+        List<ValueSet> valueSetList = new ArrayList<>(valueSets.size());
+        List<Integer> orderedIndexes = new ArrayList<>();
+        List<Integer> independentIndexes = new ArrayList<>();
+        for (Map.Entry<String, FHIRTerminologyDef> valueSetEntry : valueSets.entrySet()) {
+            if (recursiveValueSets.contains(valueSetEntry.getKey())) {
+                orderedIndexes.add(valueSetList.size());
+            } else {
+                independentIndexes.add(valueSetList.size());
+            }
+            valueSetList.add((ValueSet) valueSetEntry.getValue().getTerminologyResource());
+        }
+        int threads = parserConfig.isVirtualThreads() ? Runtime.getRuntime().availableProcessors() :
+                parserConfig.getParallelism();
+        // a few chunks per thread balance the uneven value set sizes
+        int chunkSize = Math.max(1, independentIndexes.size() / (threads * 4));
+        List<List<Integer>> chunks = new ArrayList<>();
+        if (!orderedIndexes.isEmpty()) {
+            chunks.add(orderedIndexes);
+        }
+        for (int i = 0; i < independentIndexes.size(); i += chunkSize) {
+            chunks.add(independentIndexes.subList(i, Math.min(i + chunkSize, independentIndexes.size())));
+        }
 
-                if (codeSystems.get(system) != null) {
-                    CodeSystem codeSystem = (CodeSystem) codeSystems.get(system).getTerminologyResource();
-
-                    if (codeSystem != null) {
-                        List<CodeSystem.ConceptDefinitionComponent> concept = codeSystem.getConcept();
-
-                        for (CodeSystem.ConceptDefinitionComponent conceptDefinitionComponent : concept) {
-                            List<CodeSystem.ConceptPropertyComponent> property = conceptDefinitionComponent.getProperty();
-
-                            // check if the code is deprecated
-                            boolean isDeprecated = false;
-                            for (CodeSystem.ConceptPropertyComponent conceptPropertyComponent : property) {
-                                if ("status".equals(conceptPropertyComponent.getCode()) && "deprecated"
-                                        .equals(conceptPropertyComponent.getValue().toString())) {
-                                    isDeprecated = true;
-                                    break;
-                                }
-                            }
-                            if (!isDeprecated) {
-                                if (concepts.size() > 0 && !includedCodes.contains(conceptDefinitionComponent.getCode())) {
-                                    continue;
-                                }
-                                Coding coding = new Coding();
-                                coding.setCode(conceptDefinitionComponent.getCode());
-                                coding.setDisplay(conceptDefinitionComponent.getDisplay());
-                                coding.setSystem(system);
-                                codings.put(conceptDefinitionComponent.getCode(), coding);
-                            }
-                        }
+        AtomicReferenceArray<Map<String, Coding>> expansions = new AtomicReferenceArray<>(valueSetList.size());
+        ExecutorService executor = parserConfig.isVirtualThreads() ? Executors.newVirtualThreadPerTaskExecutor() :
+                Executors.newFixedThreadPool(Math.min(threads, chunks.size()));
+        try {
+            List<Future<?>> futures = new ArrayList<>(chunks.size());
+            for (List<Integer> chunk : chunks) {
+                FHIRR4ValueSetExpander chunkExpander = expander.fork();
+                futures.add(executor.submit(() -> {
+                    for (int index : chunk) {
+                        expansions.set(index, chunkExpander.expand(valueSetList.get(index)));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
                     }
+                    throw new IllegalStateException("Error occurred while resolving FHIR terminologies.", e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while resolving FHIR terminologies.", e);
                 }
             }
-            codingMap.put(valueSet.getUrl(), codings);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Map<String, Map<String, Coding>> codingMap = new HashMap<>();
+        for (int i = 0; i < valueSetList.size(); i++) {
+            codingMap.put(valueSetList.get(i).getUrl(), expansions.get(i));
         }
         return codingMap;
     }
@@ -18,14 +18,39 @@
 
 package org.wso2.healthcare.codegen.tool.framework.fhir.core.versions.r4.common;
 
+import org.hl7.fhir.r4.model.CanonicalType;
+import org.hl7.fhir.r4.model.CodeSystem;
 import org.hl7.fhir.r4.model.Coding;
 import org.hl7.fhir.r4.model.ElementDefinition;
+import org.hl7.fhir.r4.model.StructureDefinition;
+import org.hl7.fhir.r4.model.ValueSet;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRCodeSystemClosure;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRDataTypeExpander;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRDependencyGraph;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRElementTree;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRLazyMap;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRLruCache;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRReverseIndex;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRSpecificationData;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRTerminologyStore;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.config.ParserConfig;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.model.FHIRDataTypeDef;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.model.FHIRImplementationGuide;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.model.FHIRResourceDef;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.model.FHIRTerminologyDef;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.versions.r4.model.FHIRR4DataTypeDef;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.versions.r4.model.FHIRR4ResourceDef;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.util.DefKind;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.util.ElementExpansionType;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Data holder for parsed FHIR specification data and utilities.
@@ -33,23 +58,394 @@ import java.util.Map;
 public class FHIRR4SpecificationData extends FHIRSpecificationData {
 
     private static final FHIRR4SpecificationData DATA_HOLDER_INSTANCE = new FHIRR4SpecificationData();
-    private Map<String, Map<String, Coding>> resolvedTerminologies;
+    // resolved value set expansions, dictionary encoded rather than held as codings
+    private volatile FHIRTerminologyStore terminologyStore;
+    // created on first use, and discarded whenever the data types may change
+    private FHIRDataTypeExpander<ElementDefinition> dataTypeExpander;
+    // set when value sets are expanded on first use rather than all at once
+    private volatile FHIRLruCache<String, Map<String, Coding>> terminologyCache;
+    // shares its code system indexes with the expanders forked on cache misses, and is discarded when thawed
+    private FHIRR4ValueSetExpander valueSetExpander;
+    // built on first use, and discarded whenever the code systems may change
+    private final Map<String, FHIRCodeSystemClosure> codeSystemClosures = new ConcurrentHashMap<>();
+    // memoized codings returned by getTerminologies, discarded whenever the terminologies are resolved again
+    private volatile Map<String, Map<String, Coding>> terminologies;
 
-    private FHIRR4SpecificationData() {
+    /**
+     * Creates specification data owned by a single tool context. The shared instance is returned by
+     * {@link #getDataHolderInstance()}.
+     */
+    public FHIRR4SpecificationData() {
         super();
-        this.resolvedTerminologies = new HashMap<>();
+        this.terminologyStore = new FHIRTerminologyStore();
     }
 
     public static FHIRR4SpecificationData getDataHolderInstance() {
         return DATA_HOLDER_INSTANCE;
     }
 
+    @Override
+    public FHIRR4SpecificationData copy() {
+        FHIRR4SpecificationData specificationData = new FHIRR4SpecificationData();
+        copyTo(specificationData, resourceDef -> ((FHIRR4ResourceDef) resourceDef).copy());
+        // the store is only replaced, never updated in place, once resolved
+        specificationData.terminologyStore = terminologyStore;
+        return specificationData;
+    }
+
     public void setTerminologies() {
-        this.resolvedTerminologies = FHIRR4SpecUtils.resolveTerminology(this.valueSets, this.codeSystems);
+        if (terminologyCache != null) {
+            terminologyCache.clear();
+            terminologies = null;
+            return;
+        }
+        setTerminologies(FHIRR4SpecUtils.resolveTerminology(this.valueSets, createValueSetExpander()));
+    }
+
+    /**
+     * Resolves the terminologies of all the value sets, in parallel when parallel parsing is enabled.
+     *
+     * @param parserConfig parser config
+     */
+    public void setTerminologies(ParserConfig parserConfig) {
+        if (terminologyCache != null) {
+            terminologyCache.clear();
+            terminologies = null;
+            return;
+        }
+        setTerminologies(FHIRR4SpecUtils.resolveTerminology(this.valueSets, createValueSetExpander(), parserConfig));
+    }
+
+    /**
+     * Expands value sets on first use instead of all at once, keeping the most recently used expansions.
+     *
+     * @param cacheSize maximum number of codings of the cached expansions
+     */
+    public void setLazyTerminologies(int cacheSize) {
+        checkNotFrozen();
+        this.terminologyCache = new FHIRLruCache<>(cacheSize, codings -> codings.size() + 1);
+        this.terminologyStore = new FHIRTerminologyStore();
+        this.terminologies = null;
+        synchronized (this) {
+            this.valueSetExpander = createValueSetExpander();
+        }
+    }
+
+    public boolean isLazyTerminologies() {
+        return terminologyCache != null;
+    }
+
+    /**
+     * Returns the codings of a value set keyed by code. When value sets are expanded lazily, the value set is
+     * expanded on a cache miss.
+     *
+     * @param valueSetUrl value set canonical, versioned or not
+     * @return codings keyed by code, or null if the value set is not loaded
+     */
+    public Map<String, Coding> expand(String valueSetUrl) {
+        if (valueSetUrl == null) {
+            return null;
+        }
+        String url = valueSetUrl.indexOf('|') >= 0 ? valueSetUrl.substring(0, valueSetUrl.indexOf('|')) : valueSetUrl;
+        FHIRLruCache<String, Map<String, Coding>> cache = terminologyCache;
+        if (cache == null) {
+            return terminologyStore.getCodings(url, FHIRR4SpecUtils::createCoding);
+        }
+        return cache.get(url, this::expandValueSet);
+    }
+
+    private Map<String, Coding> expandValueSet(String valueSetUrl) {
+        FHIRTerminologyDef valueSetDef = this.valueSets.get(valueSetUrl);
+        if (valueSetDef == null) {
+            return null;
+        }
+        return Collections.unmodifiableMap(getValueSetExpander().fork()
+                .expand((ValueSet) valueSetDef.getTerminologyResource()));
+    }
+
+    /**
+     * Returns the expander kept for the lazily expanded value sets, which is forked for each expansion so that the
+     * code system indexes are built once rather than on every cache miss.
+     *
+     * @return value set expander
+     */
+    private synchronized FHIRR4ValueSetExpander getValueSetExpander() {
+        if (valueSetExpander == null) {
+            // an implementation guide parsed on its own thaws the data without setting lazy terminologies again
+            valueSetExpander = createValueSetExpander();
+        }
+        return valueSetExpander;
+    }
+
+    /**
+     * Creates an expander looking up the code system closures kept by this specification data, so that the closure
+     * of a code system is built once for the expansions and the subsumption queries.
+     *
+     * @return value set expander
+     */
+    private FHIRR4ValueSetExpander createValueSetExpander() {
+        return new FHIRR4ValueSetExpander(this.valueSets, this.codeSystems, this::getCodeSystemClosure);
+    }
+
+    /**
+     * Sets already resolved terminologies, which are dictionary encoded into a new terminology store.
+     *
+     * @param resolvedTerminologies resolved terminologies keyed by the value set url
+     */
+    public void setTerminologies(Map<String, Map<String, Coding>> resolvedTerminologies) {
+        checkNotFrozen();
+        FHIRTerminologyStore terminologyStore = new FHIRTerminologyStore();
+        FHIRR4SpecUtils.addTerminologies(terminologyStore, resolvedTerminologies);
+        this.terminologyStore = terminologyStore;
+        this.terminologies = null;
+    }
+
+    /**
+     * Returns the store of the resolved terminologies, e.g. to be kept in the warm start cache.
+     *
+     * @return terminology store
+     */
+    public FHIRTerminologyStore getTerminologyStore() {
+        return terminologyStore;
+    }
+
+    /**
+     * Sets an already resolved terminology store, e.g. when restored from the warm start cache.
+     *
+     * @param terminologyStore terminology store
+     */
+    public void setTerminologyStore(FHIRTerminologyStore terminologyStore) {
+        checkNotFrozen();
+        this.terminologyStore = terminologyStore;
+        this.terminologies = null;
+    }
+
+    /**
+     * Re-resolves the terminologies affected by the given value sets and code systems. Value sets which include a
+     * changed code system are resolved again, and removed value sets are dropped.
+     *
+     * @param valueSetUrls   urls of added, changed or removed value sets
+     * @param codeSystemUrls urls of added, changed or removed code systems
+     */
+    public void updateTerminologies(Set<String> valueSetUrls, Set<String> codeSystemUrls) {
+        // the closures and the code system indexes of the changed code systems are built again
+        codeSystemClosures.keySet().removeAll(codeSystemUrls);
+        synchronized (this) {
+            valueSetExpander = null;
+        }
+        terminologies = null;
+        if (terminologyCache != null) {
+            // cached expansions may include the changed value sets and code systems
+            terminologyCache.clear();
+            return;
+        }
+        checkNotFrozen();
+        Map<String, FHIRTerminologyDef> affectedValueSets = new HashMap<>();
+        // value sets including an affected value set are affected as well
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Map.Entry<String, FHIRTerminologyDef> valueSetEntry : this.valueSets.entrySet()) {
+                if (!affectedValueSets.containsKey(valueSetEntry.getKey()) &&
+                        isAffected(valueSetEntry, valueSetUrls, codeSystemUrls, affectedValueSets)) {
+                    affectedValueSets.put(valueSetEntry.getKey(), valueSetEntry.getValue());
+                    changed = true;
+                }
+            }
+        }
+        // the store may still be read through the codings handed out, so the update is made on a copy
+        FHIRTerminologyStore terminologyStore = this.terminologyStore.copy();
+        for (String valueSetUrl : valueSetUrls) {
+            if (!this.valueSets.containsKey(valueSetUrl)) {
+                terminologyStore.removeValueSet(valueSetUrl);
+            }
+        }
+        FHIRR4SpecUtils.addTerminologies(terminologyStore, FHIRR4SpecUtils.resolveTerminology(
+                affectedValueSets, createValueSetExpander()));
+        this.terminologyStore = terminologyStore;
     }
 
+    private static boolean isAffected(Map.Entry<String, FHIRTerminologyDef> valueSetEntry, Set<String> valueSetUrls,
+                                      Set<String> codeSystemUrls, Map<String, FHIRTerminologyDef> affectedValueSets) {
+        if (valueSetUrls.contains(valueSetEntry.getKey())) {
+            return true;
+        }
+        ValueSet valueSet = (ValueSet) valueSetEntry.getValue().getTerminologyResource();
+        List<ValueSet.ConceptSetComponent> conceptSets = new ArrayList<>(valueSet.getCompose().getInclude());
+        conceptSets.addAll(valueSet.getCompose().getExclude());
+        for (ValueSet.ConceptSetComponent conceptSet : conceptSets) {
+            if (codeSystemUrls.contains(conceptSet.getSystem())) {
+                return true;
+            }
+            for (CanonicalType includedValueSet : conceptSet.getValueSet()) {
+                String url = includedValueSet.getValue();
+                if (url != null && url.indexOf('|') >= 0) {
+                    url = url.substring(0, url.indexOf('|'));
+                }
+                if (valueSetUrls.contains(url) || affectedValueSets.containsKey(url)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized void thaw() {
+        if (isFrozen()) {
+            super.thaw();
+            dataTypeExpander = null;
+            valueSetExpander = null;
+            codeSystemClosures.clear();
+            terminologies = null;
+        }
+    }
+
+    /**
+     * Returns the closure of the concept hierarchy of a code system, to answer subsumption queries without walking
+     * the concepts. The closure is built once per code system.
+     *
+     * @param codeSystemUrl code system canonical, versioned or not
+     * @return closure, or null if the code system is not loaded
+     */
+    public FHIRCodeSystemClosure getCodeSystemClosure(String codeSystemUrl) {
+        if (codeSystemUrl == null) {
+            return null;
+        }
+        String url = codeSystemUrl.indexOf('|') >= 0 ?
+                codeSystemUrl.substring(0, codeSystemUrl.indexOf('|')) : codeSystemUrl;
+        return codeSystemClosures.computeIfAbsent(url, key -> {
+            FHIRTerminologyDef codeSystemDef = this.codeSystems.get(key);
+            return codeSystemDef != null ?
+                    FHIRR4SpecUtils.getCodeSystemClosure((CodeSystem) codeSystemDef.getTerminologyResource()) : null;
+        });
+    }
+
+    /**
+     * Returns the expander of the complex data types of this specification data, shared by all the callers.
+     *
+     * @return data type expander
+     */
+    public synchronized FHIRDataTypeExpander<ElementDefinition> getDataTypeExpander() {
+        if (dataTypeExpander == null) {
+            dataTypeExpander = new FHIRDataTypeExpander<>(this::getDataTypeElementTree, FHIRR4SpecUtils::getTypeCodes);
+        }
+        return dataTypeExpander;
+    }
+
+    private FHIRElementTree<ElementDefinition> getDataTypeElementTree(String typeName) {
+        FHIRDataTypeDef dataTypeDef = dataTypes.get(typeName);
+        if (dataTypeDef instanceof FHIRR4DataTypeDef &&
+                DefKind.COMPLEX_TYPE.equals(((FHIRR4DataTypeDef) dataTypeDef).getKind())) {
+            return ((FHIRR4DataTypeDef) dataTypeDef).getElementTree();
+        }
+        return null;
+    }
+
+    @Override
+    protected void indexElements(FHIRReverseIndex index, FHIRResourceDef resourceDef) {
+        if (!(resourceDef instanceof FHIRR4ResourceDef)) {
+            return;
+        }
+        FHIRR4ResourceDef r4ResourceDef = (FHIRR4ResourceDef) resourceDef;
+        for (ElementDefinition element :
+                r4ResourceDef.getElementIndex(ElementExpansionType.SNAPSHOT).getElements()) {
+            List<String> extensionUrls = new ArrayList<>();
+            for (ElementDefinition.TypeRefComponent type : element.getType()) {
+                if ("Extension".equals(type.getCode())) {
+                    for (CanonicalType profile : type.getProfile()) {
+                        extensionUrls.add(profile.getValue());
+                    }
+                }
+            }
+            String valueSetUrl = element.hasBinding() && element.getBinding().hasValueSet() ?
+                    element.getBinding().getValueSet() : null;
+            index.addElement(resourceDef, element.getId(), element.getPath(), valueSetUrl,
+                    FHIRR4SpecUtils.getTypeCodes(element), extensionUrls);
+        }
+    }
+
+    @Override
+    protected void addDependencies(FHIRDependencyGraph graph) {
+        for (FHIRDataTypeDef dataTypeDef : dataTypes.values()) {
+            if (dataTypeDef instanceof FHIRR4DataTypeDef) {
+                StructureDefinition definition = ((FHIRR4DataTypeDef) dataTypeDef).getDefinition();
+                graph.addNode(definition.getUrl(), FHIRDependencyGraph.NodeKind.DATA_TYPE);
+                addStructureDependencies(graph, definition.getUrl(), definition.getBaseDefinition(),
+                        definition.getSnapshot().getElement());
+            }
+        }
+        for (String igName : new TreeSet<>(getFhirImplementationGuides().keySet())) {
+            FHIRImplementationGuide implementationGuide = getFhirImplementationGuides().get(igName);
+            for (Map.Entry<String, FHIRResourceDef> resourceEntry : implementationGuide.getResources().entrySet()) {
+                if (resourceEntry.getValue() instanceof FHIRR4ResourceDef) {
+                    FHIRR4ResourceDef resourceDef = (FHIRR4ResourceDef) resourceEntry.getValue();
+                    graph.addNode(resourceEntry.getKey(), FHIRDependencyGraph.NodeKind.PROFILE);
+                    addStructureDependencies(graph, resourceEntry.getKey(), resourceDef.getBaseDefinition(),
+                            resourceDef.getElementIndex(ElementExpansionType.SNAPSHOT).getElements());
+                }
+            }
+        }
+        for (String codeSystemUrl : codeSystems.keySet()) {
+            graph.addNode(codeSystemUrl, FHIRDependencyGraph.NodeKind.CODE_SYSTEM);
+        }
+        for (Map.Entry<String, FHIRTerminologyDef> valueSetEntry : valueSets.entrySet()) {
+            graph.addNode(valueSetEntry.getKey(), FHIRDependencyGraph.NodeKind.VALUE_SET);
+            ValueSet valueSet = (ValueSet) valueSetEntry.getValue().getTerminologyResource();
+            if (!valueSet.hasCompose()) {
+                continue;
+            }
+            List<ValueSet.ConceptSetComponent> conceptSets = new ArrayList<>(valueSet.getCompose().getInclude());
+            conceptSets.addAll(valueSet.getCompose().getExclude());
+            for (ValueSet.ConceptSetComponent conceptSet : conceptSets) {
+                graph.addDependency(valueSetEntry.getKey(), conceptSet.getSystem());
+                for (CanonicalType includedValueSet : conceptSet.getValueSet()) {
+                    graph.addDependency(valueSetEntry.getKey(), includedValueSet.getValue());
+                }
+            }
+        }
+    }
+
+    private static void addStructureDependencies(FHIRDependencyGraph graph, String url, String baseDefinition,
+                                                 List<ElementDefinition> elements) {
+        graph.addDependency(url, baseDefinition);
+        for (ElementDefinition element : elements) {
+            for (ElementDefinition.TypeRefComponent type : element.getType()) {
+                graph.addDependency(url, FHIRDependencyGraph.getTypeUrl(type.getCode()));
+                for (CanonicalType profile : type.getProfile()) {
+                    graph.addDependency(url, profile.getValue());
+                }
+                for (CanonicalType targetProfile : type.getTargetProfile()) {
+                    graph.addDependency(url, targetProfile.getValue());
+                }
+            }
+            if (element.hasBinding() && element.getBinding().hasValueSet()) {
+                graph.addDependency(url, element.getBinding().getValueSet());
+            }
+        }
+    }
+
+    /**
+     * Returns the codings of the value sets keyed by the value set url. The codings of a value set are created from
+     * the terminology store, or expanded when value sets are expanded lazily, on its first lookup. They are kept as a
+     * mutable map which is returned on every later lookup, until the terminologies are resolved again. The returned
+     * map of value sets is unmodifiable. Codings which are only read should rather be looked up with
+     * {@link #expand(String)}, which does not keep them.
+     *
+     * @return codings keyed by code, keyed by the value set url
+     */
     public Map<String, Map<String, Coding>> getTerminologies() {
-        return resolvedTerminologies;
+        Map<String, Map<String, Coding>> terminologies = this.terminologies;
+        if (terminologies == null) {
+            Set<String> valueSetUrls = terminologyCache != null ?
+                    Collections.unmodifiableSet(this.valueSets.keySet()) : terminologyStore.getValueSetUrls();
+            terminologies = new FHIRLazyMap<>(valueSetUrls, url -> {
+                Map<String, Coding> codings = expand(url);
+                return codings != null ? new HashMap<>(codings) : null;
+            }, true);
+            this.terminologies = terminologies;
+        }
+        return terminologies;
     }
 
     public boolean isPrimitiveDataType(ElementDefinition elementDefinition) {
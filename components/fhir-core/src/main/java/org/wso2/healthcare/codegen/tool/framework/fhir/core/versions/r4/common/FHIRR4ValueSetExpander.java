@@ -0,0 +1,454 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.org).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.healthcare.codegen.tool.framework.fhir.core.versions.r4.common;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hl7.fhir.r4.model.CanonicalType;
+import org.hl7.fhir.r4.model.CodeSystem;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.PrimitiveType;
+import org.hl7.fhir.r4.model.ValueSet;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRCodeSystemClosure;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.model.FHIRTerminologyDef;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Expands FHIR R4 value sets into their codings. Included concepts are looked up in a hashed index of each code
+ * system, which covers the nested concepts of the code system hierarchy, and hierarchy filters are answered by the
+ * closure of the code system, looked up from the specification data when it keeps the closures. Includes and
+ * excludes are evaluated with their concept lists, filters and included value sets, and the expansions of included
+ * value sets are memoized, so that each value set is expanded once per expander.
+ * <p>
+ * An expander is not thread safe. Expanders created with {@link #fork()} share the code system indexes, and can be
+ * used on other threads.
+ */
+public class FHIRR4ValueSetExpander {
+
+    private static final Log LOG = LogFactory.getLog(FHIRR4ValueSetExpander.class);
+    private static final char KEY_SEPARATOR = '|';
+
+    private final Map<String, FHIRTerminologyDef> valueSets;
+    private final Map<String, FHIRTerminologyDef> codeSystems;
+    private final Function<String, FHIRCodeSystemClosure> closureLookup;
+    // code system indexes are not modified once built, so they are shared by the forked expanders
+    private final Map<String, CodeSystemIndex> codeSystemIndexes;
+    // expansions keyed by system|code, in their expansion order
+    private final Map<String, Map<String, Coding>> expansions = new HashMap<>();
+    private final Set<String> expandingValueSets = new HashSet<>();
+
+    /**
+     * @param valueSets   value sets by their url, used to resolve included value sets
+     * @param codeSystems code systems by their url
+     */
+    public FHIRR4ValueSetExpander(Map<String, FHIRTerminologyDef> valueSets,
+                                  Map<String, FHIRTerminologyDef> codeSystems) {
+        this(valueSets, codeSystems, url -> {
+            FHIRTerminologyDef codeSystemDef = codeSystems.get(url);
+            return codeSystemDef != null ?
+                    FHIRR4SpecUtils.getCodeSystemClosure((CodeSystem) codeSystemDef.getTerminologyResource()) : null;
+        });
+    }
+
+    /**
+     * @param valueSets     value sets by their url, used to resolve included value sets
+     * @param codeSystems   code systems by their url
+     * @param closureLookup returns the closure of a code system by its url, e.g. from the closures kept by the
+     *                      specification data, so that a closure is built once
+     */
+    public FHIRR4ValueSetExpander(Map<String, FHIRTerminologyDef> valueSets,
+                                  Map<String, FHIRTerminologyDef> codeSystems,
+                                  Function<String, FHIRCodeSystemClosure> closureLookup) {
+        this(valueSets, codeSystems, closureLookup, new ConcurrentHashMap<>());
+    }
+
+    private FHIRR4ValueSetExpander(Map<String, FHIRTerminologyDef> valueSets,
+                                   Map<String, FHIRTerminologyDef> codeSystems,
+                                   Function<String, FHIRCodeSystemClosure> closureLookup,
+                                   Map<String, CodeSystemIndex> codeSystemIndexes) {
+        this.valueSets = valueSets;
+        this.codeSystems = codeSystems;
+        this.closureLookup = closureLookup;
+        this.codeSystemIndexes = codeSystemIndexes;
+    }
+
+    /**
+     * Creates an expander of the same value sets and code systems, sharing the code system indexes of this expander
+     * but not its memoized expansions, to be used on another thread.
+     *
+     * @return forked expander
+     */
+    public FHIRR4ValueSetExpander fork() {
+        return new FHIRR4ValueSetExpander(valueSets, codeSystems, closureLookup, codeSystemIndexes);
+    }
+
+    /**
+     * Returns the value sets which include themselves, directly or through other value sets, and the value sets which
+     * include them. A recursive include is ignored where it is first found, so the expansions of these value sets
+     * depend on the order in which value sets are expanded by an expander.
+     *
+     * @param valueSets value sets by their url
+     * @return urls of the recursive value sets
+     */
+    public static Set<String> getRecursiveValueSets(Map<String, FHIRTerminologyDef> valueSets) {
+        Map<String, Integer> pendingIncludes = new HashMap<>();
+        Map<String, Set<String>> includedBy = new HashMap<>();
+        for (Map.Entry<String, FHIRTerminologyDef> valueSetEntry : valueSets.entrySet()) {
+            Set<String> includedValueSets = new HashSet<>();
+            ValueSet valueSet = (ValueSet) valueSetEntry.getValue().getTerminologyResource();
+            if (valueSet.hasCompose()) {
+                List<ValueSet.ConceptSetComponent> conceptSets = new ArrayList<>(valueSet.getCompose().getInclude());
+                conceptSets.addAll(valueSet.getCompose().getExclude());
+                for (ValueSet.ConceptSetComponent conceptSet : conceptSets) {
+                    for (CanonicalType valueSetReference : conceptSet.getValueSet()) {
+                        String url = stripVersion(valueSetReference.getValue());
+                        if (url != null && valueSets.containsKey(url)) {
+                            includedValueSets.add(url);
+                        }
+                    }
+                }
+            }
+            pendingIncludes.put(valueSetEntry.getKey(), includedValueSets.size());
+            for (String url : includedValueSets) {
+                includedBy.computeIfAbsent(url, key -> new HashSet<>()).add(valueSetEntry.getKey());
+            }
+        }
+        // a value set is not recursive once all the value sets it includes are known not to be recursive
+        Deque<String> nonRecursive = new ArrayDeque<>();
+        for (Map.Entry<String, Integer> pending : pendingIncludes.entrySet()) {
+            if (pending.getValue() == 0) {
+                nonRecursive.add(pending.getKey());
+            }
+        }
+        while (!nonRecursive.isEmpty()) {
+            for (String url : includedBy.getOrDefault(nonRecursive.poll(), Collections.emptySet())) {
+                if (pendingIncludes.merge(url, -1, Integer::sum) == 0) {
+                    nonRecursive.add(url);
+                }
+            }
+        }
+        Set<String> recursiveValueSets = new HashSet<>();
+        for (Map.Entry<String, Integer> pending : pendingIncludes.entrySet()) {
+            if (pending.getValue() > 0) {
+                recursiveValueSets.add(pending.getKey());
+            }
+        }
+        return recursiveValueSets;
+    }
+
+    /**
+     * Expands a value set into its codings keyed by code. When codes of different systems collide, the coding
+     * expanded last is kept.
+     *
+     * @param valueSet value set
+     * @return codings keyed by code
+     */
+    public Map<String, Coding> expand(ValueSet valueSet) {
+        Map<String, Coding> codings = new HashMap<>();
+        for (Coding coding : expandValueSet(valueSet).values()) {
+            codings.put(coding.getCode(), coding);
+        }
+        return codings;
+    }
+
+    private Map<String, Coding> expandValueSet(ValueSet valueSet) {
+        String url = valueSet.getUrl();
+        Map<String, Coding> expansion = url != null ? expansions.get(url) : null;
+        if (expansion != null) {
+            return expansion;
+        }
+        if (url != null && !expandingValueSets.add(url)) {
+            LOG.warn("Value set: " + url + " includes itself, the recursive include is ignored.");
+            return Collections.emptyMap();
+        }
+        try {
+            expansion = new LinkedHashMap<>();
+            if (valueSet.hasCompose()) {
+                for (ValueSet.ConceptSetComponent include : valueSet.getCompose().getInclude()) {
+                    expansion.putAll(expandConceptSet(url, include));
+                }
+                for (ValueSet.ConceptSetComponent exclude : valueSet.getCompose().getExclude()) {
+                    expansion.keySet().removeAll(expandConceptSet(url, exclude).keySet());
+                }
+            }
+            if (url != null) {
+                expansions.put(url, expansion);
+            }
+            return expansion;
+        } finally {
+            if (url != null) {
+                expandingValueSets.remove(url);
+            }
+        }
+    }
+
+    /**
+     * Expands an include or exclude. The codes of its system and the codes of its value sets are intersected.
+     */
+    private Map<String, Coding> expandConceptSet(String valueSetUrl, ValueSet.ConceptSetComponent conceptSet) {
+        Map<String, Coding> codings = null;
+        String system = conceptSet.getSystem();
+        if (system != null) {
+            codings = expandSystem(valueSetUrl, system, conceptSet);
+        }
+        for (CanonicalType valueSetReference : conceptSet.getValueSet()) {
+            Map<String, Coding> valueSetCodings = expandValueSetReference(valueSetReference.getValue());
+            if (codings == null) {
+                codings = new LinkedHashMap<>(valueSetCodings);
+            } else {
+                codings.keySet().retainAll(valueSetCodings.keySet());
+            }
+        }
+        return codings != null ? codings : Collections.emptyMap();
+    }
+
+    private Map<String, Coding> expandValueSetReference(String canonical) {
+        if (canonical == null) {
+            return Collections.emptyMap();
+        }
+        String url = stripVersion(canonical);
+        FHIRTerminologyDef valueSetDef = valueSets.get(url);
+        if (valueSetDef == null) {
+            LOG.debug("Included value set: " + url + " is not loaded.");
+            return Collections.emptyMap();
+        }
+        return expandValueSet((ValueSet) valueSetDef.getTerminologyResource());
+    }
+
+    private Map<String, Coding> expandSystem(String valueSetUrl, String system,
+                                             ValueSet.ConceptSetComponent conceptSet) {
+        Map<String, Coding> codings = new LinkedHashMap<>();
+        CodeSystemIndex codeSystemIndex = getCodeSystemIndex(system);
+        if (!conceptSet.getConcept().isEmpty()) {
+            for (ValueSet.ConceptReferenceComponent concept : conceptSet.getConcept()) {
+                Coding coding = new Coding();
+                coding.setCode(concept.getCode());
+                coding.setSystem(system);
+                if (concept.getDisplay() != null) {
+                    coding.setDisplay(concept.getDisplay());
+                } else if (codeSystemIndex != null) {
+                    CodeSystem.ConceptDefinitionComponent definition = codeSystemIndex.concepts.get(concept.getCode());
+                    if (definition != null && !isDeprecated(definition)) {
+                        coding.setDisplay(definition.getDisplay());
+                    }
+                }
+                codings.put(system + KEY_SEPARATOR + concept.getCode(), coding);
+            }
+            return codings;
+        }
+        if (codeSystemIndex == null) {
+            return codings;
+        }
+        List<ValueSet.ConceptSetFilterComponent> filters = conceptSet.getFilter();
+        List<Pattern> patterns = compilePatterns(valueSetUrl, filters);
+        for (CodeSystem.ConceptDefinitionComponent definition : getFilterCandidates(codeSystemIndex, filters)) {
+            if (!isDeprecated(definition) && matchesFilters(codeSystemIndex, definition, filters, patterns)) {
+                Coding coding = new Coding();
+                coding.setCode(definition.getCode());
+                coding.setDisplay(definition.getDisplay());
+                coding.setSystem(system);
+                codings.put(system + KEY_SEPARATOR + definition.getCode(), coding);
+            }
+        }
+        return codings;
+    }
+
+    /**
+     * Returns the concepts which may match the filters. When a filter selects the descendants of a concept, only
+     * those are returned rather than all the concepts of the code system.
+     */
+    private Collection<CodeSystem.ConceptDefinitionComponent> getFilterCandidates(
+            CodeSystemIndex codeSystemIndex, List<ValueSet.ConceptSetFilterComponent> filters) {
+        for (ValueSet.ConceptSetFilterComponent filter : filters) {
+            String operator = filter.getOp() != null ? filter.getOp().toCode() : null;
+            boolean conceptProperty = "concept".equals(filter.getProperty()) || "code".equals(filter.getProperty());
+            if (conceptProperty && filter.getValue() != null &&
+                    ("is-a".equals(operator) || "descendent-of".equals(operator))) {
+                List<CodeSystem.ConceptDefinitionComponent> candidates = new ArrayList<>();
+                for (String code : codeSystemIndex.closure.getDescendants(filter.getValue(), "is-a".equals(operator))) {
+                    candidates.add(codeSystemIndex.concepts.get(code));
+                }
+                return candidates;
+            }
+        }
+        return codeSystemIndex.concepts.values();
+    }
+
+    /**
+     * Compiles the patterns of the regex filters once, rather than for each concept they are matched against. A regex
+     * filter with an invalid pattern matches no concepts.
+     *
+     * @return pattern of each filter, or null if it is not a regex filter or its pattern is invalid
+     */
+    private static List<Pattern> compilePatterns(String valueSetUrl, List<ValueSet.ConceptSetFilterComponent> filters) {
+        List<Pattern> patterns = new ArrayList<>(filters.size());
+        for (ValueSet.ConceptSetFilterComponent filter : filters) {
+            boolean regex = filter.getOp() != null && "regex".equals(filter.getOp().toCode());
+            Pattern pattern = null;
+            if (regex && filter.getValue() != null) {
+                try {
+                    pattern = Pattern.compile(filter.getValue());
+                } catch (PatternSyntaxException e) {
+                    LOG.warn("Value set: " + valueSetUrl + " has an invalid regex filter: " + filter.getValue() +
+                            " on property: " + filter.getProperty() + ", no concepts match it.");
+                }
+            }
+            patterns.add(pattern);
+        }
+        return patterns;
+    }
+
+    private boolean matchesFilters(CodeSystemIndex codeSystemIndex, CodeSystem.ConceptDefinitionComponent definition,
+                                   List<ValueSet.ConceptSetFilterComponent> filters, List<Pattern> patterns) {
+        for (int i = 0; i < filters.size(); i++) {
+            if (!matchesFilter(codeSystemIndex, definition, filters.get(i), patterns.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matchesFilter(CodeSystemIndex codeSystemIndex, CodeSystem.ConceptDefinitionComponent definition,
+                                  ValueSet.ConceptSetFilterComponent filter, Pattern pattern) {
+        String code = definition.getCode();
+        String value = filter.getValue();
+        String operator = filter.getOp() != null ? filter.getOp().toCode() : null;
+        if (operator == null || value == null) {
+            return false;
+        }
+        boolean conceptProperty = "concept".equals(filter.getProperty()) || "code".equals(filter.getProperty());
+        switch (operator) {
+            case "is-a":
+                return conceptProperty && codeSystemIndex.closure.isSubsumedBy(code, value, true);
+            case "descendent-of":
+                return conceptProperty && codeSystemIndex.closure.isSubsumedBy(code, value, false);
+            case "is-not-a":
+                return conceptProperty && !codeSystemIndex.closure.isSubsumedBy(code, value, true);
+            case "generalizes":
+                return conceptProperty && codeSystemIndex.closure.isSubsumedBy(value, code, true);
+            case "=":
+                return value.equals(conceptProperty ? code : getPropertyValue(definition, filter.getProperty()));
+            case "in":
+                return containsCode(value,
+                        conceptProperty ? code : getPropertyValue(definition, filter.getProperty()));
+            case "not-in":
+                return !containsCode(value,
+                        conceptProperty ? code : getPropertyValue(definition, filter.getProperty()));
+            case "regex":
+                String matched = conceptProperty ? code : getPropertyValue(definition, filter.getProperty());
+                return matched != null && pattern != null && pattern.matcher(matched).matches();
+            case "exists":
+                return Boolean.parseBoolean(value) == (getPropertyValue(definition, filter.getProperty()) != null);
+            default:
+                LOG.debug("Value set filter operator: " + operator + " is not supported.");
+                return false;
+        }
+    }
+
+    /**
+     * Returns whether the given code is one of the comma separated codes of an in or not-in filter. The codes are
+     * trimmed, and empty codes are ignored.
+     */
+    private static boolean containsCode(String codes, String code) {
+        if (code == null) {
+            return false;
+        }
+        for (String token : codes.split(",")) {
+            String trimmed = token.trim();
+            if (!trimmed.isEmpty() && trimmed.equals(code)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private CodeSystemIndex getCodeSystemIndex(String system) {
+        return codeSystemIndexes.computeIfAbsent(system, key -> {
+            FHIRTerminologyDef codeSystemDef = codeSystems.get(key);
+            CodeSystem codeSystem = codeSystemDef != null ? (CodeSystem) codeSystemDef.getTerminologyResource() : null;
+            if (codeSystem == null) {
+                return null;
+            }
+            FHIRCodeSystemClosure closure = closureLookup.apply(key);
+            return new CodeSystemIndex(codeSystem,
+                    closure != null ? closure : FHIRR4SpecUtils.getCodeSystemClosure(codeSystem));
+        });
+    }
+
+    private static String stripVersion(String canonical) {
+        if (canonical == null) {
+            return null;
+        }
+        int separatorIndex = canonical.indexOf(KEY_SEPARATOR);
+        return separatorIndex >= 0 ? canonical.substring(0, separatorIndex) : canonical;
+    }
+
+    private static boolean isDeprecated(CodeSystem.ConceptDefinitionComponent definition) {
+        return "deprecated".equals(getPropertyValue(definition, "status"));
+    }
+
+    private static String getPropertyValue(CodeSystem.ConceptDefinitionComponent definition, String propertyCode) {
+        for (CodeSystem.ConceptPropertyComponent property : definition.getProperty()) {
+            if (propertyCode != null && propertyCode.equals(property.getCode()) && property.getValue() != null) {
+                return property.getValue() instanceof PrimitiveType ?
+                        ((PrimitiveType<?>) property.getValue()).getValueAsString() : property.getValue().toString();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Concepts of a code system by their code, including the nested concepts, with the closure of their hierarchy.
+     */
+    private static class CodeSystemIndex {
+
+        // in the depth first order of the hierarchy, as numbered by the closure
+        private final Map<String, CodeSystem.ConceptDefinitionComponent> concepts = new LinkedHashMap<>();
+        private final FHIRCodeSystemClosure closure;
+
+        CodeSystemIndex(CodeSystem codeSystem, FHIRCodeSystemClosure closure) {
+            addConcepts(codeSystem.getConcept());
+            this.closure = closure;
+        }
+
+        private void addConcepts(List<CodeSystem.ConceptDefinitionComponent> conceptList) {
+            for (CodeSystem.ConceptDefinitionComponent concept : conceptList) {
+                if (concept.getCode() == null || concepts.putIfAbsent(concept.getCode(), concept) != null) {
+                    continue;
+                }
+                addConcepts(concept.getConcept());
+            }
+        }
+    }
+}
@@ -18,13 +18,15 @@
 
 package org.wso2.healthcare.codegen.tool.framework.fhir.core.versions.r4.model;
 
-import org.apache.commons.lang.StringUtils;
 import org.hl7.fhir.r4.model.ElementDefinition;
 import org.hl7.fhir.r4.model.Extension;
 import org.hl7.fhir.r4.model.StructureDefinition;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRCardinalityTable;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRElementTree;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.model.FHIRDataTypeDef;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.util.CardinalityTypes;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.util.DefKind;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.versions.r4.common.FHIRR4SpecUtils;
 
 import java.util.List;
 
@@ -35,6 +37,10 @@ public class FHIRR4DataTypeDef implements FHIRDataTypeDef<StructureDefinition, E
     //TODO: filter the data type elements with element.id, element.extension filtered out
     private StructureDefinition definition;
     private DefKind kind;
+    // cardinality of the snapshot elements, computed when the definition is set
+    private FHIRCardinalityTable cardinalityTable;
+    // snapshot elements as a tree, built on first use
+    private FHIRElementTree<ElementDefinition> elementTree;
 
     /**
      * Returns parsed structure definition model for the data type.
@@ -49,6 +55,9 @@ public class FHIRR4DataTypeDef implements FHIRDataTypeDef<StructureDefinition, E
     @Override
     public void setDefinition(StructureDefinition definition) {
         this.definition = definition;
+        this.cardinalityTable = definition != null ? new FHIRCardinalityTable(definition.getSnapshot().getElement(),
+                ElementDefinition::getPath, ElementDefinition::getMin, ElementDefinition::getMax) : null;
+        this.elementTree = null;
     }
 
     /**
@@ -59,13 +68,7 @@ public class FHIRR4DataTypeDef implements FHIRDataTypeDef<StructureDefinition, E
      */
     @Override
     public String getMaxCardinality(String fhirPath) {
-        List<ElementDefinition> elementDefinitions = definition.getSnapshot().getElement();
-        for (ElementDefinition elementDefinition : elementDefinitions) {
-            if (fhirPath.equals(elementDefinition.getPath())) {
-                return elementDefinition.getMax();
-            }
-        }
-        return null;
+        return cardinalityTable.getMaxValue(fhirPath);
     }
 
     /**
@@ -76,11 +79,7 @@ public class FHIRR4DataTypeDef implements FHIRDataTypeDef<StructureDefinition, E
      */
     @Override
     public CardinalityTypes getMaxCardinalityType(String fhirPath) {
-        String maxCardinality = this.getMaxCardinality(fhirPath);
-        if (StringUtils.isNotBlank(maxCardinality)) {
-            return CardinalityTypes.fromValue("max", maxCardinality);
-        }
-        return CardinalityTypes.INVALID;
+        return cardinalityTable.getMaxType(fhirPath);
     }
 
     /**
@@ -91,13 +90,7 @@ public class FHIRR4DataTypeDef implements FHIRDataTypeDef<StructureDefinition, E
      */
     @Override
     public String getMinCardinality(String fhirPath) {
-        List<ElementDefinition> elementDefinitions = definition.getSnapshot().getElement();
-        for (ElementDefinition elementDefinition : elementDefinitions) {
-            if (fhirPath.equals(elementDefinition.getPath())) {
-                return String.valueOf(elementDefinition.getMin());
-            }
-        }
-        return null;
+        return cardinalityTable.contains(fhirPath) ? String.valueOf(cardinalityTable.getMin(fhirPath)) : null;
     }
 
     /**
@@ -108,11 +101,39 @@ public class FHIRR4DataTypeDef implements FHIRDataTypeDef<StructureDefinition, E
      */
     @Override
     public CardinalityTypes getMinCardinalityType(String fhirPath) {
-        String minCardinality = this.getMinCardinality(fhirPath);
-        if (StringUtils.isNotBlank(minCardinality)) {
-            return CardinalityTypes.fromValue("min", minCardinality);
+        return cardinalityTable.getMinType(fhirPath);
+    }
+
+    @Override
+    public int getMaxCardinalityValue(String fhirPath) {
+        return cardinalityTable.getMax(fhirPath);
+    }
+
+    @Override
+    public int getMinCardinalityValue(String fhirPath) {
+        return cardinalityTable.getMin(fhirPath);
+    }
+
+    /**
+     * Returns the cardinality of the snapshot elements of the data type.
+     *
+     * @return cardinality table
+     */
+    public FHIRCardinalityTable getCardinalityTable() {
+        return cardinalityTable;
+    }
+
+    /**
+     * Returns the snapshot elements of the data type as a tree.
+     *
+     * @return element tree of the data type
+     */
+    public synchronized FHIRElementTree<ElementDefinition> getElementTree() {
+        if (elementTree == null) {
+            elementTree = new FHIRElementTree<>(definition.getSnapshot().getElement(), ElementDefinition::getPath,
+                    ElementDefinition::getId, FHIRR4SpecUtils::getTypeCodes);
         }
-        return CardinalityTypes.INVALID;
+        return elementTree;
     }
 
     @Override
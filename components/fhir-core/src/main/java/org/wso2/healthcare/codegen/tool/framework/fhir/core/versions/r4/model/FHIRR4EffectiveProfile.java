@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.org).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.healthcare.codegen.tool.framework.fhir.core.versions.r4.model;
+
+import org.hl7.fhir.r4.model.ElementDefinition;
+import org.hl7.fhir.r4.model.Extension;
+import org.hl7.fhir.r4.model.StructureDefinition;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.model.FHIRResourceDef;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.util.ElementExpansionType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Effective view of a FHIR R4 profile, with the constraints, bindings, mustSupport flags and extensions of its
+ * elements merged through its inheritance chain. A view is computed once per resource definition, and is stale once
+ * a definition in the chain is changed or the chain itself is relinked.
+ */
+public class FHIRR4EffectiveProfile {
+
+    // the profile followed by its ancestors, nearest first
+    private final List<FHIRResourceDef<StructureDefinition, Extension, ElementDefinition>> chain;
+    private final long[] revisions;
+    private final Map<String, EffectiveElement> elements = new LinkedHashMap<>();
+    private final List<Extension> extensions;
+
+    FHIRR4EffectiveProfile(FHIRR4ResourceDef resourceDef) {
+        List<FHIRResourceDef<StructureDefinition, Extension, ElementDefinition>> chain = new ArrayList<>();
+        chain.add(resourceDef);
+        chain.addAll(resourceDef.getAncestors());
+        this.chain = chain;
+        this.revisions = new long[chain.size()];
+        for (int i = 0; i < chain.size(); i++) {
+            revisions[i] = getRevision(chain.get(i));
+        }
+
+        List<List<Extension>> profileExtensions = new ArrayList<>(chain.size());
+        Map<String, List<ElementDefinition>> elementChains = new LinkedHashMap<>();
+        for (FHIRResourceDef<StructureDefinition, Extension, ElementDefinition> profile : chain) {
+            profileExtensions.add(profile.getExtensions());
+            for (ElementDefinition element : getSnapshotElements(profile)) {
+                String key = element.getId() != null ? element.getId() : element.getPath();
+                elementChains.computeIfAbsent(key, k -> new ArrayList<>()).add(element);
+            }
+        }
+        for (Map.Entry<String, List<ElementDefinition>> elementChain : elementChains.entrySet()) {
+            elements.put(elementChain.getKey(), new EffectiveElement(elementChain.getValue()));
+        }
+        this.extensions = mergeExtensions(profileExtensions);
+    }
+
+    /**
+     * Returns whether the view still reflects the given resource definition and its current ancestors.
+     *
+     * @param resourceDef resource definition the view is computed for
+     * @return true if no definition in the chain has changed
+     */
+    boolean isCurrent(FHIRR4ResourceDef resourceDef) {
+        List<FHIRResourceDef<StructureDefinition, Extension, ElementDefinition>> ancestors = resourceDef.getAncestors();
+        if (chain.get(0) != resourceDef || chain.size() != ancestors.size() + 1) {
+            return false;
+        }
+        for (int i = 0; i < chain.size(); i++) {
+            FHIRResourceDef<StructureDefinition, Extension, ElementDefinition> profile =
+                    i == 0 ? resourceDef : ancestors.get(i - 1);
+            if (chain.get(i) != profile || revisions[i] != getRevision(profile)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the profile followed by its ancestors, nearest first.
+     *
+     * @return unmodifiable inheritance chain
+     */
+    public List<FHIRResourceDef<StructureDefinition, Extension, ElementDefinition>> getChain() {
+        return Collections.unmodifiableList(chain);
+    }
+
+    /**
+     * Returns the effective elements, in the snapshot order of the profile followed by the elements only defined by
+     * its ancestors.
+     *
+     * @return effective elements
+     */
+    public Collection<EffectiveElement> getElements() {
+        return Collections.unmodifiableCollection(elements.values());
+    }
+
+    /**
+     * Returns the effective element of the given element id.
+     *
+     * @param id element id, e.g. Patient.identifier:mrn
+     * @return effective element, or null if no profile in the chain defines the element
+     */
+    public EffectiveElement getElement(String id) {
+        return elements.get(id);
+    }
+
+    /**
+     * Returns the extensions of the profile merged with the extensions of its ancestors. An extension of an
+     * ancestor is overridden by the extensions of the same url in a nearer profile.
+     *
+     * @return merged extensions
+     */
+    public List<Extension> getExtensions() {
+        return extensions;
+    }
+
+    private static long getRevision(FHIRResourceDef<StructureDefinition, Extension, ElementDefinition> profile) {
+        return profile instanceof FHIRR4ResourceDef ? ((FHIRR4ResourceDef) profile).getRevision() : 0;
+    }
+
+    private static List<ElementDefinition> getSnapshotElements(
+            FHIRResourceDef<StructureDefinition, Extension, ElementDefinition> profile) {
+        if (profile instanceof FHIRR4ResourceDef) {
+            return ((FHIRR4ResourceDef) profile).getElementIndex(ElementExpansionType.SNAPSHOT).getElements();
+        }
+        return profile.getDefinition().getSnapshot().getElement();
+    }
+
+    private static List<Extension> mergeExtensions(List<List<Extension>> extensionChain) {
+        List<Extension> merged = new ArrayList<>();
+        Set<String> overriddenUrls = new HashSet<>();
+        for (List<Extension> extensions : extensionChain) {
+            Set<String> urls = new HashSet<>();
+            for (Extension extension : extensions) {
+                if (!overriddenUrls.contains(extension.getUrl())) {
+                    merged.add(extension);
+                    urls.add(extension.getUrl());
+                }
+            }
+            overriddenUrls.addAll(urls);
+        }
+        return Collections.unmodifiableList(merged);
+    }
+
+    /**
+     * Element of a profile with the constraints of the same element in its ancestors merged in.
+     */
+    public static class EffectiveElement {
+
+        private final ElementDefinition element;
+        private final boolean mustSupport;
+        private final ElementDefinition.ElementDefinitionBindingComponent binding;
+        private final List<ElementDefinition.ElementDefinitionConstraintComponent> constraints;
+        private final List<Extension> extensions;
+
+        private EffectiveElement(List<ElementDefinition> elementChain) {
+            this.element = elementChain.get(0);
+            boolean mustSupport = false;
+            ElementDefinition.ElementDefinitionBindingComponent binding = null;
+            Map<String, ElementDefinition.ElementDefinitionConstraintComponent> constraints = new LinkedHashMap<>();
+            List<List<Extension>> extensionChain = new ArrayList<>(elementChain.size());
+            for (ElementDefinition element : elementChain) {
+                // a derived profile can't remove the mustSupport flag of its base
+                mustSupport |= element.getMustSupport();
+                if (binding == null && element.hasBinding()) {
+                    binding = element.getBinding();
+                }
+                for (ElementDefinition.ElementDefinitionConstraintComponent constraint : element.getConstraint()) {
+                    constraints.putIfAbsent(constraint.getKey() != null ? constraint.getKey() :
+                            constraint.getExpression(), constraint);
+                }
+                extensionChain.add(element.getExtension());
+            }
+            this.mustSupport = mustSupport;
+            this.binding = binding;
+            this.constraints = Collections.unmodifiableList(new ArrayList<>(constraints.values()));
+            this.extensions = mergeExtensions(extensionChain);
+        }
+
+        /**
+         * Returns the element as defined by the nearest profile in the chain.
+         *
+         * @return element definition
+         */
+        public ElementDefinition getElement() {
+            return element;
+        }
+
+        public boolean isMustSupport() {
+            return mustSupport;
+        }
+
+        /**
+         * Returns the binding of the nearest profile in the chain which binds the element.
+         *
+         * @return binding, or null if the element is not bound
+         */
+        public ElementDefinition.ElementDefinitionBindingComponent getBinding() {
+            return binding;
+        }
+
+        /**
+         * Returns the constraints of the element across the chain, by constraint key, nearest first.
+         *
+         * @return merged constraints
+         */
+        public List<ElementDefinition.ElementDefinitionConstraintComponent> getConstraints() {
+            return constraints;
+        }
+
+        public List<Extension> getExtensions() {
+            return extensions;
+        }
+    }
+}
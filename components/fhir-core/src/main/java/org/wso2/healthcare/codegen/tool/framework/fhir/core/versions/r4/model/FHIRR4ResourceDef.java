@@ -21,6 +21,11 @@ package org.wso2.healthcare.codegen.tool.framework.fhir.core.versions.r4.model;
 import org.hl7.fhir.r4.model.ElementDefinition;
 import org.hl7.fhir.r4.model.Extension;
 import org.hl7.fhir.r4.model.StructureDefinition;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRCardinalityTable;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRElementIndex;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRElementTree;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.LazyDefinition;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.config.DefinitionRetention;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.model.FHIROperationDef;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.model.FHIRResourceDef;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.model.FHIRSearchParamDef;
@@ -28,35 +33,118 @@ import org.wso2.healthcare.codegen.tool.framework.fhir.core.versions.r4.common.F
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.util.DefKind;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.util.ElementExpansionType;
 
-import java.util.List;
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class holds the FHIR R4 resource definition.
  */
 public class FHIRR4ResourceDef implements FHIRResourceDef<StructureDefinition, Extension, ElementDefinition> {
 
+    private static final AtomicLong REVISIONS = new AtomicLong();
+
     private final Map<String, FHIRSearchParamDef> searchParamDefs = new HashMap<>();
     private final Map<String, FHIROperationDef> operationDefMap = new HashMap<>();
+    // parsed definition, or the header stub of a lazily loaded definition
     private StructureDefinition definition;
+    private LazyDefinition<StructureDefinition> lazyDefinition;
     private DefKind kind;
     private FHIRR4ResourceDef parentResource;
+    private List<FHIRResourceDef<StructureDefinition, Extension, ElementDefinition>> ancestors =
+            Collections.emptyList();
+    // indexed elements of the current definition, retained like the definition itself
+    private ElementViews elementViews;
+    private Reference<ElementViews> elementViewsReference;
+    // changed whenever the definition is set, to invalidate the effective views of derived profiles
+    private volatile long revision;
+
+    /**
+     * Returns a copy of this resource definition for a copied specification data, sharing the parsed definition. The
+     * parent resource and ancestors are left to be linked within the copy, and the element views are built again on
+     * first use.
+     *
+     * @return copied resource definition
+     */
+    public FHIRR4ResourceDef copy() {
+        FHIRR4ResourceDef resourceDef = new FHIRR4ResourceDef();
+        resourceDef.setDefinition(definition);
+        resourceDef.setKind(kind);
+        resourceDef.searchParamDefs.putAll(searchParamDefs);
+        resourceDef.operationDefMap.putAll(operationDefMap);
+        return resourceDef;
+    }
 
     @Override
     public StructureDefinition getDefinition() {
-        return definition;
+        return lazyDefinition != null ? lazyDefinition.get() : definition;
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public void setDefinition(StructureDefinition definition) {
         this.definition = definition;
+        this.revision = REVISIONS.incrementAndGet();
+        Object lazyDefinition = definition != null ? definition.getUserData(LazyDefinition.USER_DATA_KEY) : null;
+        this.lazyDefinition = lazyDefinition instanceof LazyDefinition ?
+                (LazyDefinition<StructureDefinition>) lazyDefinition : null;
+    }
+
+    /**
+     * Returns the base definition url without parsing a lazily loaded definition.
+     *
+     * @return base definition url
+     */
+    public String getBaseDefinition() {
+        return definition.getBaseDefinition();
+    }
+
+    /**
+     * Returns the resource type without parsing a lazily loaded definition.
+     *
+     * @return resource type
+     */
+    public String getType() {
+        return definition.getType();
+    }
+
+    /**
+     * Returns the revision of this resource definition, which changes whenever its definition is set.
+     *
+     * @return revision
+     */
+    public long getRevision() {
+        return revision;
+    }
+
+    /**
+     * Returns the business version without parsing a lazily loaded definition.
+     *
+     * @return business version, or null if the definition is not versioned
+     */
+    public String getVersion() {
+        return definition.getVersion();
+    }
+
+    /**
+     * Returns whether this resource definition is created from the given structure definition or its header stub.
+     *
+     * @param structureDefinition structure definition
+     * @return true if created from the given structure definition
+     */
+    public boolean isDefinedBy(StructureDefinition structureDefinition) {
+        return definition == structureDefinition;
     }
 
     @Override
     public List<Extension> getExtensions() {
-        return definition.getExtension();
+        return getDefinition().getExtension();
     }
 
     @Override
@@ -84,39 +172,107 @@ public class FHIRR4ResourceDef implements FHIRResourceDef<StructureDefinition, E
         this.parentResource = (FHIRR4ResourceDef) parentResource;
     }
 
+    /**
+     * Returns the ancestry chain of this profile, starting from the parent resource and ending with the base resource.
+     *
+     * @return ancestor resource definitions, nearest first
+     */
+    public List<FHIRResourceDef<StructureDefinition, Extension, ElementDefinition>> getAncestors() {
+        return ancestors;
+    }
+
+    public void setAncestors(List<FHIRResourceDef<StructureDefinition, Extension, ElementDefinition>> ancestors) {
+        this.ancestors = ancestors;
+    }
+
     @Override
     public StructureDefinition getDataType(String fhirPath) {
         return null;
     }
 
     /**
-     * Returns elements of the FHIR resource, given the expansion type: snapshot|differential.
+     * Returns elements of the FHIR resource, given the expansion type: snapshot|differential. The elements are
+     * filtered once per parsed definition, and a new list of them is returned on every call, which callers may
+     * modify. The unmodifiable list kept by the index is returned by
+     * {@link #getElementIndex(ElementExpansionType)}.
      *
      * @param expansionType values: snapshot|differential
      * @return elements of the FHIR resource
      */
     @Override
     public List<ElementDefinition> getElements(ElementExpansionType expansionType) {
-        List<ElementDefinition> elementDefinitions = null;
-        List<ElementDefinition> processableElementDefinitions = null;
+        FHIRElementIndex<ElementDefinition> elementIndex = getElementIndex(expansionType);
+        return elementIndex != null ? new ArrayList<>(elementIndex.getProcessableElements()) : null;
+    }
 
+    /**
+     * Returns the indexed elements of the FHIR resource, given the expansion type: snapshot|differential. The index
+     * is built once per parsed definition, and is retained like the definition itself.
+     *
+     * @param expansionType values: snapshot|differential
+     * @return element index of the FHIR resource
+     */
+    public FHIRElementIndex<ElementDefinition> getElementIndex(ElementExpansionType expansionType) {
         if (expansionType.equals(ElementExpansionType.SNAPSHOT)) {
-            elementDefinitions = definition.getSnapshot().getElement();
-            processableElementDefinitions = new ArrayList<>();
+            return getElementViews().getSnapshot();
         } else if (expansionType.equals(ElementExpansionType.DIFFERENTIAL)) {
-            elementDefinitions = definition.getDifferential().getElement();
-            processableElementDefinitions = new ArrayList<>();
+            return getElementViews().getDifferential();
         }
+        return null;
+    }
+
+    /**
+     * Returns the cardinality of the snapshot elements of the FHIR resource. The table is built once per parsed
+     * definition, and is retained like the definition itself.
+     *
+     * @return cardinality table of the FHIR resource
+     */
+    public FHIRCardinalityTable getCardinalityTable() {
+        return getElementViews().getCardinalityTable();
+    }
+
+    /**
+     * Returns the snapshot elements of the FHIR resource as a tree. The tree is built once per parsed definition,
+     * and is retained like the definition itself.
+     *
+     * @return element tree of the FHIR resource
+     */
+    public FHIRElementTree<ElementDefinition> getElementTree() {
+        return getElementViews().getElementTree();
+    }
 
-        if (elementDefinitions != null) {
-            for (ElementDefinition elementDefinition : elementDefinitions) {
-                if (FHIRR4SpecUtils.canSkip(definition, elementDefinition)) {
-                    continue;
-                }
-                processableElementDefinitions.add(elementDefinition);
+    /**
+     * Returns the effective view of this profile, merged through its ancestry chain. The view is computed on first
+     * use, shared by all the callers, and computed again only once a definition in the chain has changed.
+     *
+     * @return effective profile
+     */
+    public FHIRR4EffectiveProfile getEffectiveProfile() {
+        return getElementViews().getEffectiveProfile(this);
+    }
+
+    private synchronized ElementViews getElementViews() {
+        StructureDefinition definition = getDefinition();
+        ElementViews views = elementViews != null ? elementViews :
+                elementViewsReference != null ? elementViewsReference.get() : null;
+        // a lazily loaded definition is parsed again once released, and its elements are indexed again
+        if (views == null || views.definition != definition) {
+            views = new ElementViews(definition);
+            DefinitionRetention retention = lazyDefinition != null ? lazyDefinition.getRetention() :
+                    DefinitionRetention.STRONG;
+            switch (retention) {
+                case STRONG:
+                    elementViews = views;
+                    break;
+                case SOFT:
+                    elementViewsReference = new SoftReference<>(views);
+                    break;
+                case WEAK:
+                    elementViewsReference = new WeakReference<>(views);
+                    break;
             }
         }
-        return processableElementDefinitions;
+        return views;
     }
 
     public String getDefinitionType() {
@@ -135,4 +291,63 @@ public class FHIRR4ResourceDef implements FHIRResourceDef<StructureDefinition, E
     public void setKind(DefKind kind) {
         this.kind = kind;
     }
+
+    /**
+     * Element indexes of a parsed definition, built on first use.
+     */
+    private static class ElementViews {
+
+        private final StructureDefinition definition;
+        private FHIRElementIndex<ElementDefinition> snapshot;
+        private FHIRElementIndex<ElementDefinition> differential;
+        private FHIRCardinalityTable cardinalityTable;
+        private FHIRElementTree<ElementDefinition> elementTree;
+        private FHIRR4EffectiveProfile effectiveProfile;
+
+        ElementViews(StructureDefinition definition) {
+            this.definition = definition;
+        }
+
+        synchronized FHIRElementIndex<ElementDefinition> getSnapshot() {
+            if (snapshot == null) {
+                snapshot = createIndex(definition.getSnapshot().getElement());
+            }
+            return snapshot;
+        }
+
+        synchronized FHIRElementIndex<ElementDefinition> getDifferential() {
+            if (differential == null) {
+                differential = createIndex(definition.getDifferential().getElement());
+            }
+            return differential;
+        }
+
+        synchronized FHIRCardinalityTable getCardinalityTable() {
+            if (cardinalityTable == null) {
+                cardinalityTable = new FHIRCardinalityTable(definition.getSnapshot().getElement(),
+                        ElementDefinition::getPath, ElementDefinition::getMin, ElementDefinition::getMax);
+            }
+            return cardinalityTable;
+        }
+
+        synchronized FHIRElementTree<ElementDefinition> getElementTree() {
+            if (elementTree == null) {
+                elementTree = new FHIRElementTree<>(definition.getSnapshot().getElement(), ElementDefinition::getPath,
+                        ElementDefinition::getId, FHIRR4SpecUtils::getTypeCodes);
+            }
+            return elementTree;
+        }
+
+        synchronized FHIRR4EffectiveProfile getEffectiveProfile(FHIRR4ResourceDef resourceDef) {
+            if (effectiveProfile == null || !effectiveProfile.isCurrent(resourceDef)) {
+                effectiveProfile = new FHIRR4EffectiveProfile(resourceDef);
+            }
+            return effectiveProfile;
+        }
+
+        private FHIRElementIndex<ElementDefinition> createIndex(List<ElementDefinition> elements) {
+            return new FHIRElementIndex<>(elements, element -> FHIRR4SpecUtils.canSkip(definition, element),
+                    ElementDefinition::getPath, ElementDefinition::getId);
+        }
+    }
 }
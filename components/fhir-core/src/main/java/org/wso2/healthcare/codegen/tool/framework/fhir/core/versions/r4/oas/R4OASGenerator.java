@@ -30,12 +30,14 @@ import org.hl7.fhir.r4.model.ElementDefinition;
 import org.hl7.fhir.r4.model.SearchParameter;
 import org.hl7.fhir.r4.model.StructureDefinition;
 import org.wso2.healthcare.codegen.tool.framework.commons.exception.CodeGenException;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRElementTree;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.model.FHIRSearchParamDef;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.oas.APIDefinitionConstants;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.oas.OASGenUtils;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.oas.OASGenerator;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.oas.model.APIDefinition;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.versions.r4.common.FHIRR4SpecificationData;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.versions.r4.model.FHIRR4ResourceDef;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.versions.r4.model.FHIRR4SearchParamDef;
 
 import java.util.ArrayList;
@@ -66,19 +68,55 @@ public class R4OASGenerator extends OASGenerator {
      * @param apiDefinition       API definition object
      * @param structureDefinition FHIR resource definition
      * @return Generated OAS definition
+     * @deprecated the search parameters are read from the shared specification data, which the FHIR tool no longer
+     * fills. Use {@link #generateResourceSchema(APIDefinition, StructureDefinition, FHIRR4SpecificationData)} with the
+     * specification data of the tool context instead.
      */
+    @Deprecated
     public OpenAPI generateResourceSchema(APIDefinition apiDefinition, StructureDefinition structureDefinition) throws CodeGenException {
+        return generateResourceSchema(apiDefinition, structureDefinition,
+                FHIRR4SpecificationData.getDataHolderInstance());
+    }
+
+    /**
+     * Generates OAS definition for a given FHIR resource definition.
+     *
+     * @param apiDefinition       API definition object
+     * @param structureDefinition FHIR resource definition
+     * @param specificationData   specification data the resource definition is parsed into
+     * @return Generated OAS definition
+     */
+    public OpenAPI generateResourceSchema(APIDefinition apiDefinition, StructureDefinition structureDefinition,
+                                          FHIRR4SpecificationData specificationData) throws CodeGenException {
+        FHIRR4ResourceDef resourceDef = new FHIRR4ResourceDef();
+        resourceDef.setDefinition(structureDefinition);
+        return generateResourceSchema(apiDefinition, resourceDef, specificationData);
+    }
+
+    /**
+     * Generates OAS definition for a given FHIR resource definition, from the element tree the resource definition
+     * builds once.
+     *
+     * @param apiDefinition     API definition object
+     * @param resourceDef       FHIR resource definition
+     * @param specificationData specification data the resource definition is parsed into
+     * @return Generated OAS definition
+     */
+    public OpenAPI generateResourceSchema(APIDefinition apiDefinition, FHIRR4ResourceDef resourceDef,
+                                          FHIRR4SpecificationData specificationData) throws CodeGenException {
+        StructureDefinition structureDefinition = resourceDef.getDefinition();
         OpenAPI resourceOAS = new OpenAPI();
 
         resourceOAS.setComponents(fhirOASBaseStructure.getComponents());
         apiDefinition.setOpenAPI(resourceOAS);
         populateOASPaths(apiDefinition);
         populateOASInfo(apiDefinition);
-        populateOASInternalValues(apiDefinition);
+        populateOASInternalValues(apiDefinition, specificationData);
 
+        FHIRElementTree<ElementDefinition> elementTree = resourceDef.getElementTree();
         for (ElementDefinition element : structureDefinition.getSnapshot().getElement()) {
             try {
-                String id = element.getId();
+                FHIRElementTree.Node<ElementDefinition> node = elementTree.getNode(element.getId());
                 ObjectSchema objectSchema = new ObjectSchema();
 
                 Set<String> requiredElementsCollector = new LinkedHashSet<>();
@@ -92,16 +130,12 @@ public class R4OASGenerator extends OASGenerator {
                 for (ElementDefinition.TypeRefComponent type : element.getType()) {
                     StringBuilder elementName;
                     // Skip processing the element if the element is not immediate child or a sliced element
-                    if (id.codePoints().filter(ch -> ch == (int) '.').count() > 1 || id.contains(":")) {
+                    if (node == null || node.getDepth() > 1 || node.isInSlice()) {
                         //sliced element. skip for now, todo: handle separately
                         continue;
                     }
 
-                    if (id.contains("[")) {
-                        elementName = new StringBuilder(id.substring(id.lastIndexOf(".") + 1, id.lastIndexOf("[")));
-                    } else {
-                        elementName = new StringBuilder(id.substring(id.lastIndexOf(".") + 1));
-                    }
+                    elementName = new StringBuilder(node.getBaseName());
 
                     if (element.getType().size() != 1) {
                         elementName.append(CaseUtils.toCamelCase(type.getCode(), true, (char[]) null));
@@ -143,9 +177,10 @@ public class R4OASGenerator extends OASGenerator {
     /**
      * Populates internal values of the OAS definition.
      *
-     * @param apiDefinition API definition object
+     * @param apiDefinition     API definition object
+     * @param specificationData specification data holding the international search parameters
      */
-    private void populateOASInternalValues(APIDefinition apiDefinition) {
+    private void populateOASInternalValues(APIDefinition apiDefinition, FHIRR4SpecificationData specificationData) {
         apiDefinition.getOpenAPI().getInfo().setDescription(OASGenUtils.generateDescription(
                 apiDefinition.getResourceType(), apiDefinition.getSupportedProfiles()));
 
@@ -173,7 +208,7 @@ public class R4OASGenerator extends OASGenerator {
             Operation rootGet = apiDefinition.getOpenAPI().getPaths().get(resourcePath).getGet();
 
             if (rootGet != null) {
-                for (FHIRSearchParamDef searchParamDef : FHIRR4SpecificationData.getDataHolderInstance().getInternationalSearchParameters(
+                for (FHIRSearchParamDef searchParamDef : specificationData.getInternationalSearchParameters(
                         apiDefinition.getResourceType())) {
 
                     if (!R4OASGenUtils.isAdded((SearchParameter) searchParamDef.getSearchParameter(), rootGet)) {
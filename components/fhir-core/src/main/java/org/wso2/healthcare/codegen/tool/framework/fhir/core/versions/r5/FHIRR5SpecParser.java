@@ -19,7 +19,6 @@
 package org.wso2.healthcare.codegen.tool.framework.fhir.core.versions.r5;
 
 import ca.uhn.fhir.context.FhirContext;
-import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hl7.fhir.instance.model.api.IBaseResource;
@@ -31,17 +30,31 @@ import org.hl7.fhir.r5.model.Resource;
 import org.hl7.fhir.r5.model.SearchParameter;
 import org.hl7.fhir.r5.model.StructureDefinition;
 import org.hl7.fhir.r5.model.ValueSet;
-import org.hl7.fhir.r5.model.Enumeration;
 import org.hl7.fhir.r5.model.Extension;
 import org.hl7.fhir.r5.model.ElementDefinition;
-import org.hl7.fhir.r5.model.Enumerations.VersionIndependentResourceTypesAll;
 import org.wso2.healthcare.codegen.tool.framework.commons.config.ToolConfig;
 import org.wso2.healthcare.codegen.tool.framework.commons.exception.CodeGenException;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.AbstractFHIRSpecParser;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRCanonicalRegistry;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRDefinitionCache;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRDefinitionHeader;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRDefinitionManifest;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRDefinitionParser;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRPackageIndex;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRPackageReader;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRSearchParameterIndex;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRTerminologyStore;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.LazyDefinition;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.config.DefinitionRetention;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.config.FHIRToolConfig;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.config.IGConfig;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.config.ParserConfig;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.model.FHIRDataTypeDef;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.model.FHIRImplementationGuide;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.model.FHIROperationDef;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.model.FHIRResourceDef;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.model.FHIRSearchParamDef;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.model.FHIRTerminologyDef;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.oas.model.APIDefinition;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.util.DefKind;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.versions.r5.common.FHIRR5SpecUtils;
@@ -55,10 +68,12 @@ import org.wso2.healthcare.codegen.tool.framework.fhir.core.versions.r5.oas.R5OA
 
 import java.io.File;
 import java.io.FilenameFilter;
-import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
+import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * This class is responsible for parsing the FHIR R5 specification files.
@@ -71,45 +86,66 @@ public class FHIRR5SpecParser extends AbstractFHIRSpecParser {
     // File filter to get JSON files
     private static final FilenameFilter jsonFileFilter = (dir, name) -> name.endsWith(".json") && name.matches("^[a-zA-Z].*");
 
+    // profiles, value sets and code systems merged or removed in this parse, to update only the dependent state
+    private final Set<String> changedProfiles = new HashSet<>();
+    private final Set<String> changedValueSets = new HashSet<>();
+    private final Set<String> changedCodeSystems = new HashSet<>();
+
+    private final FHIRR5SpecificationData specData;
+
+    /**
+     * Creates a parser populating the shared R5 specification data.
+     */
+    public FHIRR5SpecParser() {
+        this(FHIRR5SpecificationData.getDataHolderInstance());
+    }
+
+    /**
+     * Creates a parser populating the given specification data.
+     *
+     * @param specificationData specification data owned by the tool context
+     */
+    public FHIRR5SpecParser(FHIRR5SpecificationData specificationData) {
+        this.specData = specificationData;
+    }
+
     private static void setParentResource(FHIRResourceDef<StructureDefinition, Extension, ElementDefinition> fhirResourceDef, FHIRR5SpecificationData specData) {
-        String parent = fhirResourceDef.getDefinition().getBaseDefinition();
-
-        //Canonical URL pattern: http://hl7.org/fhir/<country>/<IG>/StructureDefinition
-        String igName = parent.substring(parent.indexOf("fhir/") + 4, parent.indexOf("/StructureDefinition"));
-
-        if (!StringUtils.isEmpty(igName)) {
-            for (String igKey : specData.getFhirImplementationGuides().keySet()) {
-                if (Pattern.compile(Pattern.quote(igKey), Pattern.CASE_INSENSITIVE).matcher(igName.replace("/", "")).find()) {
-                    FHIRImplementationGuide implementationGuide = specData.getFhirImplementationGuides().get(igKey);
-                    if (implementationGuide != null) {
-                        fhirResourceDef.setParentResource((FHIRR5ResourceDef) implementationGuide.getResources().get(parent));
-                        break;
-                    } else {
-                        LOG.debug("Required implementation guide:" + igName + " is not loaded.");
-                    }
-                }
-            }
-        } else {
-            FHIRImplementationGuide implementationGuide = specData.getFhirImplementationGuides().get("international");
-            if (implementationGuide != null) {
-                fhirResourceDef.setParentResource((FHIRR5ResourceDef) implementationGuide.getResources().get(parent));
-            } else {
-                LOG.debug("Required implementation guide: international is not loaded.");
-            }
+        // read from the header of lazily loaded definitions, without parsing them
+        String parent = fhirResourceDef instanceof FHIRR5ResourceDef ?
+                ((FHIRR5ResourceDef) fhirResourceDef).getBaseDefinition() :
+                fhirResourceDef.getDefinition().getBaseDefinition();
+
+        FHIRResourceDef parentResource = specData.getCanonicalRegistry().resolve(parent);
+        if (parent != null && parentResource == null) {
+            LOG.debug("Parent resource: " + parent + " is not loaded.");
         }
+        fhirResourceDef.setParentResource((FHIRR5ResourceDef) parentResource);
     }
 
     @Override
     public void parse(ToolConfig toolConfig) {
-        try {
-            populateCommonSearchParameters();
-        } catch (CodeGenException e) {
-            LOG.error("Error occurred while populating search parameters", e);
+        definitionCache = FHIRDefinitionCache.open((FHIRToolConfig) toolConfig, "r5");
+        definitionParser = FHIRDefinitionParser.getInstance(CTX,
+                ((FHIRToolConfig) toolConfig).getParserConfig().isStripNarratives());
+        // bundled definitions are already loaded on a re-parse, and only the changed definition files are reloaded
+        boolean reparse = specData.isBaseDefinitionsLoaded();
+        specData.thaw();
+
+        if (!reparse) {
+            try {
+                populateCommonSearchParameters();
+            } catch (CodeGenException e) {
+                LOG.error("Error occurred while populating search parameters", e);
+            }
         }
 
         Map<String, IGConfig> igConfigs = ((FHIRToolConfig) toolConfig).getIgConfigs();
+        ParserConfig parserConfig = ((FHIRToolConfig) toolConfig).getParserConfig();
 
-        populateBaseDataTypes();
+        if (!reparse) {
+            populateBaseDataTypes();
+            specData.setBaseDefinitionsLoaded(true);
+        }
 
         for (String igName : igConfigs.keySet()) {
             parseIG(toolConfig, igName, igConfigs.get(igName).getDirPath());
@@ -123,41 +159,35 @@ public class FHIRR5SpecParser extends AbstractFHIRSpecParser {
                 File[] terminologyFiles = terminologyDirPath.listFiles(jsonFileFilter);
 
                 if (terminologyFiles != null) {
-                    for (File terminologyFile : terminologyFiles) {
-                        IBaseResource parsedDef;
-
-                        try {
-                            parsedDef = parseDefinition(CTX, terminologyFile);
-
-                            if (parsedDef instanceof Bundle) {
-                                Bundle terminologyBundle = (Bundle) parsedDef;
-
-                                for (Bundle.BundleEntryComponent entryComponent : terminologyBundle.getEntry()) {
-                                    String terminologyType = entryComponent.getResource().getResourceType().name();
-
-                                    if (terminologyType.equals("CodeSystem")) {
-                                        CodeSystem codeSystem = (CodeSystem) entryComponent.getResource();
-                                        FHIRR5TerminologyDef fhirTerminologyDef = new FHIRR5TerminologyDef();
-                                        fhirTerminologyDef.setTerminologyResource(codeSystem);
-                                        fhirTerminologyDef.setUrl(codeSystem.getUrl());
-                                        FHIRR5SpecificationData.getDataHolderInstance().addCodeSystem(fhirTerminologyDef.getUrl(), fhirTerminologyDef);
-                                    } else if (terminologyType.equals("ValueSet")) {
-                                        ValueSet valueSet = (ValueSet) entryComponent.getResource();
-                                        FHIRR5TerminologyDef fhirTerminologyDef = new FHIRR5TerminologyDef();
-                                        fhirTerminologyDef.setTerminologyResource(valueSet);
-                                        fhirTerminologyDef.setUrl(valueSet.getUrl());
-                                        FHIRR5SpecificationData.getDataHolderInstance().addCodeSystem(fhirTerminologyDef.getUrl(), fhirTerminologyDef);
-                                    }
-                                }
-                            }
-                        } catch (CodeGenException e) {
-                            LOG.error("Error occurred while processing FHIR data profile definition.", e);
-                        }
-                    }
+                    loadDefinitions(CTX, terminologyFiles,
+                            file -> isSupportedFHIRDefinition(file, TERMINOLOGY_RESOURCE_TYPES, LOG),
+                            specData.getDefinitionManifest(terminologyDirPath.getAbsolutePath()),
+                            new R5DefinitionMerger(DefinitionSource.TERMINOLOGY, null, null), parserConfig, LOG);
                 }
             }
         }
-        FHIRR5SpecificationData.getDataHolderInstance().setTerminologies();
+
+        if (parserConfig.isLazyTerminologies()) {
+            // value sets are expanded on first use, so nothing is resolved or cached up front
+            specData.setLazyTerminologies(parserConfig.getTerminologyCacheSize());
+        } else if (reparse) {
+            if (!changedValueSets.isEmpty() || !changedCodeSystems.isEmpty()) {
+                specData.updateTerminologies(changedValueSets, changedCodeSystems);
+                definitionCache.put(RESOLVED_TERMINOLOGIES_KEY,
+                        getTerminologyInputHash(specData, (FHIRToolConfig) toolConfig), specData.getTerminologyStore());
+            }
+        } else {
+            // keyed by the content of the files it is resolved from, data type profile changes keep the resolved store
+            String terminologyInputHash = getTerminologyInputHash(specData, (FHIRToolConfig) toolConfig);
+            FHIRTerminologyStore terminologyStore =
+                    definitionCache.get(RESOLVED_TERMINOLOGIES_KEY, terminologyInputHash);
+            if (terminologyStore != null) {
+                specData.setTerminologyStore(terminologyStore);
+            } else {
+                specData.setTerminologies(parserConfig);
+                definitionCache.put(RESOLVED_TERMINOLOGIES_KEY, terminologyInputHash, specData.getTerminologyStore());
+            }
+        }
 
         List<String> dataTypeProfileDirs = ((FHIRToolConfig) toolConfig).getDataTypeProfileDirs();
         for (String dataTypeProfileDir : dataTypeProfileDirs) {
@@ -167,31 +197,17 @@ public class FHIRR5SpecParser extends AbstractFHIRSpecParser {
                 File[] dataProfileFiles = dataTypeProfileDirPath.listFiles(jsonFileFilter);
 
                 if (dataProfileFiles != null) {
-                    for (File dataProfileFile : dataProfileFiles) {
-                        IBaseResource parsedDef;
-
-                        try {
-                            parsedDef = parseDefinition(CTX, dataProfileFile);
-
-                            if (parsedDef instanceof StructureDefinition) {
-                                StructureDefinition structureDefinition = (StructureDefinition) parsedDef;
-                                String code = structureDefinition.getKind().toCode();
-
-                                if ("primary-type".equals(code) || "complex-type".equals(code)) {
-                                    FHIRR5DataTypeDef dataTypeDef = new FHIRR5DataTypeDef();
-                                    dataTypeDef.setDefinition(structureDefinition);
-                                    dataTypeDef.setKind(DefKind.fromCode(code));
-                                    FHIRR5SpecificationData.getDataHolderInstance().addDataType(structureDefinition.getId(), dataTypeDef);
-                                }
-                            }
-                        } catch (CodeGenException e) {
-                            LOG.error("Error occurred while processing FHIR data profile definition.", e);
-                        }
-                    }
+                    loadDefinitions(CTX, dataProfileFiles,
+                            file -> isSupportedFHIRDefinition(file, DATA_TYPE_RESOURCE_TYPES, LOG),
+                            specData.getDefinitionManifest(dataTypeProfileDirPath.getAbsolutePath()),
+                            new R5DefinitionMerger(DefinitionSource.DATA_TYPE, null, null), parserConfig, LOG);
                 }
             }
         }
         populateValues();
+        definitionCache.store();
+        // generators read the parsed data from many threads, without locking
+        specData.freeze();
     }
 
     /**
@@ -199,162 +215,169 @@ public class FHIRR5SpecParser extends AbstractFHIRSpecParser {
      */
     @Override
     public void parseIG(ToolConfig toolConfig, String igName, String igDirPath) {
+        // an implementation guide may also be parsed on its own after the data is frozen, unless it is published
+        specData.thaw();
         String igPath = igDirPath.contains(toolConfig.getSpecBasePath()) ? igDirPath : toolConfig.getSpecBasePath() + igDirPath;
         File igDirPathFile = new File(igPath);
 
-        if (igDirPathFile.isDirectory()) {
-            File[] igProfileFiles = igDirPathFile.listFiles(jsonFileFilter);
+        boolean isPackage = FHIRPackageReader.isPackage(igDirPathFile);
+
+        if (igDirPathFile.isDirectory() || isPackage) {
+            // A FHIR npm package is loaded as a single definition source, its entries are streamed out of the tarball.
+            File[] igProfileFiles = isPackage ? new File[]{igDirPathFile} : igDirPathFile.listFiles(jsonFileFilter);
+            DefinitionSource source = isPackage ? DefinitionSource.PACKAGE : DefinitionSource.IMPLEMENTATION_GUIDE;
 
             if (igProfileFiles != null) {
-                FHIRImplementationGuide fhirImplementationGuide = FHIRR5SpecificationData.getDataHolderInstance().getFhirImplementationGuides().get(igName);
+                FHIRImplementationGuide fhirImplementationGuide = specData.getFhirImplementationGuides().get(igName);
 
                 if (fhirImplementationGuide == null) {
                     fhirImplementationGuide = new FHIRImplementationGuide();
                     fhirImplementationGuide.setName(igName);
-                    FHIRR5SpecificationData.getDataHolderInstance().addFhirImplementationGuide(igName, fhirImplementationGuide);
+                    specData.addFhirImplementationGuide(igName, fhirImplementationGuide);
                 }
 
-                for (File igProfileFile : igProfileFiles) {
-                    if (igProfileFile.isDirectory() || !isValidFHIRDefinition(igProfileFile, LOG)) {
-                        continue;
+                // Definition files are parsed concurrently when enabled, but merged in the listing order so that the
+                // putIfAbsent precedence stays the same as in a sequential run. On a re-parse only the changed files
+                // are parsed and patched into the implementation guide.
+                // The package index decides which files are consumed, so that examples are never opened.
+                FHIRPackageIndex packageIndex = FHIRPackageIndex.load(igDirPathFile, igProfileFiles);
+                Set<String> apiResourceTypes = new HashSet<>();
+                loadDefinitions(CTX, igProfileFiles,
+                        file -> !file.isDirectory() && isConsumedIGDefinition(file, packageIndex, LOG),
+                        fhirImplementationGuide.getManifest(),
+                        new R5DefinitionMerger(source, fhirImplementationGuide, apiResourceTypes),
+                        ((FHIRToolConfig) toolConfig).getParserConfig(), LOG);
+
+                if (fhirImplementationGuide.getApiDefinitions().isEmpty()) {
+                    // API definitions are not carried over to copied data, they are generated for all the profiles
+                    for (FHIRResourceDef resourceDef : fhirImplementationGuide.getResources().values()) {
+                        apiResourceTypes.add(((FHIRR5ResourceDef) resourceDef).getType());
                     }
+                }
+                if (!apiResourceTypes.isEmpty()) {
+                    populateApiDefinitions(fhirImplementationGuide, igName, apiResourceTypes, source);
+                }
+            }
+        }
+    }
 
-                    IBaseResource parsedDef;
-                    try {
-                        parsedDef = parseDefinition(CTX, igProfileFile);
-
-                        if (parsedDef instanceof StructureDefinition) {
-                            StructureDefinition structureDefinition = (StructureDefinition) parsedDef;
-                            String code = structureDefinition.getKind().toCode();
-
-                            if (code.equals("resource")) {
-                                FHIRR5ResourceDef fhirR5ResourceDef = new FHIRR5ResourceDef();
-                                fhirR5ResourceDef.setDefinition(structureDefinition);
-                                fhirR5ResourceDef.setKind(DefKind.fromCode(code));
-                                fhirImplementationGuide.getResources().putIfAbsent(structureDefinition.getUrl(), fhirR5ResourceDef);
-
-                                R5OASGenerator oasGenerator = R5OASGenerator.getInstance();
-                                APIDefinition apiDefinition;
-
-                                if (fhirImplementationGuide.getApiDefinitions().containsKey(structureDefinition.getType())) {
-                                    apiDefinition = fhirImplementationGuide.getApiDefinitions().get(structureDefinition.getType());
-                                } else {
-                                    apiDefinition = new APIDefinition();
-                                    apiDefinition.setResourceType(structureDefinition.getType());
-                                }
-
-                                apiDefinition.addSupportedProfile(structureDefinition.getUrl());
-                                apiDefinition.addSupportedIg(igName);
-                                apiDefinition.setOpenAPI(oasGenerator.generateResourceSchema(apiDefinition, structureDefinition));
-                                fhirImplementationGuide.addApiDefinition(structureDefinition.getType(), apiDefinition);
-                            } else if ("primary-type".equals(code) || "complex-type".equals(code)) {
-                                FHIRR5DataTypeDef dataTypeDef = new FHIRR5DataTypeDef();
-                                dataTypeDef.setDefinition(structureDefinition);
-                                dataTypeDef.setKind(DefKind.fromCode(code));
-                                FHIRR5SpecificationData.getDataHolderInstance().addDataType(structureDefinition.getId(), dataTypeDef);
-                            }
-                        } else if (parsedDef instanceof SearchParameter) {
-                            SearchParameter searchParameter = (SearchParameter) parsedDef;
-                            FHIRR5SearchParamDef fhirR5SearchParamDef = new FHIRR5SearchParamDef();
-                            fhirR5SearchParamDef.setSearchParameter(searchParameter);
-                            fhirImplementationGuide.getSearchParameters().putIfAbsent(searchParameter.getUrl(), fhirR5SearchParamDef);
-                        } else if (parsedDef instanceof Bundle) {
-                            Bundle definitions = (Bundle) parsedDef;
-
-                            for (Bundle.BundleEntryComponent entryComponent : definitions.getEntry()) {
-                                Resource fhirEntryResource = entryComponent.getResource();
-
-                                // Bundled Structure Definitions
-                                if (fhirEntryResource instanceof StructureDefinition) {
-                                    StructureDefinition structureDefinition = (StructureDefinition) fhirEntryResource;
-                                    String code = structureDefinition.getKind().toCode();
-
-                                    if ("resource".equals(code)) {
-                                        FHIRR5ResourceDef fhirR5ResourceDef = new FHIRR5ResourceDef();
-                                        fhirR5ResourceDef.setDefinition(structureDefinition);
-                                        fhirR5ResourceDef.setKind(DefKind.fromCode(code));
-                                        fhirImplementationGuide.getResources().putIfAbsent(structureDefinition.getUrl(), fhirR5ResourceDef);
-
-                                        R5OASGenerator oasGenerator = R5OASGenerator.getInstance();
-                                        APIDefinition apiDefinition;
-
-                                        if (fhirImplementationGuide.getApiDefinitions().containsKey(structureDefinition.getType())) {
-                                            apiDefinition = fhirImplementationGuide.getApiDefinitions().get(structureDefinition.getType());
-                                        } else {
-                                            apiDefinition = new APIDefinition();
-                                            apiDefinition.setResourceType(structureDefinition.getType());
-                                        }
-                                        apiDefinition.addSupportedProfile(structureDefinition.getUrl());
-                                        apiDefinition.addSupportedIg(igName);
-                                        apiDefinition.setOpenAPI(oasGenerator.generateResourceSchema(apiDefinition, structureDefinition));
-                                        fhirImplementationGuide.addApiDefinition(structureDefinition.getType(), apiDefinition);
-                                    } else if ("primary-type".equals(code) || "complex-type".equals(code)) {
-                                        FHIRR5DataTypeDef dataTypeDef = new FHIRR5DataTypeDef();
-                                        dataTypeDef.setDefinition(structureDefinition);
-                                        dataTypeDef.setKind(DefKind.fromCode(code));
-                                        FHIRR5SpecificationData.getDataHolderInstance().addDataType(structureDefinition.getId(), dataTypeDef);
-                                    }
-                                } else if (fhirEntryResource instanceof SearchParameter) {
-                                    SearchParameter searchParameter = (SearchParameter) fhirEntryResource;
-                                    FHIRR5SearchParamDef fhirr5SearchParamDef = new FHIRR5SearchParamDef();
-                                    fhirr5SearchParamDef.setSearchParameter(searchParameter);
-                                    fhirImplementationGuide.getSearchParameters().putIfAbsent(searchParameter.getUrl(), fhirr5SearchParamDef);
-                                } else if (fhirEntryResource instanceof OperationDefinition) {
-                                    OperationDefinition operationDefinition = (OperationDefinition) fhirEntryResource;
-                                    FHIRR5OperationDef operationDef = new FHIRR5OperationDef();
-                                    operationDef.setOperationDefinition(operationDefinition);
-                                    fhirImplementationGuide.getOperations().putIfAbsent(operationDefinition.getUrl(), operationDef);
-                                }
-                            }
-                        } else if (parsedDef instanceof CodeSystem) {
-                            CodeSystem codeSystem = (CodeSystem) parsedDef;
-                            FHIRR5TerminologyDef fhirR5TerminologyDef = new FHIRR5TerminologyDef();
-                            fhirR5TerminologyDef.setTerminologyResource(codeSystem);
-                            fhirR5TerminologyDef.setUrl(codeSystem.getUrl());
-                            FHIRR5SpecificationData.getDataHolderInstance().addCodeSystem(fhirR5TerminologyDef.getUrl(), fhirR5TerminologyDef);
-                        } else if (parsedDef instanceof ValueSet) {
-                            ValueSet valueSet = (ValueSet) parsedDef;
-                            FHIRR5TerminologyDef fhirR5TerminologyDef = new FHIRR5TerminologyDef();
-                            fhirR5TerminologyDef.setTerminologyResource(valueSet);
-                            fhirR5TerminologyDef.setUrl(valueSet.getUrl());
-                            FHIRR5SpecificationData.getDataHolderInstance().addValueSet(fhirR5TerminologyDef.getUrl(), fhirR5TerminologyDef);
-                        } else if (parsedDef instanceof ImplementationGuide) {
-                            // overriding the FHIR implementation guide name if the ImplementationGuide resource json
-                            // file is available in the IG directory.
-                            ImplementationGuide implementationGuide = (ImplementationGuide) parsedDef;
-                            fhirImplementationGuide.setName(implementationGuide.getName());
-                            fhirImplementationGuide.setId(implementationGuide.getId());
-                        }
-                    } catch (CodeGenException e) {
-                        LOG.error("Error occurred while processing FHIR resource definition.", e);
+    @Override
+    protected IBaseResource createDefinitionStub(File file, FHIRDefinitionHeader header, DefinitionRetention retention) {
+        StructureDefinition structureDefinition = new StructureDefinition();
+        structureDefinition.setId(header.getId());
+        structureDefinition.setUrl(header.getUrl());
+        structureDefinition.setVersion(header.getVersion());
+        structureDefinition.setName(header.getName());
+        structureDefinition.setType(header.getType());
+        structureDefinition.setKind(StructureDefinition.StructureDefinitionKind.RESOURCE);
+        structureDefinition.setBaseDefinition(header.getBaseDefinition());
+        structureDefinition.setUserData(LazyDefinition.USER_DATA_KEY,
+                new LazyDefinition<>(file, getDefinitionParser(CTX), StructureDefinition.class, retention));
+        return structureDefinition;
+    }
+
+    /**
+     * Generates the API definitions of the given resource types from the profiles of the implementation guide, in the
+     * listing order of the definition files.
+     *
+     * @param fhirImplementationGuide implementation guide
+     * @param igName                  implementation guide name
+     * @param resourceTypes           resource types to generate the API definitions
+     * @param source                  kind of the source the implementation guide is loaded from
+     */
+    private void populateApiDefinitions(FHIRImplementationGuide fhirImplementationGuide, String igName,
+                                        Set<String> resourceTypes, DefinitionSource source) {
+        R5DefinitionMerger merger = new R5DefinitionMerger(source, fhirImplementationGuide, null);
+        fhirImplementationGuide.getApiDefinitions().keySet().removeAll(resourceTypes);
+
+        for (FHIRDefinitionManifest.Entry entry : fhirImplementationGuide.getManifest().getEntries()) {
+            for (Resource resource : merger.split(entry.getDefinition())) {
+                if (!(resource instanceof StructureDefinition)) {
+                    continue;
+                }
+                StructureDefinition structureDefinition = (StructureDefinition) resource;
+                if (!"resource".equals(structureDefinition.getKind().toCode()) ||
+                        !resourceTypes.contains(structureDefinition.getType())) {
+                    continue;
+                }
+
+                try {
+                    R5OASGenerator oasGenerator = R5OASGenerator.getInstance();
+                    APIDefinition apiDefinition;
+
+                    if (fhirImplementationGuide.getApiDefinitions().containsKey(structureDefinition.getType())) {
+                        apiDefinition = fhirImplementationGuide.getApiDefinitions().get(structureDefinition.getType());
+                    } else {
+                        apiDefinition = new APIDefinition();
+                        apiDefinition.setResourceType(structureDefinition.getType());
+                    }
+                    apiDefinition.addSupportedProfile(structureDefinition.getUrl());
+                    apiDefinition.addSupportedIg(igName);
+
+                    FHIRR5ResourceDef resourceDef = getResourceDef(fhirImplementationGuide, structureDefinition);
+                    if (structureDefinition.getUserData(LazyDefinition.USER_DATA_KEY) instanceof LazyDefinition) {
+                        // the schema of a lazily loaded profile is generated when the API definition is accessed
+                        apiDefinition.addDeferredGenerator(api -> oasGenerator.generateResourceSchema(api,
+                                resourceDef, specData));
+                        fhirImplementationGuide.getApiDefinitions().putIfAbsent(structureDefinition.getType(),
+                                apiDefinition);
+                        continue;
                     }
+                    apiDefinition.setOpenAPI(oasGenerator.generateResourceSchema(apiDefinition, resourceDef,
+                            specData));
+                    fhirImplementationGuide.addApiDefinition(structureDefinition.getType(), apiDefinition);
+                } catch (CodeGenException e) {
+                    LOG.error("Error occurred while processing FHIR resource definition.", e);
                 }
             }
         }
     }
 
     /**
-     * Populates the common search parameters from the FHIR specification.
+     * Populates the common search parameters from the FHIR specification. The bundle is only indexed here, from the
+     * precompiled definitions when available, and the search parameters of a resource type are read when they are
+     * first requested.
      * ref:<a href="https://hl7.org/fhir/R5/search-parameters.json">https://hl7.org/fhir/R5/search-parameters.json</a>
      *
      * @throws CodeGenException if an error occurs while populating search parameters
      */
     @Override
     protected void populateCommonSearchParameters() throws CodeGenException {
-        InputStream searchParamStream = FHIRR5SpecParser.class.getClassLoader().getResourceAsStream("r5/profiles/all-search-parameters.json");
-        LOG.info("Loading international search parameters");
-        Bundle paramsBundle = (Bundle) parseDefinition(CTX, searchParamStream);
-
-        for (Bundle.BundleEntryComponent resource : paramsBundle.getEntry()) {
-            if (resource.hasResource() && "SearchParameter".equals(resource.getResource().getResourceType().toString())) {
-                SearchParameter searchParameter = (SearchParameter) resource.getResource();
-
-                for (Enumeration<VersionIndependentResourceTypesAll> baseResource : searchParameter.getBase()) {
-                    String resourceName = baseResource.getValue().toCode();
-                    FHIRR5SpecificationData.getDataHolderInstance().addInternationalSearchParameter(resourceName, new FHIRR5SearchParamDef(searchParameter));
-                }
+        LOG.info("Indexing international search parameters");
+        FHIRSearchParameterIndex searchParameterIndex = readSearchParameterIndex("r5");
+
+        // Search parameters are read on first use, only for the resource types which are requested.
+        FHIRDefinitionParser searchParameterParser = getDefinitionParser(CTX);
+        specData.setInternationalSearchParameterLoader(resourceType -> {
+            List<FHIRSearchParamDef> searchParamDefs = new ArrayList<>();
+            for (IBaseResource searchParameter : searchParameterIndex.getSearchParameters(resourceType,
+                    searchParameterParser)) {
+                searchParamDefs.add(new FHIRR5SearchParamDef((SearchParameter) searchParameter));
             }
+            return searchParamDefs;
+        });
+    }
+
+    /**
+     * Returns the resource definition a profile is merged into, so that the element tree it builds once is shared
+     * with the other users of the profile. A profile whose url is already taken by another profile gets a resource
+     * definition of its own.
+     *
+     * @param fhirImplementationGuide implementation guide
+     * @param structureDefinition     profile, or the stub of a lazily loaded profile
+     * @return resource definition of the profile
+     */
+    private static FHIRR5ResourceDef getResourceDef(FHIRImplementationGuide fhirImplementationGuide,
+                                                   StructureDefinition structureDefinition) {
+        FHIRResourceDef resourceDef = fhirImplementationGuide.getResources().get(structureDefinition.getUrl());
+        if (resourceDef instanceof FHIRR5ResourceDef &&
+                ((FHIRR5ResourceDef) resourceDef).isDefinedBy(structureDefinition)) {
+            return (FHIRR5ResourceDef) resourceDef;
         }
+        FHIRR5ResourceDef profileDef = new FHIRR5ResourceDef();
+        profileDef.setDefinition(structureDefinition);
+        profileDef.setKind(DefKind.RESOURCE);
+        return profileDef;
     }
 
     /**
@@ -363,10 +386,8 @@ public class FHIRR5SpecParser extends AbstractFHIRSpecParser {
     @Override
     public void populateBaseDataTypes() {
         for (String baseDataTypeFile : FHIRR5SpecUtils.getDefaultBaseDataTypeProfiles()) {
-            InputStream resourceAsStream = FHIRR5SpecParser.class.getClassLoader().getResourceAsStream("r5/profiles/base-data-types/" + baseDataTypeFile);
-
             try {
-                IBaseResource parsedDef = parseDefinition(CTX, resourceAsStream);
+                IBaseResource parsedDef = readBaseDataType(CTX, "r5", baseDataTypeFile);
 
                 if (parsedDef instanceof StructureDefinition) {
                     StructureDefinition structureDefinition = (StructureDefinition) parsedDef;
@@ -376,7 +397,7 @@ public class FHIRR5SpecParser extends AbstractFHIRSpecParser {
                         FHIRR5DataTypeDef dataTypeDef = new FHIRR5DataTypeDef();
                         dataTypeDef.setDefinition(structureDefinition);
                         dataTypeDef.setKind(DefKind.fromCode(code));
-                        FHIRR5SpecificationData.getDataHolderInstance().addDataType(structureDefinition.getId(), dataTypeDef);
+                        specData.addDataType(structureDefinition.getId(), dataTypeDef);
                     }
                 }
             } catch (CodeGenException e) {
@@ -387,13 +408,234 @@ public class FHIRR5SpecParser extends AbstractFHIRSpecParser {
 
     @Override
     protected void populateValues() {
-        for (Map.Entry<String, ? extends FHIRImplementationGuide> igEntry :
-                FHIRR5SpecificationData.getDataHolderInstance().getFhirImplementationGuides().entrySet()) {
+        // the registry is rebuilt from all the loaded implementation guides, in a stable order so that the first
+        // definition of a canonical is resolved independent of the map ordering
+        FHIRCanonicalRegistry canonicalRegistry = new FHIRCanonicalRegistry();
+        for (String igName : new TreeSet<>(specData.getFhirImplementationGuides().keySet())) {
+            FHIRImplementationGuide ig = specData.getFhirImplementationGuides().get(igName);
+            for (Map.Entry<String, FHIRResourceDef> resourceEntry : ig.getResources().entrySet()) {
+                canonicalRegistry.register(resourceEntry.getKey(),
+                        ((FHIRR5ResourceDef) resourceEntry.getValue()).getVersion(), resourceEntry.getValue());
+            }
+        }
+        specData.setCanonicalRegistry(canonicalRegistry);
 
-            FHIRImplementationGuide ig = igEntry.getValue();
+        for (FHIRImplementationGuide ig : specData.getFhirImplementationGuides().values()) {
             for (Map.Entry<String, FHIRResourceDef> resourceEntry : ig.getResources().entrySet()) {
                 FHIRR5ResourceDef resourceDef = (FHIRR5ResourceDef) resourceEntry.getValue();
-                setParentResource(resourceDef, FHIRR5SpecificationData.getDataHolderInstance());
+                // only the profiles merged in this parse and the profiles derived from them need to be linked
+                if (changedProfiles.contains(resourceEntry.getKey()) ||
+                        changedProfiles.contains(resourceDef.getBaseDefinition())) {
+                    setParentResource(resourceDef, specData);
+                }
+            }
+        }
+        // ancestry chains of all profiles are recomputed, as an ancestor of an unchanged profile may have changed
+        for (FHIRImplementationGuide ig : specData.getFhirImplementationGuides().values()) {
+            for (FHIRResourceDef resourceDef : ig.getResources().values()) {
+                FHIRR5ResourceDef r5ResourceDef = (FHIRR5ResourceDef) resourceDef;
+                r5ResourceDef.setAncestors(collectAncestors(r5ResourceDef));
+            }
+        }
+    }
+
+    /**
+     * Merges R5 definitions into the implementation guide, or into the common data types and terminologies.
+     */
+    private class R5DefinitionMerger implements DefinitionMerger {
+
+        private final DefinitionSource source;
+        private final FHIRImplementationGuide fhirImplementationGuide;
+        private final Set<String> apiResourceTypes;
+
+        /**
+         * @param source                  kind of the source the definitions are loaded from
+         * @param fhirImplementationGuide implementation guide to merge into, if loaded from an IG directory
+         * @param apiResourceTypes        collects the resource types of the merged or removed profiles, if not null
+         */
+        R5DefinitionMerger(DefinitionSource source, FHIRImplementationGuide fhirImplementationGuide,
+                           Set<String> apiResourceTypes) {
+            this.source = source;
+            this.fhirImplementationGuide = fhirImplementationGuide;
+            this.apiResourceTypes = apiResourceTypes;
+        }
+
+        @Override
+        public List<Resource> split(IBaseResource definition) {
+            List<Resource> resources = new ArrayList<>();
+            if (definition instanceof Bundle) {
+                for (Bundle.BundleEntryComponent entry : ((Bundle) definition).getEntry()) {
+                    Resource resource = entry.getResource();
+                    if (source == DefinitionSource.TERMINOLOGY) {
+                        if (resource instanceof CodeSystem || resource instanceof ValueSet) {
+                            resources.add(resource);
+                        }
+                    } else if (source == DefinitionSource.IMPLEMENTATION_GUIDE) {
+                        if (resource instanceof StructureDefinition || resource instanceof SearchParameter ||
+                                resource instanceof OperationDefinition) {
+                            resources.add(resource);
+                        }
+                    } else if (source == DefinitionSource.PACKAGE) {
+                        if (resource instanceof StructureDefinition || resource instanceof SearchParameter ||
+                                resource instanceof OperationDefinition || resource instanceof CodeSystem ||
+                                resource instanceof ValueSet || resource instanceof ImplementationGuide) {
+                            resources.add(resource);
+                        }
+                    }
+                }
+            } else if (definition instanceof StructureDefinition) {
+                if (source != DefinitionSource.TERMINOLOGY) {
+                    resources.add((Resource) definition);
+                }
+            } else if (definition instanceof SearchParameter || definition instanceof OperationDefinition ||
+                    definition instanceof CodeSystem || definition instanceof ValueSet ||
+                    definition instanceof ImplementationGuide) {
+                if (source == DefinitionSource.IMPLEMENTATION_GUIDE) {
+                    resources.add((Resource) definition);
+                }
+            }
+            return resources;
+        }
+
+        @Override
+        public String key(IBaseResource resource) {
+            if (resource instanceof StructureDefinition) {
+                StructureDefinition structureDefinition = (StructureDefinition) resource;
+                String code = structureDefinition.getKind().toCode();
+
+                if ("resource".equals(code) && fhirImplementationGuide != null) {
+                    return getKey("StructureDefinition|", structureDefinition.getUrl());
+                } else if ("primary-type".equals(code) || "complex-type".equals(code)) {
+                    return getKey("DataType|", structureDefinition.getId());
+                }
+                return null;
+            } else if (resource instanceof SearchParameter) {
+                return getKey("SearchParameter|", ((SearchParameter) resource).getUrl());
+            } else if (resource instanceof OperationDefinition) {
+                return getKey("OperationDefinition|", ((OperationDefinition) resource).getUrl());
+            } else if (resource instanceof CodeSystem) {
+                return getKey("CodeSystem|", ((CodeSystem) resource).getUrl());
+            } else if (resource instanceof ValueSet) {
+                return getKey("ValueSet|", ((ValueSet) resource).getUrl());
+            } else if (resource instanceof ImplementationGuide) {
+                return "ImplementationGuide";
+            }
+            return null;
+        }
+
+        @Override
+        public void merge(IBaseResource resource) {
+            if (key(resource) == null) {
+                // definitions without a canonical url or id can't be merged into the keyed maps
+                return;
+            }
+            if (resource instanceof StructureDefinition) {
+                StructureDefinition structureDefinition = (StructureDefinition) resource;
+                String code = structureDefinition.getKind().toCode();
+
+                if ("resource".equals(code) && fhirImplementationGuide != null) {
+                    FHIRR5ResourceDef fhirR5ResourceDef = new FHIRR5ResourceDef();
+                    fhirR5ResourceDef.setDefinition(structureDefinition);
+                    fhirR5ResourceDef.setKind(DefKind.fromCode(code));
+                    fhirImplementationGuide.getResources().putIfAbsent(structureDefinition.getUrl(), fhirR5ResourceDef);
+                    changedProfiles.add(structureDefinition.getUrl());
+                    addApiResourceType(structureDefinition.getType());
+                } else if ("primary-type".equals(code) || "complex-type".equals(code)) {
+                    FHIRR5DataTypeDef dataTypeDef = new FHIRR5DataTypeDef();
+                    dataTypeDef.setDefinition(structureDefinition);
+                    dataTypeDef.setKind(DefKind.fromCode(code));
+                    specData.addDataType(structureDefinition.getId(), dataTypeDef);
+                }
+            } else if (resource instanceof SearchParameter) {
+                SearchParameter searchParameter = (SearchParameter) resource;
+                FHIRR5SearchParamDef fhirR5SearchParamDef = new FHIRR5SearchParamDef();
+                fhirR5SearchParamDef.setSearchParameter(searchParameter);
+                fhirImplementationGuide.getSearchParameters().putIfAbsent(searchParameter.getUrl(), fhirR5SearchParamDef);
+            } else if (resource instanceof OperationDefinition) {
+                OperationDefinition operationDefinition = (OperationDefinition) resource;
+                FHIRR5OperationDef operationDef = new FHIRR5OperationDef();
+                operationDef.setOperationDefinition(operationDefinition);
+                fhirImplementationGuide.getOperations().putIfAbsent(operationDefinition.getUrl(), operationDef);
+            } else if (resource instanceof CodeSystem) {
+                CodeSystem codeSystem = (CodeSystem) resource;
+                FHIRR5TerminologyDef fhirR5TerminologyDef = new FHIRR5TerminologyDef();
+                fhirR5TerminologyDef.setTerminologyResource(codeSystem);
+                fhirR5TerminologyDef.setUrl(codeSystem.getUrl());
+                specData.addCodeSystem(fhirR5TerminologyDef.getUrl(), fhirR5TerminologyDef);
+                changedCodeSystems.add(codeSystem.getUrl());
+            } else if (resource instanceof ValueSet) {
+                ValueSet valueSet = (ValueSet) resource;
+                FHIRTerminologyDef fhirR5TerminologyDef = new FHIRR5TerminologyDef();
+                fhirR5TerminologyDef.setTerminologyResource(valueSet);
+                fhirR5TerminologyDef.setUrl(valueSet.getUrl());
+                specData.addValueSet(fhirR5TerminologyDef.getUrl(), fhirR5TerminologyDef);
+                changedValueSets.add(valueSet.getUrl());
+            } else if (resource instanceof ImplementationGuide) {
+                // overriding the FHIR implementation guide name if the ImplementationGuide resource json
+                // file is available in the IG directory.
+                fhirImplementationGuide.setName(((ImplementationGuide) resource).getName());
+                fhirImplementationGuide.setId(((ImplementationGuide) resource).getId());
+            }
+        }
+
+        @Override
+        public void unmerge(IBaseResource resource) {
+            if (key(resource) == null) {
+                return;
+            }
+            if (resource instanceof StructureDefinition) {
+                StructureDefinition structureDefinition = (StructureDefinition) resource;
+                String code = structureDefinition.getKind().toCode();
+
+                if ("resource".equals(code) && fhirImplementationGuide != null) {
+                    FHIRResourceDef resourceDef = fhirImplementationGuide.getResources().get(structureDefinition.getUrl());
+                    if (resourceDef != null && ((FHIRR5ResourceDef) resourceDef).isDefinedBy(structureDefinition)) {
+                        fhirImplementationGuide.getResources().remove(structureDefinition.getUrl());
+                    }
+                    changedProfiles.add(structureDefinition.getUrl());
+                    addApiResourceType(structureDefinition.getType());
+                } else if ("primary-type".equals(code) || "complex-type".equals(code)) {
+                    FHIRDataTypeDef dataTypeDef = specData.getDataTypes().get(structureDefinition.getId());
+                    if (dataTypeDef != null && dataTypeDef.getDefinition() == structureDefinition) {
+                        specData.getDataTypes().remove(structureDefinition.getId());
+                    }
+                }
+            } else if (resource instanceof SearchParameter) {
+                String url = ((SearchParameter) resource).getUrl();
+                FHIRSearchParamDef searchParamDef = fhirImplementationGuide.getSearchParameters().get(url);
+                if (searchParamDef != null && searchParamDef.getSearchParameter() == resource) {
+                    fhirImplementationGuide.getSearchParameters().remove(url);
+                }
+            } else if (resource instanceof OperationDefinition) {
+                String url = ((OperationDefinition) resource).getUrl();
+                FHIROperationDef operationDef = fhirImplementationGuide.getOperations().get(url);
+                if (operationDef != null && operationDef.getOperationDefinition() == resource) {
+                    fhirImplementationGuide.getOperations().remove(url);
+                }
+            } else if (resource instanceof CodeSystem) {
+                String url = ((CodeSystem) resource).getUrl();
+                FHIRTerminologyDef terminologyDef = specData.getCodeSystems().get(url);
+                if (terminologyDef != null && terminologyDef.getTerminologyResource() == resource) {
+                    specData.getCodeSystems().remove(url);
+                }
+                changedCodeSystems.add(url);
+            } else if (resource instanceof ValueSet) {
+                String url = ((ValueSet) resource).getUrl();
+                FHIRTerminologyDef terminologyDef = specData.getValueSets().get(url);
+                if (terminologyDef != null && terminologyDef.getTerminologyResource() == resource) {
+                    specData.getValueSets().remove(url);
+                }
+                changedValueSets.add(url);
+            }
+        }
+
+        private String getKey(String prefix, String urlOrId) {
+            return urlOrId != null ? prefix + urlOrId : null;
+        }
+
+        private void addApiResourceType(String resourceType) {
+            if (apiResourceTypes != null) {
+                apiResourceTypes.add(resourceType);
             }
         }
     }
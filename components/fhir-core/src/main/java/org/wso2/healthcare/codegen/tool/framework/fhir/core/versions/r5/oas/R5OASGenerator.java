@@ -30,12 +30,14 @@ import org.hl7.fhir.r5.model.ElementDefinition;
 import org.hl7.fhir.r5.model.SearchParameter;
 import org.hl7.fhir.r5.model.StructureDefinition;
 import org.wso2.healthcare.codegen.tool.framework.commons.exception.CodeGenException;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRElementTree;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.model.FHIRSearchParamDef;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.oas.APIDefinitionConstants;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.oas.OASGenUtils;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.oas.OASGenerator;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.oas.model.APIDefinition;
 import org.wso2.healthcare.codegen.tool.framework.fhir.core.versions.r5.common.FHIRR5SpecificationData;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.versions.r5.model.FHIRR5ResourceDef;
 
 import java.util.*;
 
@@ -59,19 +61,55 @@ public class R5OASGenerator extends OASGenerator {
      * @param apiDefinition       API definition object
      * @param structureDefinition FHIR resource definition
      * @return Generated OAS definition
+     * @deprecated the search parameters are read from the shared specification data, which the FHIR tool no longer
+     * fills. Use {@link #generateResourceSchema(APIDefinition, StructureDefinition, FHIRR5SpecificationData)} with the
+     * specification data of the tool context instead.
      */
+    @Deprecated
     public OpenAPI generateResourceSchema(APIDefinition apiDefinition, StructureDefinition structureDefinition) throws CodeGenException {
+        return generateResourceSchema(apiDefinition, structureDefinition,
+                FHIRR5SpecificationData.getDataHolderInstance());
+    }
+
+    /**
+     * Generates OAS definition for a given FHIR resource definition.
+     *
+     * @param apiDefinition       API definition object
+     * @param structureDefinition FHIR resource definition
+     * @param specificationData   specification data the resource definition is parsed into
+     * @return Generated OAS definition
+     */
+    public OpenAPI generateResourceSchema(APIDefinition apiDefinition, StructureDefinition structureDefinition,
+                                          FHIRR5SpecificationData specificationData) throws CodeGenException {
+        FHIRR5ResourceDef resourceDef = new FHIRR5ResourceDef();
+        resourceDef.setDefinition(structureDefinition);
+        return generateResourceSchema(apiDefinition, resourceDef, specificationData);
+    }
+
+    /**
+     * Generates OAS definition for a given FHIR resource definition, from the element tree the resource definition
+     * builds once.
+     *
+     * @param apiDefinition     API definition object
+     * @param resourceDef       FHIR resource definition
+     * @param specificationData specification data the resource definition is parsed into
+     * @return Generated OAS definition
+     */
+    public OpenAPI generateResourceSchema(APIDefinition apiDefinition, FHIRR5ResourceDef resourceDef,
+                                          FHIRR5SpecificationData specificationData) throws CodeGenException {
+        StructureDefinition structureDefinition = resourceDef.getDefinition();
         OpenAPI resourceOAS = new OpenAPI();
 
         resourceOAS.setComponents(fhirOASBaseStructure.getComponents());
         apiDefinition.setOpenAPI(resourceOAS);
         populateOASPaths(apiDefinition);
         populateOASInfo(apiDefinition);
-        populateOASInternalValues(apiDefinition);
+        populateOASInternalValues(apiDefinition, specificationData);
 
+        FHIRElementTree<ElementDefinition> elementTree = resourceDef.getElementTree();
         for (ElementDefinition element : structureDefinition.getSnapshot().getElement()) {
             try {
-                String id = element.getId();
+                FHIRElementTree.Node<ElementDefinition> node = elementTree.getNode(element.getId());
                 ObjectSchema objectSchema = new ObjectSchema();
 
                 Set<String> requiredElementsCollector = new LinkedHashSet<>();
@@ -87,15 +125,11 @@ public class R5OASGenerator extends OASGenerator {
 
                     // Skip processing the element if the element is not an immediate child or a sliced element
                     // eg: Extension.extension:ombCategory.id
-                    if (id.codePoints().filter(ch -> ch == (int) '.').count() > 1 || id.contains(":")) {
+                    if (node == null || node.getDepth() > 1 || node.isInSlice()) {
                         continue;
                     }
 
-                    if (id.contains("[")) {
-                        elementName = new StringBuilder(id.substring(id.lastIndexOf(".") + 1, id.lastIndexOf("[")));
-                    } else {
-                        elementName = new StringBuilder(id.substring(id.lastIndexOf(".") + 1));
-                    }
+                    elementName = new StringBuilder(node.getBaseName());
 
                     if (element.getType().size() != 1) {
                         elementName.append(CaseUtils.toCamelCase(type.getCode(), true, (char[]) null));
@@ -137,9 +171,10 @@ public class R5OASGenerator extends OASGenerator {
     /**
      * Populates internal values of the OAS definition.
      *
-     * @param apiDefinition API definition object
+     * @param apiDefinition     API definition object
+     * @param specificationData specification data holding the international search parameters
      */
-    private void populateOASInternalValues(APIDefinition apiDefinition) {
+    private void populateOASInternalValues(APIDefinition apiDefinition, FHIRR5SpecificationData specificationData) {
         apiDefinition.getOpenAPI().getInfo().setDescription(OASGenUtils.generateDescription(
                 apiDefinition.getResourceType(),
                 apiDefinition.getSupportedProfiles()
@@ -169,7 +204,7 @@ public class R5OASGenerator extends OASGenerator {
             Operation rootGet = apiDefinition.getOpenAPI().getPaths().get(resourcePath).getGet();
 
             if (rootGet != null) {
-                for (FHIRSearchParamDef searchParamDef : FHIRR5SpecificationData.getDataHolderInstance().getInternationalSearchParameters(apiDefinition.getResourceType())) {
+                for (FHIRSearchParamDef searchParamDef : specificationData.getInternationalSearchParameters(apiDefinition.getResourceType())) {
                     if (!R5OASGenUtils.isAdded((SearchParameter) searchParamDef.getSearchParameter(), rootGet)) {
                         SearchParameter searchParameter = (SearchParameter) searchParamDef.getSearchParameter();
 
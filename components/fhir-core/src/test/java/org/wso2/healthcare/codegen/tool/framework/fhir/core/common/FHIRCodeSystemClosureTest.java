@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.org).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.healthcare.codegen.tool.framework.fhir.core.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FHIRCodeSystemClosureTest {
+
+    @Test
+    public void answersSubsumptionOfATree() {
+        FHIRCodeSystemClosure closure = new FHIRCodeSystemClosure();
+        begin(closure, "animal");
+        leaf(closure, "mammal");
+        begin(closure, "bird");
+        leaf(closure, "penguin");
+        closure.endConcept();
+        closure.endConcept();
+        leaf(closure, "plant");
+
+        assertEquals(5, closure.size());
+        assertTrue(closure.isSubsumedBy("penguin", "animal", false));
+        assertTrue(closure.isSubsumedBy("bird", "bird", true));
+        assertFalse(closure.isSubsumedBy("bird", "bird", false));
+        assertFalse(closure.isSubsumedBy("animal", "penguin", true));
+        assertFalse(closure.isSubsumedBy("plant", "animal", true));
+        assertFalse(closure.isSubsumedBy("unknown", "animal", true));
+        assertEquals(List.of("animal", "mammal", "bird", "penguin"), closure.getDescendants("animal", true));
+        assertEquals(List.of("penguin"), closure.getDescendants("bird", false));
+        assertEquals(List.of("bird", "animal"), closure.getAncestors("penguin"));
+        assertEquals("bird", closure.getParent("penguin"));
+        assertNull(closure.getParent("plant"));
+    }
+
+    @Test
+    public void answersSubsumptionOfAPolyhierarchy() {
+        FHIRCodeSystemClosure closure = buildPolyhierarchy();
+
+        // each concept is numbered once, where it first appears
+        assertEquals(9, closure.size());
+        // is-a
+        assertTrue(closure.isSubsumedBy("bat", "flyer", true));
+        assertTrue(closure.isSubsumedBy("bat", "mammal", true));
+        assertTrue(closure.isSubsumedBy("fruit-bat", "flyer", true));
+        assertTrue(closure.isSubsumedBy("whale", "swimmer", true));
+        assertFalse(closure.isSubsumedBy("bird", "mammal", true));
+        assertFalse(closure.isSubsumedBy("flyer", "bat", true));
+        // descendent-of
+        assertTrue(closure.isSubsumedBy("fruit-bat", "flyer", false));
+        assertFalse(closure.isSubsumedBy("flyer", "flyer", false));
+
+        assertEquals(Set.of("flyer", "bird", "bat", "fruit-bat"), Set.copyOf(closure.getDescendants("flyer", true)));
+        assertEquals(4, closure.getDescendants("flyer", true).size());
+        assertEquals(Set.of("bird", "bat", "fruit-bat"), Set.copyOf(closure.getDescendants("flyer", false)));
+        assertEquals(Set.of("mammal", "bat", "fruit-bat", "whale", "flyer", "bird", "swimmer", "fish"),
+                Set.copyOf(closure.getDescendants("animal", false)));
+        assertEquals(8, closure.getDescendants("animal", false).size());
+        assertEquals(Set.of("mammal", "flyer", "animal"), Set.copyOf(closure.getAncestors("bat")));
+        assertEquals("mammal", closure.getParent("bat"));
+    }
+
+    @Test
+    public void visitsCyclesOnce() {
+        FHIRCodeSystemClosure closure = new FHIRCodeSystemClosure();
+        begin(closure, "a");
+        begin(closure, "b");
+        // "a" repeated in its own descendant
+        assertFalse(closure.beginConcept("a"));
+        closure.endConcept();
+        closure.endConcept();
+
+        assertTrue(closure.isSubsumedBy("a", "b", false));
+        assertTrue(closure.isSubsumedBy("b", "a", false));
+        assertFalse(closure.isSubsumedBy("a", "a", false));
+        assertEquals(List.of("b"), closure.getDescendants("a", false));
+        assertEquals(List.of("b"), closure.getAncestors("a"));
+    }
+
+    /**
+     * Builds animal > (mammal > (bat > fruit-bat, whale), flyer > (bat, bird), swimmer > (whale, fish)), where the
+     * repeated bat and whale concepts are nested in more than one concept.
+     */
+    private static FHIRCodeSystemClosure buildPolyhierarchy() {
+        FHIRCodeSystemClosure closure = new FHIRCodeSystemClosure();
+        begin(closure, "animal");
+        begin(closure, "mammal");
+        begin(closure, "bat");
+        leaf(closure, "fruit-bat");
+        closure.endConcept();
+        leaf(closure, "whale");
+        closure.endConcept();
+        begin(closure, "flyer");
+        // repeated concepts are not added again, and their nested concepts are skipped
+        assertFalse(closure.beginConcept("bat"));
+        leaf(closure, "bird");
+        closure.endConcept();
+        begin(closure, "swimmer");
+        assertFalse(closure.beginConcept("whale"));
+        leaf(closure, "fish");
+        closure.endConcept();
+        closure.endConcept();
+        return closure;
+    }
+
+    private static void begin(FHIRCodeSystemClosure closure, String code) {
+        assertTrue(closure.beginConcept(code));
+    }
+
+    private static void leaf(FHIRCodeSystemClosure closure, String code) {
+        begin(closure, code);
+        closure.endConcept();
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.org).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.healthcare.codegen.tool.framework.fhir.core.common;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FHIRPackageReaderTest {
+
+    private static final Set<String> RESOURCE_TYPES = Set.of("StructureDefinition");
+    private static final String LONG_FILE_NAME = "StructureDefinition-" + "long-profile-name-".repeat(8) + "end.json";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void readsGnuLongNames() throws IOException {
+        TarBuilder tarBuilder = new TarBuilder();
+        tarBuilder.addGnuLongName("package/" + LONG_FILE_NAME);
+        tarBuilder.addFile("package/StructureDefinition-long-profi", definition("long"));
+        tarBuilder.addFile("package/StructureDefinition-short.json", definition("short"));
+
+        List<FHIRPackageReader.PackageEntry> entries = readDefinitions(tarBuilder);
+
+        assertEquals(2, entries.size());
+        assertEquals(LONG_FILE_NAME, entries.get(0).getFileName());
+        assertArrayEquals(definition("long"), entries.get(0).getContent().readAllBytes());
+        // the long name only applies to the entry following it
+        assertEquals("StructureDefinition-short.json", entries.get(1).getFileName());
+    }
+
+    @Test
+    public void readsPaxPaths() throws IOException {
+        TarBuilder tarBuilder = new TarBuilder();
+        tarBuilder.addPaxHeader("mtime=1700000000.5", "path=package/" + LONG_FILE_NAME);
+        tarBuilder.addFile("PaxHeaders/truncated", definition("pax"));
+        tarBuilder.addFile("package/StructureDefinition-short.json", definition("short"));
+
+        List<FHIRPackageReader.PackageEntry> entries = readDefinitions(tarBuilder);
+
+        assertEquals(2, entries.size());
+        assertEquals(LONG_FILE_NAME, entries.get(0).getFileName());
+        assertEquals("StructureDefinition", entries.get(0).getResourceType());
+        assertArrayEquals(definition("pax"), entries.get(0).getContent().readAllBytes());
+        assertEquals("StructureDefinition-short.json", entries.get(1).getFileName());
+    }
+
+    @Test
+    public void skipsLongNamesOutsideThePackageFolder() throws IOException {
+        TarBuilder tarBuilder = new TarBuilder();
+        tarBuilder.addGnuLongName("package/example/" + LONG_FILE_NAME);
+        tarBuilder.addFile("package/example/StructureDefinition", definition("example"));
+        tarBuilder.addPaxHeader("path=other/" + LONG_FILE_NAME);
+        tarBuilder.addFile("other/StructureDefinition", definition("other"));
+        tarBuilder.addFile("package/ValueSet-codes.json",
+                "{\"resourceType\":\"ValueSet\",\"id\":\"codes\"}".getBytes(StandardCharsets.UTF_8));
+
+        assertTrue(readDefinitions(tarBuilder).isEmpty());
+    }
+
+    private List<FHIRPackageReader.PackageEntry> readDefinitions(TarBuilder tarBuilder) throws IOException {
+        File packageFile = tempDir.resolve("package.tgz").toFile();
+        try (OutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(packageFile.toPath()))) {
+            outputStream.write(tarBuilder.build());
+        }
+        assertTrue(FHIRPackageReader.isPackage(packageFile));
+        return FHIRPackageReader.readDefinitions(packageFile, RESOURCE_TYPES);
+    }
+
+    private static byte[] definition(String id) {
+        return ("{\"resourceType\":\"StructureDefinition\",\"id\":\"" + id + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the ustar entries of a test package, with GNU long name and PAX extended header entries.
+     */
+    private static class TarBuilder {
+
+        private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        void addFile(String name, byte[] content) throws IOException {
+            addEntry(name, '0', content);
+        }
+
+        void addGnuLongName(String name) throws IOException {
+            byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            byte[] content = new byte[nameBytes.length + 1];
+            System.arraycopy(nameBytes, 0, content, 0, nameBytes.length);
+            addEntry("././@LongLink", 'L', content);
+        }
+
+        void addPaxHeader(String... records) throws IOException {
+            StringBuilder content = new StringBuilder();
+            for (String record : records) {
+                // the length prefix counts itself, the separating space and the trailing new line
+                int length = record.length() + 2;
+                length += String.valueOf(length + String.valueOf(length).length()).length();
+                content.append(length).append(' ').append(record).append('\n');
+            }
+            addEntry("PaxHeaders/entry", 'x', content.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        byte[] build() throws IOException {
+            // end of archive marker
+            outputStream.write(new byte[1024]);
+            return outputStream.toByteArray();
+        }
+
+        private void addEntry(String name, char typeFlag, byte[] content) throws IOException {
+            byte[] header = new byte[512];
+            put(header, 0, name);
+            put(header, 100, "0000644");
+            put(header, 108, "0000000");
+            put(header, 116, "0000000");
+            put(header, 124, String.format("%011o", content.length));
+            put(header, 136, String.format("%011o", 1700000000L));
+            header[156] = (byte) typeFlag;
+            put(header, 257, "ustar");
+            put(header, 263, "00");
+            for (int i = 148; i < 156; i++) {
+                header[i] = ' ';
+            }
+            int checksum = 0;
+            for (byte b : header) {
+                checksum += b & 0xff;
+            }
+            put(header, 148, String.format("%06o", checksum));
+            outputStream.write(header);
+            outputStream.write(content);
+            outputStream.write(new byte[(512 - content.length % 512) % 512]);
+        }
+
+        private static void put(byte[] header, int offset, String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(bytes, 0, header, offset, bytes.length);
+        }
+    }
+}
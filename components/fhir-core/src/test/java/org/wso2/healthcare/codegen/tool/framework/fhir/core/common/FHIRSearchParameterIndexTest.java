@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.org).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.healthcare.codegen.tool.framework.fhir.core.common;
+
+import ca.uhn.fhir.context.FhirContext;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.SearchParameter;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FHIRSearchParameterIndexTest {
+
+    // strings holding escaped quotes, backslashes and brackets, which would end the skipped values if not unescaped
+    private static final String BUNDLE = "{\n" +
+            "  \"resourceType\": \"Bundle\",\n" +
+            "  \"meta\": {\"tag\": [{\"code\": \"a \\\"quoted\\\" ]} value\"}]},\n" +
+            "  \"entry\": [\n" +
+            "    {\n" +
+            "      \"fullUrl\": \"urn:path\\\\\",\n" +
+            "      \"resource\": {\n" +
+            "        \"resourceType\": \"SearchParameter\",\n" +
+            "        \"id\": \"patient-given\",\n" +
+            "        \"description\": \"Matches \\\"given\\\" names\\\\ {with} [brackets]\\n\",\n" +
+            "        \"code\": \"given\",\n" +
+            "        \"base\": [\"Pat\\u0069ent\", \"Practi\\u0074ioner\"],\n" +
+            "        \"type\": \"string\",\n" +
+            "        \"expression\": \"Patient.name.given\",\n" +
+            "        \"status\": \"active\"\n" +
+            "      }\n" +
+            "    },\n" +
+            "    {\n" +
+            "      \"resource\": {\n" +
+            "        \"resourceType\": \"OperationDefinition\",\n" +
+            "        \"description\": \"\\\"base\\\": [\\\"Observation\\\"]\"\n" +
+            "      }\n" +
+            "    }\n" +
+            "  ]\n" +
+            "}";
+
+    @Test
+    public void scansEscapedStrings() {
+        FHIRSearchParameterIndex index = FHIRSearchParameterIndex.scan(BUNDLE.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(1, index.size());
+        FHIRDefinitionParser definitionParser = FHIRDefinitionParser.getInstance(FhirContext.forR4Cached(), false);
+        List<IBaseResource> searchParameters = index.getSearchParameters("Patient", definitionParser);
+        assertEquals(1, searchParameters.size());
+        SearchParameter searchParameter = (SearchParameter) searchParameters.get(0);
+        assertEquals("given", searchParameter.getCode());
+        assertEquals("Matches \"given\" names\\ {with} [brackets]\n", searchParameter.getDescription());
+        // the same entry is indexed for each unescaped base, and parsed once
+        assertEquals(searchParameters, index.getSearchParameters("Practitioner", definitionParser));
+        assertTrue(index.getSearchParameters("Observation", definitionParser).isEmpty());
+    }
+
+    @Test
+    public void skipsByteOrderMark() {
+        byte[] bundle = BUNDLE.getBytes(StandardCharsets.UTF_8);
+        byte[] content = new byte[bundle.length + 3];
+        content[0] = (byte) 0xEF;
+        content[1] = (byte) 0xBB;
+        content[2] = (byte) 0xBF;
+        System.arraycopy(bundle, 0, content, 3, bundle.length);
+
+        assertEquals(1, FHIRSearchParameterIndex.scan(content).size());
+    }
+
+    @Test
+    public void rejectsMalformedContent() {
+        assertThrows(IllegalArgumentException.class, () -> FHIRSearchParameterIndex.scan(
+                "{\"entry\": [{\"resource\": {\"resourceType\": \"SearchParameter\",}}]}"
+                        .getBytes(StandardCharsets.UTF_8)));
+        assertThrows(IllegalArgumentException.class, () -> FHIRSearchParameterIndex.scan(
+                "{\"entry\": [{\"resource\": {\"resourceType\": \"Search".getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.org).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.healthcare.codegen.tool.framework.fhir.core.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FHIRTerminologyStoreTest {
+
+    private static final String GENDER_SYSTEM = "http://hl7.org/fhir/administrative-gender";
+    private static final String STATUS_SYSTEM = "http://hl7.org/fhir/observation-status";
+    private static final String GENDER_VALUE_SET = "http://hl7.org/fhir/ValueSet/administrative-gender";
+    private static final String STATUS_VALUE_SET = "http://hl7.org/fhir/ValueSet/observation-status";
+
+    @Test
+    public void storesConceptsOnce() {
+        FHIRTerminologyStore store = new FHIRTerminologyStore();
+        int male = store.addConcept(GENDER_SYSTEM, "male", "Male");
+        int female = store.addConcept(GENDER_SYSTEM, "female", "Female");
+
+        assertEquals(male, store.addConcept(GENDER_SYSTEM, "male", "Masculine"));
+        // the same code of another system is another concept
+        int finalStatus = store.addConcept(STATUS_SYSTEM, "final", "Final");
+        assertNotEquals(finalStatus, store.addConcept(GENDER_SYSTEM, "final", "Final"));
+        assertNotEquals(male, female);
+        assertEquals(4, store.getConceptCount());
+    }
+
+    @Test
+    public void readsValueSetsByCode() {
+        FHIRTerminologyStore store = createStore();
+
+        Map<String, String> codings = store.getCodings(GENDER_VALUE_SET, FHIRTerminologyStoreTest::createCoding);
+        // sorted by code, whatever the order they were put in
+        assertEquals(List.of("female", "male", "other", "unknown"), List.copyOf(codings.keySet()));
+        assertEquals(GENDER_SYSTEM + "|male|Male", codings.get("male"));
+        // the display differing from the stored one is kept with the value set
+        assertEquals(GENDER_SYSTEM + "|unknown|Not known", codings.get("unknown"));
+        assertTrue(codings.containsKey("other"));
+        assertFalse(codings.containsKey("final"));
+        assertNull(codings.get("final"));
+        assertNull(codings.get(1));
+        assertThrows(UnsupportedOperationException.class, () -> codings.put("final", "final"));
+
+        Map<String, String> statusCodings = store.getCodings(STATUS_VALUE_SET, FHIRTerminologyStoreTest::createCoding);
+        // the concept shared with the other value set keeps its stored display
+        assertEquals(STATUS_SYSTEM + "|final|Final", statusCodings.get("final"));
+        assertEquals(GENDER_SYSTEM + "|unknown|Unknown", statusCodings.get("unknown"));
+        assertNull(store.getCodings("http://example.org/fhir/ValueSet/missing",
+                FHIRTerminologyStoreTest::createCoding));
+        assertEquals(Set.of(GENDER_VALUE_SET, STATUS_VALUE_SET), store.getValueSetUrls());
+    }
+
+    @Test
+    public void roundTripsThroughSerialization() throws IOException, ClassNotFoundException {
+        FHIRTerminologyStore store = createStore();
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream)) {
+            objectOutputStream.writeObject(store);
+        }
+        FHIRTerminologyStore restoredStore;
+        try (ObjectInputStream objectInputStream =
+                     new ObjectInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            restoredStore = (FHIRTerminologyStore) objectInputStream.readObject();
+        }
+
+        assertEquals(store.getValueSetUrls(), restoredStore.getValueSetUrls());
+        assertEquals(store.getConceptCount(), restoredStore.getConceptCount());
+        for (String url : store.getValueSetUrls()) {
+            assertEquals(store.getCodings(url, FHIRTerminologyStoreTest::createCoding),
+                    restoredStore.getCodings(url, FHIRTerminologyStoreTest::createCoding));
+        }
+        // the concept ids are rebuilt, so stored concepts are not added again
+        int conceptCount = restoredStore.getConceptCount();
+        restoredStore.addConcept(GENDER_SYSTEM, "male", "Male");
+        assertEquals(conceptCount, restoredStore.getConceptCount());
+        restoredStore.addConcept(STATUS_SYSTEM, "amended", "Amended");
+        assertEquals(conceptCount + 1, restoredStore.getConceptCount());
+    }
+
+    @Test
+    public void updatesCopiesOnly() {
+        FHIRTerminologyStore store = createStore();
+        Map<String, String> codings = store.getCodings(GENDER_VALUE_SET, FHIRTerminologyStoreTest::createCoding);
+
+        FHIRTerminologyStore copy = store.copy();
+        int amended = copy.addConcept(STATUS_SYSTEM, "amended", "Amended");
+        copy.putValueSet(GENDER_VALUE_SET, new int[]{copy.addConcept(GENDER_SYSTEM, "male", null)});
+        copy.putValueSet(STATUS_VALUE_SET, new int[]{amended});
+        copy.removeValueSet(GENDER_VALUE_SET);
+
+        assertFalse(copy.containsValueSet(GENDER_VALUE_SET));
+        assertEquals(Set.of("amended"),
+                copy.getCodings(STATUS_VALUE_SET, FHIRTerminologyStoreTest::createCoding).keySet());
+        // the copied store and the codings read from it are unchanged
+        assertTrue(store.containsValueSet(GENDER_VALUE_SET));
+        assertEquals(4, codings.size());
+        assertEquals(Set.of("final", "unknown"),
+                store.getCodings(STATUS_VALUE_SET, FHIRTerminologyStoreTest::createCoding).keySet());
+        assertEquals(copy.getConceptCount() - 1, store.getConceptCount());
+    }
+
+    /**
+     * Creates a store with the gender codes put out of order, and observation status codes sharing the unknown
+     * concept with a differing display.
+     */
+    private static FHIRTerminologyStore createStore() {
+        FHIRTerminologyStore store = new FHIRTerminologyStore();
+        int unknown = store.addConcept(GENDER_SYSTEM, "unknown", "Unknown");
+        int male = store.addConcept(GENDER_SYSTEM, "male", "Male");
+        int female = store.addConcept(GENDER_SYSTEM, "female", "Female");
+        int other = store.addConcept(GENDER_SYSTEM, "other", "Other");
+        store.putValueSet(GENDER_VALUE_SET, new int[]{unknown, male, female, other},
+                new String[]{"Not known", "Male", "Female", "Other"});
+        int finalStatus = store.addConcept(STATUS_SYSTEM, "final", "Final");
+        store.putValueSet(STATUS_VALUE_SET, new int[]{finalStatus, unknown});
+        return store;
+    }
+
+    private static String createCoding(String system, String code, String display) {
+        return system + "|" + code + "|" + display;
+    }
+}
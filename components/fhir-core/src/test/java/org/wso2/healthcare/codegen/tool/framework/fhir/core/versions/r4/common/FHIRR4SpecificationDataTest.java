@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.org).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.healthcare.codegen.tool.framework.fhir.core.versions.r4.common;
+
+import org.hl7.fhir.r4.model.CodeSystem;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.ValueSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.common.FHIRTerminologyStore;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.versions.r4.model.FHIRR4TerminologyDef;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class FHIRR4SpecificationDataTest {
+
+    private static final String SYSTEM = "http://example.org/fhir/CodeSystem/animals";
+    private static final String VALUE_SET = "http://example.org/fhir/ValueSet/animals";
+
+    private FHIRR4SpecificationData specificationData;
+
+    /**
+     * Loads animal > (mammal, bird), with a value set of the animal concepts.
+     */
+    @BeforeEach
+    public void loadTerminologies() {
+        specificationData = new FHIRR4SpecificationData();
+        specificationData.addCodeSystem(SYSTEM, codeSystem("mammal", "bird"));
+        ValueSet valueSet = new ValueSet();
+        valueSet.setUrl(VALUE_SET);
+        valueSet.getCompose().addInclude().setSystem(SYSTEM).addFilter()
+                .setProperty("concept").setOp(ValueSet.FilterOperator.ISA).setValue("animal");
+        FHIRR4TerminologyDef valueSetDef = new FHIRR4TerminologyDef();
+        valueSetDef.setUrl(VALUE_SET);
+        valueSetDef.setTerminologyResource(valueSet);
+        specificationData.addValueSet(VALUE_SET, valueSetDef);
+        specificationData.setTerminologies();
+    }
+
+    @Test
+    public void updatesTerminologiesOnACopy() {
+        FHIRTerminologyStore terminologyStore = specificationData.getTerminologyStore();
+        Map<String, Coding> codings = specificationData.expand(VALUE_SET);
+        assertEquals(Set.of("animal", "mammal", "bird"), codings.keySet());
+
+        specificationData.getCodeSystems().put(SYSTEM, codeSystem("mammal", "bird", "fish"));
+        specificationData.updateTerminologies(Set.of(), Set.of(SYSTEM));
+
+        assertEquals(Set.of("animal", "mammal", "bird", "fish"), specificationData.expand(VALUE_SET).keySet());
+        assertNotSame(terminologyStore, specificationData.getTerminologyStore());
+        // the replaced store and the codings read from it are unchanged
+        assertEquals(Set.of("animal", "mammal", "bird"), codings.keySet());
+        assertEquals(3, terminologyStore.getCodings(VALUE_SET, FHIRR4SpecUtils::createCoding).size());
+    }
+
+    @Test
+    public void memoizesTerminologies() {
+        Map<String, Map<String, Coding>> terminologies = specificationData.getTerminologies();
+        Map<String, Coding> codings = terminologies.get(VALUE_SET);
+
+        // the same mutable codings are returned on every lookup
+        assertSame(terminologies, specificationData.getTerminologies());
+        assertSame(codings, terminologies.get(VALUE_SET));
+        assertSame(codings.get("mammal"), terminologies.get(VALUE_SET).get("mammal"));
+        codings.remove("bird");
+        assertEquals(Set.of("animal", "mammal"), specificationData.getTerminologies().get(VALUE_SET).keySet());
+        assertEquals(3, specificationData.expand(VALUE_SET).size());
+
+        // until the terminologies are resolved again
+        specificationData.updateTerminologies(Set.of(), Set.of(SYSTEM));
+        assertNotSame(terminologies, specificationData.getTerminologies());
+        assertEquals(3, specificationData.getTerminologies().get(VALUE_SET).size());
+    }
+
+    @Test
+    public void dropsRemovedValueSets() {
+        FHIRTerminologyStore terminologyStore = specificationData.getTerminologyStore();
+
+        specificationData.getValueSets().remove(VALUE_SET);
+        specificationData.updateTerminologies(Set.of(VALUE_SET), Set.of());
+
+        assertNull(specificationData.expand(VALUE_SET));
+        assertFalse(specificationData.getTerminologyStore().containsValueSet(VALUE_SET));
+        assertEquals(3, terminologyStore.getCodings(VALUE_SET, FHIRR4SpecUtils::createCoding).size());
+    }
+
+    private static FHIRR4TerminologyDef codeSystem(String... animals) {
+        CodeSystem codeSystem = new CodeSystem();
+        codeSystem.setUrl(SYSTEM);
+        CodeSystem.ConceptDefinitionComponent animal = codeSystem.addConcept().setCode("animal");
+        for (String code : animals) {
+            animal.addConcept().setCode(code);
+        }
+        FHIRR4TerminologyDef codeSystemDef = new FHIRR4TerminologyDef();
+        codeSystemDef.setUrl(SYSTEM);
+        codeSystemDef.setTerminologyResource(codeSystem);
+        return codeSystemDef;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.org).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.healthcare.codegen.tool.framework.fhir.core.versions.r4.common;
+
+import org.hl7.fhir.r4.model.CodeSystem;
+import org.hl7.fhir.r4.model.CodeType;
+import org.hl7.fhir.r4.model.StringType;
+import org.hl7.fhir.r4.model.ValueSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.model.FHIRTerminologyDef;
+import org.wso2.healthcare.codegen.tool.framework.fhir.core.versions.r4.model.FHIRR4TerminologyDef;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class FHIRR4ValueSetExpanderTest {
+
+    private static final String SYSTEM = "http://example.org/fhir/CodeSystem/animals";
+
+    private final Map<String, FHIRTerminologyDef> valueSets = new HashMap<>();
+    private final Map<String, FHIRTerminologyDef> codeSystems = new HashMap<>();
+
+    /**
+     * Loads animal > (mammal > (bat, whale), bird > penguin), plant and the deprecated dodo, where bat is repeated in
+     * bird. The mammals and the penguin have a habitat property.
+     */
+    @BeforeEach
+    public void loadCodeSystem() {
+        CodeSystem codeSystem = new CodeSystem();
+        codeSystem.setUrl(SYSTEM);
+        CodeSystem.ConceptDefinitionComponent animal = addConcept(codeSystem.getConcept(), "animal");
+        CodeSystem.ConceptDefinitionComponent mammal = addConcept(animal.getConcept(), "mammal");
+        addProperty(addConcept(mammal.getConcept(), "bat"), "habitat", "land");
+        addProperty(addConcept(mammal.getConcept(), "whale"), "habitat", "sea");
+        CodeSystem.ConceptDefinitionComponent bird = addConcept(animal.getConcept(), "bird");
+        addProperty(addConcept(bird.getConcept(), "penguin"), "habitat", "sea");
+        addConcept(bird.getConcept(), "bat");
+        addConcept(codeSystem.getConcept(), "plant");
+        CodeSystem.ConceptDefinitionComponent dodo = addConcept(codeSystem.getConcept(), "dodo");
+        dodo.addProperty().setCode("status").setValue(new CodeType("deprecated"));
+
+        FHIRR4TerminologyDef codeSystemDef = new FHIRR4TerminologyDef();
+        codeSystemDef.setUrl(SYSTEM);
+        codeSystemDef.setTerminologyResource(codeSystem);
+        codeSystems.put(SYSTEM, codeSystemDef);
+    }
+
+    @Test
+    public void expandsHierarchyFilters() {
+        assertEquals(Set.of("animal", "mammal", "bat", "whale", "bird", "penguin"),
+                expand(filter("concept", ValueSet.FilterOperator.ISA, "animal")));
+        assertEquals(Set.of("bat", "penguin"), expand(filter("concept", ValueSet.FilterOperator.DESCENDENTOF, "bird")));
+        assertEquals(Set.of("plant"), expand(filter("concept", ValueSet.FilterOperator.ISNOTA, "animal")));
+        // bat is nested in both mammal and bird
+        assertEquals(Set.of("bat", "mammal", "bird", "animal"),
+                expand(filter("concept", ValueSet.FilterOperator.GENERALIZES, "bat")));
+    }
+
+    @Test
+    public void expandsValueFilters() {
+        assertEquals(Set.of("whale", "penguin"), expand(filter("habitat", ValueSet.FilterOperator.EQUAL, "sea")));
+        assertEquals(Set.of("bat", "whale", "penguin"),
+                expand(filter("habitat", ValueSet.FilterOperator.EXISTS, "true")));
+        assertEquals(Set.of("animal", "mammal", "bird", "plant"),
+                expand(filter("habitat", ValueSet.FilterOperator.EXISTS, "false")));
+        assertEquals(Set.of("bat", "whale"), expand(filter("code", ValueSet.FilterOperator.REGEX, "(bat|whale)")));
+        assertEquals(Set.of("whale", "penguin"), expand(filter("habitat", ValueSet.FilterOperator.REGEX, "s.a")));
+    }
+
+    @Test
+    public void trimsInAndNotInCodes() {
+        assertEquals(Set.of("bat", "whale", "plant"),
+                expand(filter("concept", ValueSet.FilterOperator.IN, " bat,whale , ,plant,")));
+        assertEquals(Set.of("animal", "mammal", "bat", "penguin", "plant"),
+                expand(filter("concept", ValueSet.FilterOperator.NOTIN, "whale, bird")));
+        assertEquals(Set.of("whale", "penguin"), expand(filter("habitat", ValueSet.FilterOperator.IN, "sea, air")));
+    }
+
+    @Test
+    public void matchesNothingForInvalidRegex() {
+        assertEquals(Set.of(), expand(filter("concept", ValueSet.FilterOperator.REGEX, "(bat")));
+        assertEquals(Set.of(), expand(filter("habitat", ValueSet.FilterOperator.REGEX, "[sea")));
+    }
+
+    @Test
+    public void combinesFilters() {
+        ValueSet valueSet = valueSet();
+        ValueSet.ConceptSetComponent include = valueSet.getCompose().addInclude().setSystem(SYSTEM);
+        include.addFilter().setProperty("concept").setOp(ValueSet.FilterOperator.ISA).setValue("mammal");
+        include.addFilter().setProperty("habitat").setOp(ValueSet.FilterOperator.EQUAL).setValue("sea");
+        assertEquals(Set.of("whale"), new FHIRR4ValueSetExpander(valueSets, codeSystems).expand(valueSet).keySet());
+    }
+
+    private Set<String> expand(ValueSet.ConceptSetFilterComponent filter) {
+        ValueSet valueSet = valueSet();
+        valueSet.getCompose().addInclude().setSystem(SYSTEM).addFilter(filter);
+        return new FHIRR4ValueSetExpander(valueSets, codeSystems).expand(valueSet).keySet();
+    }
+
+    private static ValueSet valueSet() {
+        ValueSet valueSet = new ValueSet();
+        valueSet.setUrl("http://example.org/fhir/ValueSet/animals");
+        return valueSet;
+    }
+
+    private static ValueSet.ConceptSetFilterComponent filter(String property, ValueSet.FilterOperator operator,
+                                                            String value) {
+        ValueSet.ConceptSetFilterComponent filter = new ValueSet.ConceptSetFilterComponent();
+        filter.setProperty(property).setOp(operator).setValue(value);
+        return filter;
+    }
+
+    private static CodeSystem.ConceptDefinitionComponent addConcept(
+            List<CodeSystem.ConceptDefinitionComponent> concepts, String code) {
+        CodeSystem.ConceptDefinitionComponent concept = new CodeSystem.ConceptDefinitionComponent();
+        concept.setCode(code).setDisplay(code.substring(0, 1).toUpperCase() + code.substring(1));
+        concepts.add(concept);
+        return concept;
+    }
+
+    private static void addProperty(CodeSystem.ConceptDefinitionComponent concept, String code, String value) {
+        concept.addProperty().setCode(code).setValue(new StringType(value));
+    }
+}